@@ -0,0 +1,33 @@
+package com.ecommerce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "application.analytics.cache")
+@Data
+public class AnalyticsCacheProperties {
+
+    private boolean enabled = true;
+
+    /** Lifetime of results for methods without their own entry in {@link #ttl} */
+    private Duration defaultTtl = Duration.ofMinutes(5);
+
+    /** Per-method lifetimes keyed by AnalyticsService method name in kebab case, e.g. get-product-stock-summary */
+    private Map<String, Duration> ttl = new HashMap<>();
+
+    /**
+     * Fraction of the lifetime after which a read also starts a background reload, so busy results are
+     * replaced before they expire
+     */
+    private double refreshAhead = 0.8;
+
+    private int maxEntries = 1000;
+
+    private int refreshThreads = 2;
+}
@@ -2,6 +2,7 @@ package com.ecommerce.config;
 
 import com.ecommerce.entity.*;
 import com.ecommerce.repository.*;
+import com.ecommerce.service.interfaces.ShippingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -14,6 +15,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -32,10 +34,14 @@ public class DataInitializer implements CommandLineRunner {
     private final AddressRepository addressRepository;
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ReviewRepository reviewRepository;
+    private final ShippingRateRepository shippingRateRepository;
+    private final CouponRepository couponRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ShippingService shippingService;
 
     private final Random random = new Random();
 
@@ -53,6 +59,8 @@ public class DataInitializer implements CommandLineRunner {
         createCategories();
         createProducts();
         createWarehouses();
+        createShippingRates();
+        createCoupons();
         createInventory();
         createOrders();
         createReviews();
@@ -418,6 +426,54 @@ public class DataInitializer implements CommandLineRunner {
         log.info("Created {} warehouses", warehouses.size());
     }
 
+    private void createShippingRates() {
+        log.info("Creating shipping rate tables...");
+
+        // Band upper limits in kg, shared by every zone
+        double[] bandLimits = {1.0, 5.0, 10.0, 30.0};
+        double[][] bandPrices = {
+                {4.99, 7.99, 11.99, 19.99},   // LOCAL
+                {5.99, 9.99, 14.99, 24.99},   // DOMESTIC
+                {14.99, 24.99, 39.99, 69.99}  // INTERNATIONAL
+        };
+
+        List<ShippingRate> rates = new ArrayList<>();
+        for (ShippingRate.Zone zone : ShippingRate.Zone.values()) {
+            for (int band = 0; band < bandLimits.length; band++) {
+                ShippingRate rate = new ShippingRate();
+                rate.setZone(zone);
+                rate.setMaxWeightKg(bandLimits[band]);
+                rate.setPrice(BigDecimal.valueOf(bandPrices[zone.ordinal()][band]));
+                rates.add(rate);
+            }
+        }
+        shippingRateRepository.saveAll(rates);
+
+        log.info("Created {} shipping rates", rates.size());
+    }
+
+    private void createCoupons() {
+        log.info("Creating coupons...");
+
+        // The two codes the checkout used to hardcode
+        Coupon discount20 = new Coupon();
+        discount20.setCode("DISCOUNT20");
+        discount20.setDescription("20 off any order");
+        discount20.setDiscountType(Coupon.DiscountType.FIXED);
+        discount20.setDiscountValue(BigDecimal.valueOf(20));
+        discount20.setScope(Coupon.Scope.CART);
+
+        Coupon freeShip = new Coupon();
+        freeShip.setCode("FREESHIP");
+        freeShip.setDescription("Free shipping on any order");
+        freeShip.setDiscountType(Coupon.DiscountType.FREE_SHIPPING);
+        freeShip.setScope(Coupon.Scope.CART);
+
+        List<Coupon> coupons = couponRepository.saveAll(Arrays.asList(discount20, freeShip));
+
+        log.info("Created {} coupons", coupons.size());
+    }
+
     private void createInventory() {
         log.info("Creating inventory records...");
 
@@ -488,6 +544,9 @@ public class DataInitializer implements CommandLineRunner {
             }
         }
 
+        // Seed orders bypass OrderServiceImpl, so build their history summaries in one statement
+        orderSummaryRepository.backfillMissing();
+
         log.info("Created {} orders", orderRepository.count());
     }
 
@@ -704,10 +763,16 @@ public class DataInitializer implements CommandLineRunner {
             // Add 1-3 random products to each user's cart
             int numItems = 1 + random.nextInt(3);
             BigDecimal cartTotal = BigDecimal.ZERO;
+            int cartUnits = 0;
+            double cartWeightKg = 0;
 
+            Set<Long> productIds = new HashSet<>();
             for (int j = 0; j < numItems; j++) {
-                // Get a random product
+                // Get a random product; a cart holds at most one line per product
                 Product product = products.get(random.nextInt(products.size()));
+                if (!productIds.add(product.getId())) {
+                    continue;
+                }
 
                 // Create cart item
                 CartItem cartItem = new CartItem();
@@ -727,14 +792,22 @@ public class DataInitializer implements CommandLineRunner {
                 BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
                 cartItem.setSubtotal(subtotal);
 
+                // Billable weight as the price table computes it, so shipping quotes see the seeded lines
+                double unitWeightKg = shippingService.billableWeightKg(product);
+                cartItem.setUnitWeightKg(unitWeightKg);
+
                 // Add to cart total
                 cartTotal = cartTotal.add(subtotal);
+                cartUnits += quantity;
+                cartWeightKg += unitWeightKg * quantity;
 
                 cartItemRepository.save(cartItem);
             }
 
-            // Update cart total
+            // Update cart totals; lines carry no price version, so checkout reprices them
             cart.setTotalAmount(cartTotal);
+            cart.setItemCount(cartUnits);
+            cart.setTotalWeightKg(cartWeightKg);
             cartRepository.save(cart);
         }
 
@@ -0,0 +1,43 @@
+package com.ecommerce.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource applicationDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Same database, separate and smaller pool for background analytics reports
+    @Bean
+    public HikariDataSource reportDataSource(DataSourceProperties properties,
+                                             @Value("${application.analytics.reports.pool-size:2}") int poolSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("reports");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(0);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource applicationDataSource, HikariDataSource reportDataSource) {
+        ReportRoutingDataSource dataSource = new ReportRoutingDataSource();
+        dataSource.setDefaultTargetDataSource(applicationDataSource);
+        dataSource.setTargetDataSources(Map.of(ReportRoutingDataSource.REPORTS, reportDataSource));
+        return dataSource;
+    }
+}
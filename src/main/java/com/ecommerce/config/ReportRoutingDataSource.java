@@ -0,0 +1,34 @@
+package com.ecommerce.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.function.Supplier;
+
+/**
+ * Hands out connections from the report pool to code running inside {@link #onReportPool}, and from the
+ * application pool otherwise. Long report queries therefore cannot exhaust the connections that request
+ * handling depends on, while still going through the usual repositories and transactions.
+ */
+public class ReportRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String REPORTS = "reports";
+
+    private static final ThreadLocal<Boolean> REPORT_POOL = new ThreadLocal<>();
+
+    /**
+     * Run {@code work} with every connection it opens on this thread taken from the report pool
+     */
+    public static <T> T onReportPool(Supplier<T> work) {
+        REPORT_POOL.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            REPORT_POOL.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return REPORT_POOL.get() != null ? REPORTS : null;
+    }
+}
@@ -2,15 +2,14 @@ package com.ecommerce.controller;
 
 import com.ecommerce.dto.response.ApiResponse;
 import com.ecommerce.entity.Address;
-import com.ecommerce.entity.User;
+import com.ecommerce.security.principal.CurrentUser;
+import com.ecommerce.security.principal.UserPrincipal;
 import com.ecommerce.service.interfaces.AddressService;
 import com.ecommerce.service.interfaces.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
@@ -27,37 +26,13 @@ public class AddressController {
     private final UserService userService;
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Address>>> getCurrentUserAddresses() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<List<Address>> errorResponse = ApiResponse.error(
-                "User not found", 
-                HttpStatus.NOT_FOUND.value(), 
-                (Class<List<Address>>) (Class<?>) List.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
-        List<Address> addresses = addressService.getAddressesByUserId(userOpt.get().getId());
+    public ResponseEntity<ApiResponse<List<Address>>> getCurrentUserAddresses(@CurrentUser Long userId) {
+        List<Address> addresses = addressService.getAddressesByUserId(userId);
         return ResponseEntity.ok(ApiResponse.success(addresses));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Address>> getAddressById(@PathVariable Long id) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<Address> errorResponse = ApiResponse.error(
-                "User not found", 
-                HttpStatus.NOT_FOUND.value(), 
-                Address.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
+    public ResponseEntity<ApiResponse<Address>> getAddressById(@CurrentUser UserPrincipal currentUser, @PathVariable Long id) {
         Optional<Address> addressOpt = addressService.getAddressById(id);
         if (addressOpt.isEmpty()) {
             ApiResponse<Address> errorResponse = ApiResponse.error(
@@ -69,9 +44,7 @@ public class AddressController {
         
         // Check if the address belongs to the current user
         Address address = addressOpt.get();
-        User currentUser = userOpt.get();
-        if (!address.getUser().getId().equals(currentUser.getId()) && 
-                !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+        if (!address.getUser().getId().equals(currentUser.getId()) && !currentUser.isAdmin()) {
             ApiResponse<Address> errorResponse = ApiResponse.error(
                 "You don't have permission to view this address", 
                 HttpStatus.FORBIDDEN.value(), 
@@ -83,20 +56,8 @@ public class AddressController {
     }
 
     @PostMapping
-    public ResponseEntity<ApiResponse<Address>> createAddress(@Valid @RequestBody Address address) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<Address> errorResponse = ApiResponse.error(
-                "User not found", 
-                HttpStatus.NOT_FOUND.value(), 
-                Address.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
-        address.setUser(userOpt.get());
+    public ResponseEntity<ApiResponse<Address>> createAddress(@CurrentUser Long userId, @Valid @RequestBody Address address) {
+        address.setUser(userService.getUserReference(userId));
         Address createdAddress = addressService.createAddress(address);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
@@ -105,21 +66,10 @@ public class AddressController {
 
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<Address>> updateAddress(
+            @CurrentUser UserPrincipal currentUser,
             @PathVariable Long id,
             @Valid @RequestBody Address address) {
         
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<Address> errorResponse = ApiResponse.error(
-                "User not found", 
-                HttpStatus.NOT_FOUND.value(), 
-                Address.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
         Optional<Address> addressOpt = addressService.getAddressById(id);
         if (addressOpt.isEmpty()) {
             ApiResponse<Address> errorResponse = ApiResponse.error(
@@ -130,9 +80,7 @@ public class AddressController {
         }
         
         // Check if the address belongs to the current user
-        User currentUser = userOpt.get();
-        if (!addressOpt.get().getUser().getId().equals(currentUser.getId()) && 
-                !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+        if (!addressOpt.get().getUser().getId().equals(currentUser.getId()) && !currentUser.isAdmin()) {
             ApiResponse<Address> errorResponse = ApiResponse.error(
                 "You don't have permission to update this address", 
                 HttpStatus.FORBIDDEN.value(), 
@@ -141,23 +89,13 @@ public class AddressController {
         }
         
         address.setId(id);
-        address.setUser(currentUser);
+        address.setUser(userService.getUserReference(currentUser.getId()));
         Address updatedAddress = addressService.updateAddress(id, address);
         return ResponseEntity.ok(ApiResponse.success(updatedAddress, "Address updated successfully"));
     }
 
     @PutMapping("/{id}/set-default")
-    public ResponseEntity<ApiResponse<Void>> setDefaultAddress(@PathVariable Long id) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value()));
-        }
-        
+    public ResponseEntity<ApiResponse<Void>> setDefaultAddress(@CurrentUser UserPrincipal currentUser, @PathVariable Long id) {
         Optional<Address> addressOpt = addressService.getAddressById(id);
         if (addressOpt.isEmpty()) {
             return ResponseEntity
@@ -166,9 +104,7 @@ public class AddressController {
         }
         
         // Check if the address belongs to the current user
-        User currentUser = userOpt.get();
-        if (!addressOpt.get().getUser().getId().equals(currentUser.getId()) && 
-                !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+        if (!addressOpt.get().getUser().getId().equals(currentUser.getId()) && !currentUser.isAdmin()) {
             return ResponseEntity
                     .status(HttpStatus.FORBIDDEN)
                     .body(ApiResponse.error("You don't have permission to set this address as default", HttpStatus.FORBIDDEN.value()));
@@ -179,17 +115,7 @@ public class AddressController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<ApiResponse<Void>> deleteAddress(@PathVariable Long id) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value()));
-        }
-        
+    public ResponseEntity<ApiResponse<Void>> deleteAddress(@CurrentUser UserPrincipal currentUser, @PathVariable Long id) {
         Optional<Address> addressOpt = addressService.getAddressById(id);
         if (addressOpt.isEmpty()) {
             return ResponseEntity
@@ -198,9 +124,7 @@ public class AddressController {
         }
         
         // Check if the address belongs to the current user
-        User currentUser = userOpt.get();
-        if (!addressOpt.get().getUser().getId().equals(currentUser.getId()) && 
-                !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+        if (!addressOpt.get().getUser().getId().equals(currentUser.getId()) && !currentUser.isAdmin()) {
             return ResponseEntity
                     .status(HttpStatus.FORBIDDEN)
                     .body(ApiResponse.error("You don't have permission to delete this address", HttpStatus.FORBIDDEN.value()));
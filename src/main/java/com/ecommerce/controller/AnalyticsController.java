@@ -0,0 +1,125 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.analytics.OrderItemAggregate;
+import com.ecommerce.dto.analytics.OrderItemQuery;
+import com.ecommerce.dto.analytics.ReportRequest;
+import com.ecommerce.dto.analytics.TopCustomer;
+import com.ecommerce.dto.analytics.TopSellingProduct;
+import com.ecommerce.dto.export.ExportFormat;
+import com.ecommerce.dto.response.ApiResponse;
+import com.ecommerce.entity.ReportJob;
+import com.ecommerce.entity.ReportResult;
+import com.ecommerce.security.principal.CurrentUser;
+import com.ecommerce.service.interfaces.AnalyticsService;
+import com.ecommerce.service.interfaces.ReportJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+    private final ReportJobService reportJobService;
+
+    @PostMapping("/order-items/aggregate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<OrderItemAggregate>>> aggregateOrderItems(@RequestBody OrderItemQuery query) {
+        try {
+            List<OrderItemAggregate> results = analyticsService.aggregateOrderItems(query);
+            return ResponseEntity.ok(ApiResponse.success(results));
+        } catch (IllegalArgumentException e) {
+            @SuppressWarnings("unchecked")
+            ApiResponse<List<OrderItemAggregate>> errorResponse = ApiResponse.error(e.getMessage(), HttpStatus.BAD_REQUEST.value(), (Class<List<OrderItemAggregate>>) (Class<?>) List.class);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+
+    @GetMapping("/leaderboards/customers")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<TopCustomer>>> getTopCustomers(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(analyticsService.getTopCustomersByRevenue(limit)));
+    }
+
+    @GetMapping("/leaderboards/products")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<TopSellingProduct>>> getTopSellingProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(analyticsService.getTopSellingProducts(startDate, endDate, limit)));
+    }
+
+    @GetMapping("/export/product-stock-summary")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProductStockSummary(
+            @RequestParam(defaultValue = "CSV") ExportFormat format) {
+
+        StreamingResponseBody body = out -> analyticsService.exportProductStockSummary(format, out);
+        return exportResponse("product-stock-summary", format, body);
+    }
+
+    @GetMapping("/export/inactive-customers")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportInactiveCustomers(
+            @RequestParam(defaultValue = "90") int inactiveDays,
+            @RequestParam(defaultValue = "CSV") ExportFormat format) {
+
+        StreamingResponseBody body = out -> analyticsService.exportInactiveCustomers(inactiveDays, format, out);
+        return exportResponse("inactive-customers-" + inactiveDays + "d", format, body);
+    }
+
+    @PostMapping("/reports")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ReportJob>> submitReport(@CurrentUser Long userId, @Valid @RequestBody ReportRequest request) {
+        ReportJob job = reportJobService.submitReport(request, userId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job, "Report queued"));
+    }
+
+    @GetMapping("/reports/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ReportJob>> getReportJob(@PathVariable Long id) {
+        Optional<ReportJob> jobOpt = reportJobService.getReportJob(id);
+        if (jobOpt.isEmpty()) {
+            ApiResponse<ReportJob> errorResponse = ApiResponse.error("Report job not found with id: " + id, HttpStatus.NOT_FOUND.value(), ReportJob.class);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+        return ResponseEntity.ok(ApiResponse.success(jobOpt.get()));
+    }
+
+    @GetMapping("/reports/{id}/result")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<byte[]> downloadReport(@PathVariable Long id) {
+        Optional<ReportResult> resultOpt = reportJobService.getReportResult(id);
+        if (resultOpt.isEmpty()) {
+            // Either unknown or not finished yet; the job endpoint tells which
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        ReportResult result = resultOpt.get();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(result.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"report-" + id + ".json\"")
+                .body(result.getPayload());
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(String fileName, ExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + "." + format.getFileExtension() + "\"")
+                .body(body);
+    }
+}
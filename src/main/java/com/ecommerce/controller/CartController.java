@@ -1,21 +1,19 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.cart.CartBatchRequest;
+import com.ecommerce.dto.cart.CartSummary;
 import com.ecommerce.dto.response.ApiResponse;
 import com.ecommerce.entity.CartItem;
-import com.ecommerce.entity.User;
+import com.ecommerce.security.principal.CurrentUser;
 import com.ecommerce.service.interfaces.CartService;
-import com.ecommerce.service.interfaces.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -24,39 +22,26 @@ import java.util.Optional;
 public class CartController {
 
     private final CartService cartService;
-    private final UserService userService;
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<CartItem>>> getCartItems() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<List<CartItem>> errorResponse = ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value(), (Class<List<CartItem>>) (Class<?>) List.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
-        List<CartItem> cartItems = cartService.getCartItems(userOpt.get().getId());
+    public ResponseEntity<ApiResponse<List<CartItem>>> getCartItems(@CurrentUser Long userId) {
+        List<CartItem> cartItems = cartService.getCartItems(userId);
         return ResponseEntity.ok(ApiResponse.success(cartItems));
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<ApiResponse<CartSummary>> getCartSummary(@CurrentUser Long userId) {
+        return ResponseEntity.ok(ApiResponse.success(cartService.getCartSummary(userId)));
+    }
+
     @PostMapping("/items")
     public ResponseEntity<ApiResponse<CartItem>> addItemToCart(
+            @CurrentUser Long userId,
             @RequestParam Long productId,
             @RequestParam int quantity) {
         
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<CartItem> errorResponse = ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value(), CartItem.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
         try {
-            CartItem cartItem = cartService.addItemToCart(userOpt.get().getId(), productId, quantity);
+            CartItem cartItem = cartService.addItemToCart(userId, productId, quantity);
             return ResponseEntity
                     .status(HttpStatus.CREATED)
                     .body(ApiResponse.success(cartItem, "Item added to cart successfully"));
@@ -68,20 +53,12 @@ public class CartController {
 
     @PutMapping("/items")
     public ResponseEntity<ApiResponse<CartItem>> updateCartItem(
+            @CurrentUser Long userId,
             @RequestParam Long productId,
             @RequestParam int quantity) {
         
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<CartItem> errorResponse = ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value(), CartItem.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
         try {
-            CartItem updatedItem = cartService.updateCartItem(userOpt.get().getId(), productId, quantity);
+            CartItem updatedItem = cartService.updateCartItem(userId, productId, quantity);
             return ResponseEntity.ok(ApiResponse.success(updatedItem, "Cart item updated successfully"));
         } catch (IllegalArgumentException e) {
             ApiResponse<CartItem> errorResponse = ApiResponse.error(e.getMessage(), HttpStatus.BAD_REQUEST.value(), CartItem.class);
@@ -89,19 +66,21 @@ public class CartController {
         }
     }
 
-    @DeleteMapping("/items")
-    public ResponseEntity<ApiResponse<Void>> removeItemFromCart(@RequestParam Long productId) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value()));
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<CartItem>>> applyCartOperations(@CurrentUser Long userId, @Valid @RequestBody CartBatchRequest request) {
+        try {
+            List<CartItem> cartItems = cartService.applyCartOperations(userId, request.getOperations());
+            return ResponseEntity.ok(ApiResponse.success(cartItems, "Cart updated successfully"));
+        } catch (IllegalArgumentException e) {
+            @SuppressWarnings("unchecked")
+            ApiResponse<List<CartItem>> errorResponse = ApiResponse.error(e.getMessage(), HttpStatus.BAD_REQUEST.value(), (Class<List<CartItem>>) (Class<?>) List.class);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         }
-        
-        boolean removed = cartService.removeItemFromCart(userOpt.get().getId(), productId);
+    }
+
+    @DeleteMapping("/items")
+    public ResponseEntity<ApiResponse<Void>> removeItemFromCart(@CurrentUser Long userId, @RequestParam Long productId) {
+        boolean removed = cartService.removeItemFromCart(userId, productId);
         if (removed) {
             return ResponseEntity.ok(ApiResponse.success("Item removed from cart successfully"));
         } else {
@@ -112,18 +91,8 @@ public class CartController {
     }
 
     @DeleteMapping
-    public ResponseEntity<ApiResponse<Void>> clearCart() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value()));
-        }
-        
-        cartService.clearCart(userOpt.get().getId());
+    public ResponseEntity<ApiResponse<Void>> clearCart(@CurrentUser Long userId) {
+        cartService.clearCart(userId);
         return ResponseEntity.ok(ApiResponse.success("Cart cleared successfully"));
     }
 }
@@ -0,0 +1,85 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.response.ApiResponse;
+import com.ecommerce.entity.Coupon;
+import com.ecommerce.service.interfaces.CouponService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/coupons")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class CouponController {
+
+    private final CouponService couponService;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<Coupon>>> getAllCoupons() {
+        List<Coupon> coupons = couponService.getAllCoupons();
+        return ResponseEntity.ok(ApiResponse.success(coupons));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<Coupon>> getCouponById(@PathVariable Long id) {
+        Optional<Coupon> couponOpt = couponService.getCouponById(id);
+        if (couponOpt.isEmpty()) {
+            ApiResponse<Coupon> errorResponse = ApiResponse.error("Coupon not found with id: " + id, HttpStatus.NOT_FOUND.value(), Coupon.class);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+        return ResponseEntity.ok(ApiResponse.success(couponOpt.get()));
+    }
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<Coupon>> createCoupon(@Valid @RequestBody Coupon coupon) {
+        try {
+            Coupon createdCoupon = couponService.createCoupon(coupon);
+            return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .body(ApiResponse.success(createdCoupon, "Coupon created successfully"));
+        } catch (IllegalArgumentException e) {
+            ApiResponse<Coupon> errorResponse = ApiResponse.error(e.getMessage(), HttpStatus.BAD_REQUEST.value(), Coupon.class);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<ApiResponse<Coupon>> updateCoupon(
+            @PathVariable Long id,
+            @Valid @RequestBody Coupon coupon) {
+        
+        Optional<Coupon> couponOpt = couponService.getCouponById(id);
+        if (couponOpt.isEmpty()) {
+            ApiResponse<Coupon> errorResponse = ApiResponse.error("Coupon not found with id: " + id, HttpStatus.NOT_FOUND.value(), Coupon.class);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+        
+        try {
+            Coupon updatedCoupon = couponService.updateCoupon(id, coupon);
+            return ResponseEntity.ok(ApiResponse.success(updatedCoupon, "Coupon updated successfully"));
+        } catch (IllegalArgumentException e) {
+            ApiResponse<Coupon> errorResponse = ApiResponse.error(e.getMessage(), HttpStatus.BAD_REQUEST.value(), Coupon.class);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> deleteCoupon(@PathVariable Long id) {
+        Optional<Coupon> couponOpt = couponService.getCouponById(id);
+        if (couponOpt.isEmpty()) {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Coupon not found with id: " + id, HttpStatus.NOT_FOUND.value()));
+        }
+        
+        couponService.deleteCoupon(id);
+        return ResponseEntity.ok(ApiResponse.success("Coupon deleted successfully"));
+    }
+}
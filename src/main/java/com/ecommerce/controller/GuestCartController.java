@@ -0,0 +1,77 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.response.ApiResponse;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.service.interfaces.GuestCartService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/public/guest-cart")
+@RequiredArgsConstructor
+public class GuestCartController {
+
+    public static final String TOKEN_HEADER = "X-Guest-Cart-Token";
+
+    private final GuestCartService guestCartService;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<CartItem>>> getCartItems(
+            @RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        return ResponseEntity.ok(ApiResponse.success(guestCartService.getItems(token)));
+    }
+
+    @PostMapping("/items")
+    public ResponseEntity<ApiResponse<List<CartItem>>> addItemToCart(
+            @RequestHeader(value = TOKEN_HEADER, required = false) String token,
+            @RequestParam Long productId,
+            @RequestParam int quantity) {
+        
+        try {
+            // A new token is issued when the caller has none or theirs has expired
+            String cartToken = guestCartService.addItem(token, productId, quantity);
+            return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .header(TOKEN_HEADER, cartToken)
+                    .body(ApiResponse.success(guestCartService.getItems(cartToken), "Item added to cart successfully"));
+        } catch (IllegalArgumentException e) {
+            @SuppressWarnings("unchecked")
+            ApiResponse<List<CartItem>> errorResponse = ApiResponse.error(e.getMessage(), HttpStatus.BAD_REQUEST.value(), (Class<List<CartItem>>) (Class<?>) List.class);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+
+    @PutMapping("/items")
+    public ResponseEntity<ApiResponse<List<CartItem>>> updateCartItem(
+            @RequestHeader(TOKEN_HEADER) String token,
+            @RequestParam Long productId,
+            @RequestParam int quantity) {
+        
+        guestCartService.updateItem(token, productId, quantity);
+        return ResponseEntity.ok(ApiResponse.success(guestCartService.getItems(token), "Cart item updated successfully"));
+    }
+
+    @DeleteMapping("/items")
+    public ResponseEntity<ApiResponse<Void>> removeItemFromCart(
+            @RequestHeader(TOKEN_HEADER) String token,
+            @RequestParam Long productId) {
+        
+        if (guestCartService.removeItem(token, productId)) {
+            return ResponseEntity.ok(ApiResponse.success("Item removed from cart successfully"));
+        } else {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Item not found in cart", HttpStatus.NOT_FOUND.value()));
+        }
+    }
+
+    @DeleteMapping
+    public ResponseEntity<ApiResponse<Void>> clearCart(@RequestHeader(TOKEN_HEADER) String token) {
+        guestCartService.clear(token);
+        return ResponseEntity.ok(ApiResponse.success("Cart cleared successfully"));
+    }
+}
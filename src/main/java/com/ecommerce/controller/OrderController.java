@@ -1,17 +1,22 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.export.ExportFormat;
 import com.ecommerce.dto.response.ApiResponse;
 import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderSummary;
 import com.ecommerce.service.interfaces.OrderService;
 import com.ecommerce.service.interfaces.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
@@ -40,11 +45,17 @@ public class OrderController {
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<ApiResponse<Page<Order>>> getOrdersByUserId(
+    public ResponseEntity<ApiResponse<Page<OrderSummary>>> getOrdersByUserId(
             @PathVariable Long userId,
             Pageable pageable) {
-        Page<Order> orders = orderService.getOrdersByUserId(userId, pageable);
-        return ResponseEntity.ok(ApiResponse.success(orders));
+        try {
+            Page<OrderSummary> orders = orderService.getOrderSummariesByUserId(userId, pageable);
+            return ResponseEntity.ok(ApiResponse.success(orders));
+        } catch (IllegalArgumentException e) {
+            @SuppressWarnings("unchecked")
+            ApiResponse<Page<OrderSummary>> errorResponse = ApiResponse.error(e.getMessage(), HttpStatus.BAD_REQUEST.value(), (Class<Page<OrderSummary>>) (Class<?>) Page.class);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
     }
 
     @GetMapping("/date-range")
@@ -66,6 +77,27 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
 
+    @GetMapping("/date-range/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrdersByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+
+        StreamingResponseBody body = out -> orderService.exportOrdersByDateRange(startDate, endDate, format, out);
+        return exportResponse("orders-" + startDate.toLocalDate() + "-" + endDate.toLocalDate(), format, body);
+    }
+
+    @GetMapping("/status/{status}/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrdersByStatus(
+            @PathVariable Order.OrderStatus status,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+
+        StreamingResponseBody body = out -> orderService.exportOrdersByStatus(status, format, out);
+        return exportResponse("orders-" + status.name().toLowerCase(), format, body);
+    }
+
     @PostMapping
     public ResponseEntity<ApiResponse<Order>> createOrder(@Valid @RequestBody Order order) {
         Order createdOrder = orderService.createOrder(order);
@@ -154,4 +186,12 @@ public class OrderController {
         orderService.deleteOrder(id);
         return ResponseEntity.ok(ApiResponse.success("Order deleted successfully"));
     }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(String fileName, ExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + "." + format.getFileExtension() + "\"")
+                .body(body);
+    }
 }
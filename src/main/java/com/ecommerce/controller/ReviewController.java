@@ -3,7 +3,8 @@ package com.ecommerce.controller;
 import com.ecommerce.dto.response.ApiResponse;
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.Review;
-import com.ecommerce.entity.User;
+import com.ecommerce.security.principal.CurrentUser;
+import com.ecommerce.security.principal.UserPrincipal;
 import com.ecommerce.service.interfaces.ProductService;
 import com.ecommerce.service.interfaces.ReviewService;
 import com.ecommerce.service.interfaces.UserService;
@@ -13,8 +14,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
@@ -74,23 +73,14 @@ public class ReviewController {
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<ApiResponse<Review>> createReview(@Valid @RequestBody Review review) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<Review> errorResponse = ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value(), Review.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
+    public ResponseEntity<ApiResponse<Review>> createReview(@CurrentUser Long userId, @Valid @RequestBody Review review) {
         Optional<Product> productOpt = productService.getProductById(review.getProduct().getId());
         if (productOpt.isEmpty()) {
             ApiResponse<Review> errorResponse = ApiResponse.error("Product not found with id: " + review.getProduct().getId(), HttpStatus.NOT_FOUND.value(), Review.class);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
         }
         
-        review.setUser(userOpt.get());
+        review.setUser(userService.getUserReference(userId));
         review.setProduct(productOpt.get());
         
         Review createdReview = reviewService.createReview(review);
@@ -102,18 +92,10 @@ public class ReviewController {
     @PutMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ApiResponse<Review>> updateReview(
+            @CurrentUser UserPrincipal currentUser,
             @PathVariable Long id,
             @Valid @RequestBody Review review) {
         
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            ApiResponse<Review> errorResponse = ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value(), Review.class);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-        
         Optional<Review> reviewOpt = reviewService.getReviewById(id);
         if (reviewOpt.isEmpty()) {
             ApiResponse<Review> errorResponse = ApiResponse.error("Review not found with id: " + id, HttpStatus.NOT_FOUND.value(), Review.class);
@@ -121,11 +103,9 @@ public class ReviewController {
         }
         
         Review existingReview = reviewOpt.get();
-        User currentUser = userOpt.get();
         
         // Check if the review belongs to the current user or user is admin
-        if (!existingReview.getUser().getId().equals(currentUser.getId()) && 
-                !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+        if (!existingReview.getUser().getId().equals(currentUser.getId()) && !currentUser.isAdmin()) {
             ApiResponse<Review> errorResponse = ApiResponse.error("You don't have permission to update this review", HttpStatus.FORBIDDEN.value(), Review.class);
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
         }
@@ -140,17 +120,7 @@ public class ReviewController {
 
     @DeleteMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<ApiResponse<Void>> deleteReview(@PathVariable Long id) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value()));
-        }
-        
+    public ResponseEntity<ApiResponse<Void>> deleteReview(@CurrentUser UserPrincipal currentUser, @PathVariable Long id) {
         Optional<Review> reviewOpt = reviewService.getReviewById(id);
         if (reviewOpt.isEmpty()) {
             return ResponseEntity
@@ -159,11 +129,9 @@ public class ReviewController {
         }
         
         Review review = reviewOpt.get();
-        User currentUser = userOpt.get();
         
         // Check if the review belongs to the current user or user is admin
-        if (!review.getUser().getId().equals(currentUser.getId()) && 
-                !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+        if (!review.getUser().getId().equals(currentUser.getId()) && !currentUser.isAdmin()) {
             return ResponseEntity
                     .status(HttpStatus.FORBIDDEN)
                     .body(ApiResponse.error("You don't have permission to delete this review", HttpStatus.FORBIDDEN.value()));
@@ -2,13 +2,12 @@ package com.ecommerce.controller;
 
 import com.ecommerce.dto.response.ApiResponse;
 import com.ecommerce.entity.User;
+import com.ecommerce.security.principal.CurrentUser;
 import com.ecommerce.service.interfaces.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
@@ -30,7 +29,7 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    @PreAuthorize("hasRole('ADMIN') or authentication.principal.username == @userService.getUserById(#id).orElse(new com.ecommerce.entity.User()).email")
+    @PreAuthorize("hasRole('ADMIN') or authentication.principal.id == #id")
     public ResponseEntity<ApiResponse<User>> getUserById(@PathVariable Long id) {
         Optional<User> userOpt = userService.getUserById(id);
         if (userOpt.isEmpty()) {
@@ -42,11 +41,8 @@ public class UserController {
 
     @GetMapping("/me")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<ApiResponse<User>> getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        Optional<User> userOpt = userService.getUserByEmail(email);
+    public ResponseEntity<ApiResponse<User>> getCurrentUser(@CurrentUser Long userId) {
+        Optional<User> userOpt = userService.getUserById(userId);
         if (userOpt.isEmpty()) {
             ApiResponse<User> errorResponse = ApiResponse.error("User not found", HttpStatus.NOT_FOUND.value(), User.class);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
@@ -56,7 +52,7 @@ public class UserController {
     }
 
     @PutMapping("/{id}")
-    @PreAuthorize("hasRole('ADMIN') or authentication.principal.username == @userService.getUserById(#id).orElse(new com.ecommerce.entity.User()).email")
+    @PreAuthorize("hasRole('ADMIN') or authentication.principal.id == #id")
     public ResponseEntity<ApiResponse<User>> updateUser(
             @PathVariable Long id,
             @Valid @RequestBody User user) {
@@ -82,7 +78,7 @@ public class UserController {
     }
 
     @PutMapping("/{id}/change-password")
-    @PreAuthorize("hasRole('ADMIN') or authentication.principal.username == @userService.getUserById(#id).orElse(new com.ecommerce.entity.User()).email")
+    @PreAuthorize("hasRole('ADMIN') or authentication.principal.id == #id")
     public ResponseEntity<ApiResponse<Void>> changePassword(
             @PathVariable Long id,
             @RequestParam String oldPassword,
@@ -134,7 +130,7 @@ public class UserController {
     }
 
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasRole('ADMIN') or authentication.principal.username == @userService.getUserById(#id).orElse(new com.ecommerce.entity.User()).email")
+    @PreAuthorize("hasRole('ADMIN') or authentication.principal.id == #id")
     public ResponseEntity<ApiResponse<Void>> deleteUser(@PathVariable Long id) {
         Optional<User> userOpt = userService.getUserById(id);
         if (userOpt.isEmpty()) {
@@ -0,0 +1,8 @@
+package com.ecommerce.dto.analytics;
+
+import com.ecommerce.entity.ActivitySketch;
+
+import java.time.LocalDate;
+
+public record ActiveUsersInWindow(ActivitySketch.Metric metric, LocalDate startDay, LocalDate endDay, long activeUsers) {
+}
@@ -0,0 +1,4 @@
+package com.ecommerce.dto.analytics;
+
+public record CategoryProductStats(String category, long productCount, Double averagePrice) {
+}
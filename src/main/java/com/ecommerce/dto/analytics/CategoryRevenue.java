@@ -0,0 +1,6 @@
+package com.ecommerce.dto.analytics;
+
+import java.math.BigDecimal;
+
+public record CategoryRevenue(String category, BigDecimal revenue) {
+}
@@ -0,0 +1,6 @@
+package com.ecommerce.dto.analytics;
+
+import java.time.LocalDate;
+
+public record DailyActiveUsers(LocalDate day, long activeUsers) {
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.dto.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record InactiveCustomer(Long userId, String email, String firstName, String lastName, LocalDateTime lastOrderDate,
+                               long totalOrders, BigDecimal lifetimeValue) {
+}
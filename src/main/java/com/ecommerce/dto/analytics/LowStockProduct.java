@@ -0,0 +1,4 @@
+package com.ecommerce.dto.analytics;
+
+public record LowStockProduct(Long productId, String name, long lowStockCount) {
+}
@@ -0,0 +1,4 @@
+package com.ecommerce.dto.analytics;
+
+public record MonthlyActiveUsers(String month, long activeUsers) {
+}
@@ -0,0 +1,10 @@
+package com.ecommerce.dto.analytics;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One group of an order item aggregation; {@code group} holds the values of the requested dimensions in order.
+ */
+public record OrderItemAggregate(List<Object> group, long units, BigDecimal revenue, long lines) {
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.dto.analytics;
+
+/**
+ * Attributes order items can be grouped and filtered by. Time buckets are ISO dates ("2026-10-19"),
+ * ISO weeks ("2026-W42") and months ("2026-10").
+ */
+public enum OrderItemDimension {
+    PRODUCT, CATEGORY, BRAND, CUSTOMER, ORDER_STATUS, COUNTRY, DAY, WEEK, MONTH
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderItemQuery {
+    @Builder.Default
+    private List<OrderItemDimension> groupBy = new ArrayList<>();
+
+    // Rows are kept when the dimension's value matches any of the listed values
+    @Builder.Default
+    private Map<OrderItemDimension, List<String>> filters = new HashMap<>();
+
+    // Inclusive order-date bounds; either may be left open
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Builder.Default
+    private Measure sortBy = Measure.REVENUE;
+
+    private Integer limit;
+
+    public enum Measure {
+        UNITS, REVENUE, LINES
+    }
+}
@@ -0,0 +1,4 @@
+package com.ecommerce.dto.analytics;
+
+public record ProductStockSummary(String productName, long totalStock, long totalReserved) {
+}
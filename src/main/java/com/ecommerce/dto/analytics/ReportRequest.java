@@ -0,0 +1,28 @@
+package com.ecommerce.dto.analytics;
+
+import com.ecommerce.entity.ActivitySketch;
+import com.ecommerce.entity.ReportJob;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportRequest {
+    @NotNull(message = "Report type is required")
+    private ReportJob.Type type;
+
+    // Only the parameters used by the report type need to be set
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Integer limit;
+    private Integer inactiveDays;
+    private ActivitySketch.Metric metric;
+    private OrderItemQuery query;
+}
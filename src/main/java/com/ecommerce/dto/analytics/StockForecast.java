@@ -0,0 +1,12 @@
+package com.ecommerce.dto.analytics;
+
+/**
+ * Forecast demand against one inventory row. {@code dailyDemand} is the product's forecast scaled by this
+ * warehouse's share; {@code shortageRisk} is the probability that demand over the lead time exceeds the
+ * available stock, and {@code rank} orders rows by that risk within their warehouse.
+ */
+public record StockForecast(Long productId, String productName, Long warehouseId, String warehouseName,
+                            int availableStock, int reservedStock, long last30DaysSales, String model,
+                            double dailyDemand, Double daysOfCover, double shortageRisk, int rank,
+                            int suggestedReorderQuantity) {
+}
@@ -0,0 +1,6 @@
+package com.ecommerce.dto.analytics;
+
+import java.math.BigDecimal;
+
+public record TopCustomer(Long userId, String email, long orderCount, BigDecimal totalSpent) {
+}
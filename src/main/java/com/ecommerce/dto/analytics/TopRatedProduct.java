@@ -0,0 +1,6 @@
+package com.ecommerce.dto.analytics;
+
+import java.math.BigDecimal;
+
+public record TopRatedProduct(Long productId, String name, BigDecimal averageRating, long reviewCount) {
+}
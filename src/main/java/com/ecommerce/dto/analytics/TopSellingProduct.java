@@ -0,0 +1,4 @@
+package com.ecommerce.dto.analytics;
+
+public record TopSellingProduct(Long productId, String name, long totalSold) {
+}
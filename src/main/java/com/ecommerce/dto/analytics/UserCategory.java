@@ -0,0 +1,4 @@
+package com.ecommerce.dto.analytics;
+
+public record UserCategory(Long categoryId, String categoryName, long uniqueUsers) {
+}
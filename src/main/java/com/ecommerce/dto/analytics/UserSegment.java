@@ -0,0 +1,6 @@
+package com.ecommerce.dto.analytics;
+
+import java.math.BigDecimal;
+
+public record UserSegment(String segment, long userCount, long orderCount, BigDecimal averageOrderValue) {
+}
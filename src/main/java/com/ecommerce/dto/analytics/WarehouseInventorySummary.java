@@ -0,0 +1,4 @@
+package com.ecommerce.dto.analytics;
+
+public record WarehouseInventorySummary(String warehouseName, long productCount, long totalQuantity) {
+}
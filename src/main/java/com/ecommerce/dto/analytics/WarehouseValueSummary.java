@@ -0,0 +1,6 @@
+package com.ecommerce.dto.analytics;
+
+import java.math.BigDecimal;
+
+public record WarehouseValueSummary(String warehouseName, String location, long productCount, long totalQuantity, BigDecimal totalValue) {
+}
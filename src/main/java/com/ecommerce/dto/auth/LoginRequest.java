@@ -18,4 +18,7 @@ public class LoginRequest {
     
     @NotBlank(message = "Password is required")
     private String password;
+    
+    // Optional guest cart to merge into the user's cart
+    private String guestCartToken;
 }
@@ -28,4 +28,7 @@ public class RegisterRequest {
     private String password;
     
     private String phoneNumber;
+    
+    // Optional guest cart to merge into the user's cart
+    private String guestCartToken;
 }
@@ -0,0 +1,22 @@
+package com.ecommerce.dto.cart;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartBatchRequest {
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 200, message = "At most 200 operations per batch")
+    @Valid
+    private List<CartOperation> operations;
+}
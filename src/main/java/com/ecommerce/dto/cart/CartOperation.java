@@ -0,0 +1,26 @@
+package com.ecommerce.dto.cart;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartOperation {
+    @NotNull(message = "Operation type is required")
+    private Type type;
+
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+
+    // Ignored for REMOVE; an UPDATE to zero or less removes the line
+    private int quantity;
+
+    public enum Type {
+        ADD, UPDATE, REMOVE
+    }
+}
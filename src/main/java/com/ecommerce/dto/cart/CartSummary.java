@@ -0,0 +1,22 @@
+package com.ecommerce.dto.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartSummary {
+    private int itemCount;
+    private BigDecimal subtotal;
+    private double totalWeightKg;
+
+    public static CartSummary empty() {
+        return new CartSummary(0, BigDecimal.ZERO, 0);
+    }
+}
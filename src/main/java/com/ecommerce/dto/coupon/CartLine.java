@@ -0,0 +1,13 @@
+package com.ecommerce.dto.coupon;
+
+import java.math.BigDecimal;
+
+/**
+ * Minimal view of a cart item needed to price promotions.
+ */
+public record CartLine(long productId, long categoryId, int quantity, BigDecimal unitPrice) {
+
+    public BigDecimal subtotal() {
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.dto.coupon;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CouponEvaluation {
+    private Long couponId;
+    private String code;
+    private BigDecimal discountAmount;
+    private boolean freeShipping;
+}
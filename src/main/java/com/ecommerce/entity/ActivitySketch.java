@@ -0,0 +1,43 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// HyperLogLog registers of the distinct users active per day; maintained by ActivitySketchStore
+@Entity
+@Table(name = "activity_sketches")
+@IdClass(ActivitySketch.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivitySketch {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Metric metric;
+
+    // Sparse or 6-bit packed registers, whichever is smaller
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] registers;
+
+    public enum Metric {
+        BUYERS, REVIEWERS, CART_USERS
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Metric metric;
+    }
+}
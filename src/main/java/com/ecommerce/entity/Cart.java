@@ -11,7 +11,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+        @Index(name = "idx_carts_updated_at", columnList = "updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,9 +30,18 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<CartItem> cartItems = new HashSet<>();
 
+    // Running aggregates over cart_items, adjusted by deltas on every cart change
+    // totalAmount is the sum of line subtotals, before shipping and discounts
     @Column(nullable = false)
     private BigDecimal totalAmount = BigDecimal.ZERO;
 
+    @Column(nullable = false)
+    private Integer itemCount = 0;
+
+    // Sum of billable (actual or dimensional) weight over all units
+    @Column(nullable = false)
+    private Double totalWeightKg = 0.0;
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
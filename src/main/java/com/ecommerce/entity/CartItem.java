@@ -9,7 +9,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cart_items_cart_product", columnNames = {"cart_id", "product_id"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,6 +38,13 @@ public class CartItem {
     @Column(nullable = false)
     private BigDecimal subtotal;
 
+    // Product.priceVersion that unitPrice was copied from
+    @Column(name = "price_version")
+    private Long priceVersion;
+
+    // Billable weight of one unit, captured with the price so cart totals can be adjusted exactly
+    private Double unitWeightKg;
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
@@ -0,0 +1,79 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "coupons")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Coupon {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String code;
+
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DiscountType discountType;
+
+    // Percentage (0-100) for PERCENTAGE, amount for FIXED, ignored for FREE_SHIPPING
+    @Column(nullable = false)
+    private BigDecimal discountValue = BigDecimal.ZERO;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Scope scope = Scope.CART;
+
+    // Product or category id for PRODUCT/CATEGORY scoped coupons
+    private Long targetId;
+
+    private BigDecimal minimumSubtotal;
+
+    // Null means unlimited
+    private Integer usageLimit;
+
+    @Column(nullable = false)
+    private Integer usageCount = 0;
+
+    private LocalDateTime startsAt;
+
+    private LocalDateTime expiresAt;
+
+    @Column(nullable = false)
+    private Boolean active = true;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public enum DiscountType {
+        PERCENTAGE, FIXED, FREE_SHIPPING
+    }
+
+    public enum Scope {
+        CART, CATEGORY, PRODUCT
+    }
+}
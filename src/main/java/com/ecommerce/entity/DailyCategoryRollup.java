@@ -0,0 +1,41 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Units and line revenue per category per day; maintained incrementally by AnalyticsRollupWriter
+@Entity
+@Table(name = "daily_category_rollups")
+@IdClass(DailyCategoryRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyCategoryRollup {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "units_sold", nullable = false)
+    private long unitsSold;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long categoryId;
+    }
+}
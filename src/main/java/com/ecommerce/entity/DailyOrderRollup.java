@@ -0,0 +1,30 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Orders, revenue and units per day; maintained incrementally by AnalyticsRollupWriter
+@Entity
+@Table(name = "daily_order_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyOrderRollup {
+
+    @Id
+    private LocalDate day;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "units_sold", nullable = false)
+    private long unitsSold;
+}
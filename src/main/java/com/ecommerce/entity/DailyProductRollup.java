@@ -0,0 +1,46 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Units and line revenue per product per day; maintained incrementally by AnalyticsRollupWriter
+@Entity
+@Table(name = "daily_product_rollups", indexes = {
+        @Index(name = "idx_daily_product_rollups_product_id", columnList = "product_id")
+})
+@IdClass(DailyProductRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyProductRollup {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "units_sold", nullable = false)
+    private long unitsSold;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long productId;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Orders and spend per user per day; maintained incrementally by AnalyticsRollupWriter
+@Entity
+@Table(name = "daily_user_rollups", indexes = {
+        @Index(name = "idx_daily_user_rollups_user_id", columnList = "user_id")
+})
+@IdClass(DailyUserRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyUserRollup {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long userId;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tombstone of a deleted user. The user row is gone, but tokens issued to it stay valid until they
+ * expire, so every instance keeps rejecting them from this table. Once every token issued before the
+ * deletion has expired the tombstone is purged.
+ */
+@Entity
+@Table(name = "deleted_users", indexes = @Index(name = "idx_deleted_users_deleted_at", columnList = "deleted_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletedUser {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Guest cart spilled out of the in-memory store. The lines are kept in the same packed form used in
+ * memory: 12 bytes per line (product id, quantity).
+ */
+@Entity
+@Table(name = "guest_carts", indexes = {
+        @Index(name = "idx_guest_carts_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GuestCart {
+
+    @Id
+    @Column(length = 64)
+    private String token;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
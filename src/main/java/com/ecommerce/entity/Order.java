@@ -34,6 +34,11 @@ public class Order {
     @Column(nullable = false)
     private BigDecimal totalAmount;
 
+    // Checkout adjustments applied on top of the item subtotal
+    private BigDecimal shippingAmount = BigDecimal.ZERO;
+
+    private BigDecimal discountAmount = BigDecimal.ZERO;
+
     @Enumerated(EnumType.STRING)
     private PaymentStatus paymentStatus = PaymentStatus.PENDING;
 
@@ -0,0 +1,47 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Denormalized read model for order history pages, kept in sync by OrderServiceImpl
+@Entity
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_user_ordered_at", columnList = "user_id, ordered_at DESC")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, unique = true)
+    private String orderNumber;
+
+    @Column(name = "ordered_at")
+    private LocalDateTime orderedAt;
+
+    @Enumerated(EnumType.STRING)
+    private Order.OrderStatus orderStatus;
+
+    @Enumerated(EnumType.STRING)
+    private Order.PaymentStatus paymentStatus;
+
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false)
+    private Integer itemCount = 0;
+
+    private String thumbnailUrl;
+}
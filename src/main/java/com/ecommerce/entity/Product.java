@@ -30,6 +30,10 @@ public class Product {
     @Column(nullable = false)
     private BigDecimal price;
 
+    // Bumped whenever price or shipping weight changes so carts can spot stale lines
+    @Column(name = "price_version", nullable = false)
+    private Long priceVersion = 0L;
+
     private BigDecimal discountPrice;
 
     // stockQuantity will be computed from Inventory entries
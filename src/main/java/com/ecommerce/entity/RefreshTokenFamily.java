@@ -0,0 +1,39 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One chain of rotated refresh tokens, started at login. Only the id of the newest token in the chain
+ * is accepted; presenting any older one revokes the whole family.
+ */
+@Entity
+@Table(name = "refresh_token_families", indexes = {
+        @Index(name = "idx_refresh_token_families_user_id", columnList = "user_id"),
+        @Index(name = "idx_refresh_token_families_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenFamily {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "current_token_id", nullable = false, length = 36)
+    private String currentTokenId;
+
+    @Column(nullable = false)
+    private boolean revoked;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
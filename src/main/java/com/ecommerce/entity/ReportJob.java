@@ -0,0 +1,92 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An analytics report run in the background. The result is stored separately in {@link ReportResult}
+ * so polling a job never loads it.
+ */
+@Entity
+@Table(name = "report_jobs", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_report_jobs_active_key", columnNames = "active_key")
+}, indexes = {
+        @Index(name = "idx_report_jobs_request_key", columnList = "request_key, status"),
+        @Index(name = "idx_report_jobs_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private Type type;
+
+    // Canonical JSON of the request; identical requests share a key while one is in flight
+    @Column(nullable = false, columnDefinition = "text")
+    private String parameters;
+
+    @Column(name = "request_key", nullable = false, length = 64)
+    private String requestKey;
+
+    // Equal to requestKey while queued or running and null once finished, so the unique constraint
+    // allows a single in-flight job per request across all instances
+    @Column(name = "active_key", length = 64)
+    private String activeKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.QUEUED;
+
+    @Column(name = "requested_by")
+    private Long requestedBy;
+
+    @Column(name = "row_count")
+    private Integer rowCount;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Touched periodically by the instance running the job; a job whose heartbeat stops is failed as stale
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        this.heartbeatAt = this.createdAt;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public enum Type {
+        ORDER_STATS, MONTHLY_ORDER_STATS, TOP_CUSTOMERS, TOP_SELLING_PRODUCTS, CATEGORY_REVENUE,
+        PRODUCT_STOCK_SUMMARY, WAREHOUSE_VALUE_SUMMARY, INVENTORY_VALUE_BY_CATEGORY, STOCK_SHORTAGE_RISK,
+        REORDER_SUGGESTIONS, MONTHLY_ACTIVE_USERS, DAILY_ACTIVE_USERS, ACTIVE_USERS_IN_WINDOW, INACTIVE_CUSTOMERS,
+        USER_SEGMENTS, ORDER_ITEM_AGGREGATE
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Serialized output of a completed {@link ReportJob}, served as-is on download.
+ */
+@Entity
+@Table(name = "report_results")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportResult {
+
+    @Id
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "shipping_rates")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShippingRate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Zone zone;
+
+    // Upper bound (inclusive) of the billable weight band, in kilograms
+    @Column(nullable = false)
+    private Double maxWeightKg;
+
+    @Column(nullable = false)
+    private BigDecimal price;
+
+    public enum Zone {
+        LOCAL, DOMESTIC, INTERNATIONAL
+    }
+}
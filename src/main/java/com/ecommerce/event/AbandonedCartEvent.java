@@ -0,0 +1,10 @@
+package com.ecommerce.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by the abandoned-cart sweeper for each cart it is about to empty, when
+ * {@code application.cart.abandoned.publish-events} is on.
+ */
+public record AbandonedCartEvent(Long cartId, Long userId, long itemCount, LocalDateTime lastActivity) {
+}
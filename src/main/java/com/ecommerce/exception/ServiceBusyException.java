@@ -0,0 +1,17 @@
+package com.ecommerce.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when work is shed because a bounded resource is saturated; mapped to 503 with a Retry-After hint.
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,157 @@
+package com.ecommerce.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage timers and counters for the checkout path. Timers publish percentile histograms so
+ * p99 can be aggregated across instances per stage; this is the only place histograms are configured.
+ * Stage timers are tagged with the outcome of the operation, so failed and slow stages show up too.
+ */
+@Component
+public class CheckoutMetrics {
+
+    public static final String CHECKOUT = "checkout";
+    public static final String CREATE_ORDER = "create_order";
+
+    private final MeterRegistry meterRegistry;
+    private final SqlStatementCounter sqlStatementCounter;
+
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> sqlSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final DistributionSummary cartLines;
+    private final DistributionSummary cartUnits;
+    private final Counter reservationConflicts;
+
+    public CheckoutMetrics(MeterRegistry meterRegistry, SqlStatementCounter sqlStatementCounter) {
+        this.meterRegistry = meterRegistry;
+        this.sqlStatementCounter = sqlStatementCounter;
+        this.cartLines = DistributionSummary.builder("checkout.cart.lines")
+                .description("Distinct products per checked-out cart")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.cartUnits = DistributionSummary.builder("checkout.cart.units")
+                .description("Total units per checked-out cart")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.reservationConflicts = Counter.builder("checkout.reservation.conflicts")
+                .description("Orders rejected because inventory could not be reserved")
+                .register(meterRegistry);
+    }
+
+    public long startStage() {
+        return System.nanoTime();
+    }
+
+    public long sqlMark() {
+        return sqlStatementCounter.current();
+    }
+
+    /**
+     * Start timing the stages of one run of {@code operation}
+     */
+    public StageClock startClock(String operation) {
+        return new StageClock(operation);
+    }
+
+    /**
+     * Record the time since {@code startNanos} against the given operation and stage
+     */
+    public void recordStage(String operation, String stage, long startNanos, boolean success) {
+        recordStageNanos(operation, stage, System.nanoTime() - startNanos, success);
+    }
+
+    private void recordStageNanos(String operation, String stage, long nanos, boolean success) {
+        String outcome = outcomeOf(success);
+        stageTimers.computeIfAbsent(operation + ':' + stage + ':' + outcome, key -> Timer.builder("checkout.stage.duration")
+                        .description("Time spent in each stage of the checkout path")
+                        .tag("operation", operation)
+                        .tag("stage", stage)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record the number of SQL statements issued since {@code sqlMark}
+     */
+    public void recordSqlStatements(String operation, long sqlMark) {
+        sqlSummaries.computeIfAbsent(operation, key -> DistributionSummary.builder("checkout.sql.statements")
+                        .description("SQL statements issued per operation")
+                        .tag("operation", operation)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(sqlStatementCounter.current() - sqlMark);
+    }
+
+    public void recordCartSize(int lines, int units) {
+        cartLines.record(lines);
+        cartUnits.record(units);
+    }
+
+    public void recordReservationConflict() {
+        reservationConflicts.increment();
+    }
+
+    public void recordOutcome(String operation, boolean success) {
+        String outcome = outcomeOf(success);
+        outcomes.computeIfAbsent(operation + ':' + outcome, key -> Counter.builder("checkout.outcomes")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private static String outcomeOf(boolean success) {
+        return success ? "success" : "failure";
+    }
+
+    /**
+     * Stage durations of a single run, accumulated per stage and recorded together once the outcome is
+     * known. Starting a stage ends the one in progress. Not thread-safe; each run uses its own clock.
+     */
+    public final class StageClock {
+
+        private final String operation;
+        private final Map<String, Long> totals = new LinkedHashMap<>();
+        private String stage;
+        private long stageStart;
+
+        private StageClock(String operation) {
+            this.operation = operation;
+        }
+
+        public void start(String stage) {
+            stop();
+            this.stage = stage;
+            this.stageStart = System.nanoTime();
+        }
+
+        public void stop() {
+            if (stage != null) {
+                totals.merge(stage, System.nanoTime() - stageStart, Long::sum);
+                stage = null;
+            }
+        }
+
+        /**
+         * End the stage in progress, which is the failing one when {@code success} is false, and record
+         * every stage reached
+         */
+        public void finish(boolean success) {
+            stop();
+            totals.forEach((name, nanos) -> recordStageNanos(operation, name, nanos, success));
+            totals.clear();
+        }
+    }
+}
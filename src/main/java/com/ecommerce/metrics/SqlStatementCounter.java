@@ -0,0 +1,24 @@
+package com.ecommerce.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so a caller can
+ * measure how many statements a unit of work issued by sampling before and after it.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public long current() {
+        return COUNT.get()[0];
+    }
+}
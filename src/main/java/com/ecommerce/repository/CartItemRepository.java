@@ -1,15 +1,57 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.entity.CartItem;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCartId(Long cartId);
+    List<CartItem> findByCartIdIn(Collection<Long> cartIds);
     Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
     void deleteByCartId(Long cartId);
+    
+    // Quantity changes read and rewrite the line under this lock, so concurrent adds are not lost
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ci FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.product.id = :productId")
+    Optional<CartItem> findForUpdate(Long cartId, Long productId);
+    
+    // Creates an empty line to lock; a concurrent first add of the same product waits on the unique key instead of failing
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, subtotal, unit_weight_kg, " +
+           "created_at, updated_at) VALUES (:cartId, :productId, 0, 0, 0, 0, :now, :now) " +
+           "ON CONFLICT (cart_id, product_id) DO NOTHING",
+           nativeQuery = true)
+    int insertEmptyLine(Long cartId, Long productId, LocalDateTime now);
+    
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.cart.user.id = :userId")
+    List<CartItem> findWithProductByUserId(Long userId);
+    
+    // Re-checks idleness so a cart touched since it was selected is left alone
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id IN " +
+           "(SELECT c.id FROM Cart c WHERE c.id IN :cartIds AND c.updatedAt < :cutoff)")
+    int deleteIdleByCartIdIn(Collection<Long> cartIds, LocalDateTime cutoff);
+    
+    // Inserts a line, or overwrites the one already stored for the same product
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, subtotal, price_version, " +
+           "unit_weight_kg, created_at, updated_at) " +
+           "VALUES (:cartId, :productId, :quantity, :unitPrice, :subtotal, :priceVersion, :unitWeightKg, :now, :now) " +
+           "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity, " +
+           "unit_price = EXCLUDED.unit_price, subtotal = EXCLUDED.subtotal, price_version = EXCLUDED.price_version, " +
+           "unit_weight_kg = EXCLUDED.unit_weight_kg, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int upsertLine(Long cartId, Long productId, int quantity, BigDecimal unitPrice, BigDecimal subtotal,
+                   long priceVersion, double unitWeightKg, LocalDateTime now);
 }
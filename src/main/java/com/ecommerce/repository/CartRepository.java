@@ -1,12 +1,54 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.entity.Cart;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
+    
+    // Totals are adjusted in SQL so concurrent changes to one cart never lose an update; the context is
+    // cleared so a Cart loaded earlier in the transaction is re-read with the new totals
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Cart c SET c.itemCount = c.itemCount + :units, c.totalAmount = c.totalAmount + :amount, " +
+           "c.totalWeightKg = c.totalWeightKg + :weightKg, c.updatedAt = :now WHERE c.id = :cartId")
+    int addToTotals(Long cartId, int units, BigDecimal amount, double weightKg, LocalDateTime now);
+    
+    // Price refreshes are not user activity, so updatedAt is left alone
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Cart c SET c.totalAmount = c.totalAmount + :amount, c.totalWeightKg = c.totalWeightKg + :weightKg " +
+           "WHERE c.id = :cartId")
+    int adjustForRepricing(Long cartId, BigDecimal amount, double weightKg);
+    
+    @Modifying
+    @Query("UPDATE Cart c SET c.itemCount = :units, c.totalAmount = :amount, c.totalWeightKg = :weightKg, " +
+           "c.updatedAt = :now WHERE c.id = :cartId")
+    int setTotals(Long cartId, int units, BigDecimal amount, double weightKg, LocalDateTime now);
+    
+    // Locks the carts still idle, so a concurrent change waits for the sweep instead of racing it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.id IN :cartIds AND c.updatedAt < :cutoff")
+    List<Cart> lockIdle(Collection<Long> cartIds, LocalDateTime cutoff);
+    
+    @Modifying
+    @Query("UPDATE Cart c SET c.itemCount = 0, c.totalAmount = 0, c.totalWeightKg = 0 " +
+           "WHERE c.id IN :cartIds AND c.updatedAt < :cutoff")
+    int resetIdleTotals(Collection<Long> cartIds, LocalDateTime cutoff);
+    
+    // cart id, user id, item count and last activity of idle carts that still hold items, oldest first
+    @Query("SELECT c.id, c.user.id, COUNT(ci), c.updatedAt FROM Cart c JOIN c.cartItems ci " +
+           "WHERE c.updatedAt < :cutoff GROUP BY c.id, c.user.id, c.updatedAt ORDER BY c.updatedAt")
+    List<Object[]> findAbandoned(LocalDateTime cutoff, Pageable pageable);
 }
@@ -0,0 +1,24 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.Coupon;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CouponRepository extends JpaRepository<Coupon, Long> {
+    Optional<Coupon> findByCodeIgnoreCase(String code);
+    boolean existsByCodeIgnoreCase(String code);
+    List<Coupon> findByActiveTrue();
+
+    // Conditional increment: returns 0 when the usage limit has already been reached
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usageCount = c.usageCount + 1 " +
+           "WHERE c.id = :couponId AND c.active = true " +
+           "AND (c.usageLimit IS NULL OR c.usageCount < c.usageLimit)")
+    int incrementUsageIfAvailable(Long couponId);
+}
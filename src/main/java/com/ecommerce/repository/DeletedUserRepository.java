@@ -0,0 +1,21 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.DeletedUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DeletedUserRepository extends JpaRepository<DeletedUser, Long> {
+
+    @Query("SELECT d.userId FROM DeletedUser d WHERE d.deletedAt >= :cutoff")
+    List<Long> findUserIdsDeletedSince(LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM DeletedUser d WHERE d.deletedAt < :cutoff")
+    int deleteDeletedBefore(LocalDateTime cutoff);
+}
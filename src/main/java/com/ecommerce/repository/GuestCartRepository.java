@@ -0,0 +1,16 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.GuestCart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface GuestCartRepository extends JpaRepository<GuestCart, String> {
+    @Modifying
+    @Query("DELETE FROM GuestCart g WHERE g.expiresAt < :cutoff")
+    int deleteExpired(LocalDateTime cutoff);
+}
@@ -2,13 +2,20 @@ package com.ecommerce.repository;
 
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.Order.OrderStatus;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -16,4 +23,19 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUserId(Long userId, Pageable pageable);
     List<Order> findByOrderedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
     List<Order> findByOrderStatus(OrderStatus orderStatus);
+
+    // Forward-only cursors for exports; callers must consume them inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.orderedAt BETWEEN :startDate AND :endDate ORDER BY o.orderedAt")
+    Stream<Order> streamByOrderedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.orderStatus = :orderStatus ORDER BY o.orderedAt")
+    Stream<Order> streamByOrderStatus(OrderStatus orderStatus);
 }
@@ -0,0 +1,36 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, Long> {
+    Page<OrderSummary> findByUserId(Long userId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OrderSummary s SET s.orderStatus = :orderStatus WHERE s.orderId = :orderId")
+    int updateOrderStatus(Long orderId, Order.OrderStatus orderStatus);
+
+    @Modifying
+    @Query("UPDATE OrderSummary s SET s.paymentStatus = :paymentStatus WHERE s.orderId = :orderId")
+    int updatePaymentStatus(Long orderId, Order.PaymentStatus paymentStatus);
+
+    // Fills in summaries for orders written outside OrderServiceImpl (e.g. seed data)
+    @Modifying
+    @Query(value = "INSERT INTO order_summary (order_id, user_id, order_number, ordered_at, order_status, " +
+           "payment_status, total_amount, item_count, thumbnail_url) " +
+           "SELECT o.id, o.user_id, o.order_number, o.ordered_at, o.order_status, o.payment_status, o.total_amount, " +
+           "COALESCE((SELECT SUM(oi.quantity) FROM order_items oi WHERE oi.order_id = o.id), 0), " +
+           "(SELECT p.image_url FROM order_items oi JOIN products p ON oi.product_id = p.id " +
+           " WHERE oi.order_id = o.id ORDER BY oi.id LIMIT 1) " +
+           "FROM orders o " +
+           "WHERE NOT EXISTS (SELECT 1 FROM order_summary s WHERE s.order_id = o.id)",
+           nativeQuery = true)
+    int backfillMissing();
+}
@@ -23,4 +23,9 @@ public interface ProductRepository extends JpaRepository<Product, Long>, CustomP
     
     @Query("SELECT p FROM Product p JOIN p.reviews r GROUP BY p ORDER BY AVG(r.rating) DESC")
     Page<Product> findByHighestRating(Pageable pageable);
+    
+    // id, price, priceVersion and the weight/dimension columns for every product; feeds the in-memory price table
+    @Query("SELECT p.id, p.price, p.priceVersion, p.weight, p.weightUnit, p.width, p.height, p.depth, p.dimensionUnit " +
+           "FROM Product p")
+    List<Object[]> findAllPriceVersions();
 }
@@ -0,0 +1,43 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.RefreshTokenFamily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RefreshTokenFamilyRepository extends JpaRepository<RefreshTokenFamily, String> {
+
+    /**
+     * Move a family on to its next token, but only if {@code presentedTokenId} is still its newest one.
+     * Returns 0 when the presented token was already rotated, the family is revoked or has expired.
+     */
+    @Modifying
+    @Query("UPDATE RefreshTokenFamily f SET f.currentTokenId = :nextTokenId, f.expiresAt = :expiresAt " +
+           "WHERE f.id = :familyId AND f.currentTokenId = :presentedTokenId AND f.revoked = false AND f.expiresAt > :now")
+    int rotate(@Param("familyId") String familyId,
+               @Param("presentedTokenId") String presentedTokenId,
+               @Param("nextTokenId") String nextTokenId,
+               @Param("expiresAt") LocalDateTime expiresAt,
+               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshTokenFamily f SET f.revoked = true WHERE f.id = :familyId")
+    int revoke(@Param("familyId") String familyId);
+
+    @Modifying
+    @Query("UPDATE RefreshTokenFamily f SET f.revoked = true WHERE f.userId = :userId AND f.revoked = false")
+    int revokeAllForUser(@Param("userId") Long userId);
+
+    @Query("SELECT f.id FROM RefreshTokenFamily f WHERE f.revoked = true AND f.expiresAt > :now")
+    List<String> findRevokedFamilyIds(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RefreshTokenFamily f WHERE f.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    Optional<ReportJob> findByActiveKey(String activeKey);
+
+    Optional<ReportJob> findFirstByRequestKeyOrderByIdDesc(String requestKey);
+
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = com.ecommerce.entity.ReportJob.Status.RUNNING, j.startedAt = :now, j.heartbeatAt = :now " +
+           "WHERE j.id = :jobId AND j.status = com.ecommerce.entity.ReportJob.Status.QUEUED")
+    int markRunning(@Param("jobId") Long jobId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = com.ecommerce.entity.ReportJob.Status.COMPLETED, " +
+           "j.rowCount = :rowCount, j.completedAt = :now, j.activeKey = NULL " +
+           "WHERE j.id = :jobId AND j.status = com.ecommerce.entity.ReportJob.Status.RUNNING")
+    int markCompleted(@Param("jobId") Long jobId, @Param("rowCount") Integer rowCount, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = com.ecommerce.entity.ReportJob.Status.FAILED, " +
+           "j.errorMessage = :errorMessage, j.completedAt = :now, j.activeKey = NULL " +
+           "WHERE j.id = :jobId AND j.status IN (com.ecommerce.entity.ReportJob.Status.QUEUED, com.ecommerce.entity.ReportJob.Status.RUNNING)")
+    int markFailed(@Param("jobId") Long jobId, @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.heartbeatAt = :now WHERE j.id IN :jobIds " +
+           "AND j.status IN (com.ecommerce.entity.ReportJob.Status.QUEUED, com.ecommerce.entity.ReportJob.Status.RUNNING)")
+    int heartbeat(@Param("jobIds") Collection<Long> jobIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Fail jobs left queued or running by an instance that stopped before finishing them, detected by
+     * their heartbeat no longer advancing
+     */
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = com.ecommerce.entity.ReportJob.Status.FAILED, " +
+           "j.errorMessage = :errorMessage, j.completedAt = :now, j.activeKey = NULL " +
+           "WHERE j.status IN (com.ecommerce.entity.ReportJob.Status.QUEUED, com.ecommerce.entity.ReportJob.Status.RUNNING) " +
+           "AND j.heartbeatAt < :cutoff")
+    int failStale(@Param("cutoff") LocalDateTime cutoff, @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+
+    @Query("SELECT j.id FROM ReportJob j WHERE j.completedAt < :cutoff")
+    List<Long> findIdsCompletedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,12 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.ShippingRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ShippingRateRepository extends JpaRepository<ShippingRate, Long> {
+    List<ShippingRate> findAllByOrderByZoneAscMaxWeightKgAsc();
+}
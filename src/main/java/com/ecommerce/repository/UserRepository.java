@@ -2,12 +2,23 @@ package com.ecommerce.repository;
 
 import com.ecommerce.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Boolean existsByEmail(String email);
+
+    @Query("SELECT u.id FROM User u WHERE u.active = false")
+    List<Long> findInactiveUserIds();
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.updatedAt = CURRENT_TIMESTAMP WHERE u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
 }
@@ -0,0 +1,38 @@
+package com.ecommerce.repository.stats;
+
+import com.ecommerce.entity.ActivitySketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface ActivitySketchRepository extends JpaRepository<ActivitySketch, ActivitySketch.Key> {
+
+    List<ActivitySketch> findByMetricAndDayBetween(ActivitySketch.Metric metric, LocalDate startDay, LocalDate endDay);
+
+    // Flushes from several instances merge into the same row, so it is read and rewritten under a lock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ActivitySketch s WHERE s.day = :day AND s.metric = :metric")
+    Optional<ActivitySketch> findForUpdate(LocalDate day, ActivitySketch.Metric metric);
+
+    // Backfill sources: one (day, user_id) row per user active that day
+
+    @Query(value = "SELECT DISTINCT CAST(o.ordered_at AS date), o.user_id FROM orders o", nativeQuery = true)
+    Stream<Object[]> streamBuyerDays();
+
+    @Query(value = "SELECT DISTINCT CAST(r.created_at AS date), r.user_id FROM reviews r WHERE r.created_at IS NOT NULL",
+           nativeQuery = true)
+    Stream<Object[]> streamReviewerDays();
+
+    // Only the latest change of each cart is recorded, so history before it cannot be recovered
+    @Query(value = "SELECT CAST(c.updated_at AS date), c.user_id FROM carts c WHERE c.updated_at IS NOT NULL",
+           nativeQuery = true)
+    Stream<Object[]> streamCartUserDays();
+}
@@ -0,0 +1,43 @@
+package com.ecommerce.repository.stats;
+
+import com.ecommerce.entity.DailyCategoryRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyCategoryRollupRepository extends JpaRepository<DailyCategoryRollup, DailyCategoryRollup.Key> {
+
+    @Query("SELECT c.name, SUM(r.revenue) FROM DailyCategoryRollup r, Category c " +
+           "WHERE c.id = r.categoryId AND r.day BETWEEN :startDay AND :endDay " +
+           "GROUP BY c.name ORDER BY SUM(r.revenue) DESC")
+    List<Object[]> getCategoryRevenueInPeriod(LocalDate startDay, LocalDate endDay);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_category_rollups (day, category_id, units_sold, revenue) " +
+           "VALUES (:day, :categoryId, :unitsSold, :revenue) " +
+           "ON CONFLICT (day, category_id) DO UPDATE SET " +
+           "units_sold = daily_category_rollups.units_sold + EXCLUDED.units_sold, " +
+           "revenue = daily_category_rollups.revenue + EXCLUDED.revenue",
+           nativeQuery = true)
+    int addDelta(LocalDate day, Long categoryId, long unitsSold, BigDecimal revenue);
+
+    @Modifying
+    @Query("DELETE FROM DailyCategoryRollup r WHERE r.day BETWEEN :startDay AND :endDay")
+    int deleteByDayRange(LocalDate startDay, LocalDate endDay);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_category_rollups (day, category_id, units_sold, revenue) " +
+           "SELECT CAST(o.ordered_at AS date), p.category_id, SUM(oi.quantity), SUM(oi.subtotal) " +
+           "FROM order_items oi JOIN orders o ON oi.order_id = o.id JOIN products p ON oi.product_id = p.id " +
+           "WHERE o.ordered_at >= :from AND o.ordered_at < :to " +
+           "GROUP BY CAST(o.ordered_at AS date), p.category_id",
+           nativeQuery = true)
+    int rebuild(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.repository.stats;
+
+import com.ecommerce.entity.DailyOrderRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyOrderRollupRepository extends JpaRepository<DailyOrderRollup, LocalDate> {
+
+    List<DailyOrderRollup> findByDayBetweenOrderByDay(LocalDate startDay, LocalDate endDay);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_rollups (day, order_count, revenue, units_sold) " +
+           "VALUES (:day, :orderCount, :revenue, :unitsSold) " +
+           "ON CONFLICT (day) DO UPDATE SET " +
+           "order_count = daily_order_rollups.order_count + EXCLUDED.order_count, " +
+           "revenue = daily_order_rollups.revenue + EXCLUDED.revenue, " +
+           "units_sold = daily_order_rollups.units_sold + EXCLUDED.units_sold",
+           nativeQuery = true)
+    int addDelta(LocalDate day, long orderCount, BigDecimal revenue, long unitsSold);
+
+    @Modifying
+    @Query("DELETE FROM DailyOrderRollup r WHERE r.day BETWEEN :startDay AND :endDay")
+    int deleteByDayRange(LocalDate startDay, LocalDate endDay);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_rollups (day, order_count, revenue, units_sold) " +
+           "SELECT t.day, COUNT(*), SUM(t.total_amount), SUM(t.units) FROM (" +
+           "  SELECT CAST(o.ordered_at AS date) AS day, o.total_amount, " +
+           "  (SELECT COALESCE(SUM(oi.quantity), 0) FROM order_items oi WHERE oi.order_id = o.id) AS units " +
+           "  FROM orders o WHERE o.ordered_at >= :from AND o.ordered_at < :to" +
+           ") t GROUP BY t.day",
+           nativeQuery = true)
+    int rebuild(LocalDateTime from, LocalDateTime to);
+}
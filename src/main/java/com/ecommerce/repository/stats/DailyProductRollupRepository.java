@@ -0,0 +1,49 @@
+package com.ecommerce.repository.stats;
+
+import com.ecommerce.entity.DailyProductRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyProductRollupRepository extends JpaRepository<DailyProductRollup, DailyProductRollup.Key> {
+
+    @Query("SELECT r.productId, p.name, SUM(r.unitsSold) FROM DailyProductRollup r, Product p " +
+           "WHERE p.id = r.productId AND r.day BETWEEN :startDay AND :endDay " +
+           "GROUP BY r.productId, p.name ORDER BY SUM(r.unitsSold) DESC")
+    List<Object[]> findTopSellingProducts(LocalDate startDay, LocalDate endDay, Pageable pageable);
+
+    @Query("SELECT r.productId, r.day, r.unitsSold FROM DailyProductRollup r " +
+           "WHERE r.day BETWEEN :startDay AND :endDay AND r.unitsSold > 0")
+    List<Object[]> findDailyUnits(LocalDate startDay, LocalDate endDay);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_product_rollups (day, product_id, order_count, units_sold, revenue) " +
+           "VALUES (:day, :productId, :orderCount, :unitsSold, :revenue) " +
+           "ON CONFLICT (day, product_id) DO UPDATE SET " +
+           "order_count = daily_product_rollups.order_count + EXCLUDED.order_count, " +
+           "units_sold = daily_product_rollups.units_sold + EXCLUDED.units_sold, " +
+           "revenue = daily_product_rollups.revenue + EXCLUDED.revenue",
+           nativeQuery = true)
+    int addDelta(LocalDate day, Long productId, long orderCount, long unitsSold, BigDecimal revenue);
+
+    @Modifying
+    @Query("DELETE FROM DailyProductRollup r WHERE r.day BETWEEN :startDay AND :endDay")
+    int deleteByDayRange(LocalDate startDay, LocalDate endDay);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_product_rollups (day, product_id, order_count, units_sold, revenue) " +
+           "SELECT CAST(o.ordered_at AS date), oi.product_id, COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.subtotal) " +
+           "FROM order_items oi JOIN orders o ON oi.order_id = o.id " +
+           "WHERE o.ordered_at >= :from AND o.ordered_at < :to " +
+           "GROUP BY CAST(o.ordered_at AS date), oi.product_id",
+           nativeQuery = true)
+    int rebuild(LocalDateTime from, LocalDateTime to);
+}
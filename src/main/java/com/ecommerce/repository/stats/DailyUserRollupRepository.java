@@ -0,0 +1,42 @@
+package com.ecommerce.repository.stats;
+
+import com.ecommerce.entity.DailyUserRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyUserRollupRepository extends JpaRepository<DailyUserRollup, DailyUserRollup.Key> {
+
+    @Query("SELECT r.userId, u.email, SUM(r.orderCount), SUM(r.revenue) FROM DailyUserRollup r, User u " +
+           "WHERE u.id = r.userId GROUP BY r.userId, u.email ORDER BY SUM(r.revenue) DESC")
+    List<Object[]> findTopCustomersByRevenue(Pageable pageable);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_user_rollups (day, user_id, order_count, revenue) " +
+           "VALUES (:day, :userId, :orderCount, :revenue) " +
+           "ON CONFLICT (day, user_id) DO UPDATE SET " +
+           "order_count = daily_user_rollups.order_count + EXCLUDED.order_count, " +
+           "revenue = daily_user_rollups.revenue + EXCLUDED.revenue",
+           nativeQuery = true)
+    int addDelta(LocalDate day, Long userId, long orderCount, BigDecimal revenue);
+
+    @Modifying
+    @Query("DELETE FROM DailyUserRollup r WHERE r.day BETWEEN :startDay AND :endDay")
+    int deleteByDayRange(LocalDate startDay, LocalDate endDay);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_user_rollups (day, user_id, order_count, revenue) " +
+           "SELECT CAST(o.ordered_at AS date), o.user_id, COUNT(*), SUM(o.total_amount) " +
+           "FROM orders o WHERE o.ordered_at >= :from AND o.ordered_at < :to " +
+           "GROUP BY CAST(o.ordered_at AS date), o.user_id",
+           nativeQuery = true)
+    int rebuild(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,33 @@
+package com.ecommerce.repository.stats;
+
+import com.ecommerce.entity.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Seed and lookup queries for the in-memory leaderboards. They read the daily rollups, so the boards count
+// the same orders as the rollup queries they stand in for, including those written by other instances.
+@Repository
+public interface LeaderboardRepository extends JpaRepository<Order, Long> {
+
+    @Query(value = "SELECT r.user_id, SUM(r.revenue), SUM(r.order_count) FROM daily_user_rollups r " +
+           "GROUP BY r.user_id",
+           nativeQuery = true)
+    Stream<Object[]> streamCustomerTotals();
+
+    @Query(value = "SELECT r.day, r.product_id, r.units_sold, r.order_count FROM daily_product_rollups r " +
+           "WHERE r.day >= :since AND r.units_sold > 0",
+           nativeQuery = true)
+    Stream<Object[]> streamProductDailyUnits(LocalDate since);
+
+    @Query(value = "SELECT r.product_id, SUM(r.units_sold), SUM(r.order_count) FROM daily_product_rollups r " +
+           "WHERE r.product_id IN (:productIds) AND r.day BETWEEN :startDay AND :endDay " +
+           "GROUP BY r.product_id",
+           nativeQuery = true)
+    List<Object[]> sumProductUnits(Collection<Long> productIds, LocalDate startDay, LocalDate endDay);
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.repository.stats;
+
+import com.ecommerce.entity.OrderItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderItemStatsRepository extends JpaRepository<OrderItem, Long> {
+
+    // Keyset-paged in id order so the column store can resume after the last item it loaded
+    @Query("SELECT oi.id, o.id, o.orderedAt, p.id, c.name, p.brand, o.user.id, o.orderStatus, a.country, " +
+           "oi.quantity, oi.subtotal " +
+           "FROM OrderItem oi JOIN oi.order o JOIN oi.product p JOIN p.category c LEFT JOIN o.shippingAddress a " +
+           "WHERE oi.id > :afterId ORDER BY oi.id")
+    List<Object[]> findFactsAfter(Long afterId, Pageable pageable);
+}
@@ -0,0 +1,169 @@
+package com.ecommerce.security.crypto;
+
+import com.ecommerce.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt encoder that runs every hash on a small dedicated pool instead of the request thread, so a
+ * burst of logins cannot take every CPU away from the rest of the API. When the pool's queue is full
+ * the request is shed with a {@link ServiceBusyException} rather than queued indefinitely.
+ * <p>
+ * The work factor is calibrated once at startup to the configured target latency. Stored hashes with
+ * a lower cost report {@link #upgradeEncoding} so DaoAuthenticationProvider rehashes them on the next
+ * successful login.
+ */
+@Component
+@Slf4j
+public class OffloadedPasswordEncoder implements PasswordEncoder {
+
+    private static final int CALIBRATION_STRENGTH = 10;
+    private static final String CALIBRATION_INPUT = "calibration-password";
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejected;
+
+    public OffloadedPasswordEncoder(MeterRegistry meterRegistry,
+                                    @Value("${application.security.password.target-hash-ms:250}") long targetHashMillis,
+                                    @Value("${application.security.password.min-strength:10}") int minStrength,
+                                    @Value("${application.security.password.max-strength:14}") int maxStrength,
+                                    @Value("${application.security.password.threads:0}") int threads,
+                                    @Value("${application.security.password.queue-capacity:64}") int queueCapacity) {
+        this.strength = calibrate(targetHashMillis, minStrength, maxStrength);
+        this.delegate = new BCryptPasswordEncoder(strength);
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("auth.password.hash.duration")
+                .description("Time spent computing a password hash")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hash.duration")
+                .description("Time spent computing a password hash")
+                .tag("operation", "matches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.password.queue.wait")
+                .description("Time a hashing task waited for a free hashing thread")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected")
+                .description("Hashing requests shed because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.queue.size", executor, e -> e.getQueue().size())
+                .description("Hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads currently busy")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.strength", () -> strength)
+                .description("BCrypt work factor used for new hashes")
+                .register(meterRegistry);
+
+        log.info("Password hashing uses BCrypt strength {} on {} threads (queue {})", strength, poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Helper method to run a hash on the hashing pool and wait for its result
+     */
+    private <T> T submit(Callable<T> task, Timer timer) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many authentication requests, please retry shortly", 1);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Helper method to pick the highest BCrypt strength whose hash stays within the target latency.
+     * Each strength step doubles the cost, so one timed strength is enough to extrapolate.
+     */
+    private static int calibrate(long targetHashMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(CALIBRATION_STRENGTH);
+        probe.encode(CALIBRATION_INPUT);
+        int runs = 3;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            probe.encode(CALIBRATION_INPUT);
+        }
+        double millisPerHash = Math.max(0.1, (System.nanoTime() - start) / 1_000_000.0 / runs);
+
+        int steps = (int) Math.floor(Math.log(targetHashMillis / millisPerHash) / Math.log(2));
+        return Math.max(minStrength, Math.min(maxStrength, CALIBRATION_STRENGTH + steps));
+    }
+}
@@ -1,5 +1,7 @@
 package com.ecommerce.security.jwt;
 
+import com.ecommerce.security.principal.UserPrincipal;
+import com.ecommerce.security.service.RevokedUserRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,21 +9,21 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final RevokedUserRegistry revokedUserRegistry;
 
     @Override
     protected void doFilterInternal(
@@ -31,7 +33,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
         
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -39,23 +40,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
+        // One parse checks signature, expiry and token type and yields the subject; refresh tokens never verify here
+        Optional<VerifiedToken> verified = jwtService.verify(jwt);
         
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                );
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+        // Authorities come from the token itself; only the revocation set is consulted per request.
+        // Tokens issued before user ids were embedded are treated as unauthenticated.
+        if (verified.isPresent() && verified.get().subject() != null && verified.get().userId() != null
+                && !revokedUserRegistry.isRevoked(verified.get().userId())
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            VerifiedToken token = verified.get();
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    new UserPrincipal(token.userId(), token.subject(), roleOf(token)),
+                    null,
+                    token.roles().stream().map(SimpleGrantedAuthority::new).toList()
+            );
+            authToken.setDetails(
+                    new WebAuthenticationDetailsSource().buildDetails(request)
+            );
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
         filterChain.doFilter(request, response);
     }
+
+    private static String roleOf(VerifiedToken token) {
+        if (token.roles().isEmpty()) {
+            return null;
+        }
+        String authority = token.roles().get(0);
+        return authority.startsWith("ROLE_") ? authority.substring(5) : authority;
+    }
 }
@@ -1,23 +1,38 @@
 package com.ecommerce.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    public static final String ROLES_CLAIM = "roles";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String FAMILY_CLAIM = "fam";
+    public static final String TOKEN_TYPE_CLAIM = "token_type";
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
 
@@ -27,6 +42,75 @@ public class JwtService {
     @Value("${application.security.jwt.refresh-token.expiration}")
     private long refreshExpiration;
 
+    @Value("${application.security.jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    // Built once; both are immutable and thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+
+    // Tokens whose signature already checked out, keyed by the exact token string so a hit can never
+    // vouch for a different token. Hashing the token first would cost about as much as the HMAC it saves.
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        signingKey = Keys.hmacShaKeyFor(keyBytes);
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    /**
+     * Verify an access token with a single parse. Returns empty for a bad signature, a malformed token,
+     * an expired one, or any token that is not an access token, so a refresh token never authenticates
+     * a request.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        Instant now = Instant.now();
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return Optional.of(cached);
+            }
+            verifiedTokens.remove(token);
+            return Optional.empty();
+        }
+
+        VerifiedToken verified;
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (!isAccessToken(claims)) {
+                return Optional.empty();
+            }
+            verified = new VerifiedToken(claims.getSubject(), userIdOf(claims), rolesOf(claims),
+                    claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        if (verifiedTokens.size() >= verifiedCacheSize) {
+            verifiedTokens.clear();
+        }
+        verifiedTokens.put(token, verified);
+        return Optional.of(verified);
+    }
+
+    /**
+     * Verify a refresh token and return all of its claims, bypassing the verified-token cache. Refresh
+     * tokens are presented rarely and need claims the cache does not keep. Returns empty for anything
+     * that is not a refresh token.
+     */
+    public Optional<Claims> parseRefreshClaims(String token) {
+        try {
+            Claims claims = extractAllClaims(token);
+            return isRefreshToken(claims) ? Optional.of(claims) : Optional.empty();
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -44,54 +128,82 @@ public class JwtService {
             Map<String, Object> extraClaims,
             UserDetails userDetails
     ) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.putIfAbsent(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+        claims.put(TOKEN_TYPE_CLAIM, ACCESS_TOKEN);
+        return buildToken(claims, userDetails, jwtExpiration);
     }
 
     public String generateRefreshToken(
             UserDetails userDetails
     ) {
-        return buildToken(new HashMap<>(), userDetails, refreshExpiration);
+        return generateRefreshToken(new HashMap<>(), userDetails);
     }
 
-    private String buildToken(
+    /**
+     * Refresh tokens carry no user id or roles, so nothing but the refresh endpoint can make use of them
+     */
+    public String generateRefreshToken(
             Map<String, Object> extraClaims,
+            UserDetails userDetails
+    ) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.remove(USER_ID_CLAIM);
+        claims.remove(ROLES_CLAIM);
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN);
+        return buildToken(claims, userDetails, refreshExpiration);
+    }
+
+    private String buildToken(
+            Map<String, Object> claims,
             UserDetails userDetails,
             long expiration
     ) {
         return Jwts
                 .builder()
-                .setClaims(extraClaims)
+                .setClaims(claims)
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return verify(token)
+                .map(verified -> verified.subject().equals(userDetails.getUsername()))
+                .orElse(false);
+    }
+
+    private Claims extractAllClaims(String token) {
+        return parser
+                .parseClaimsJws(token)
+                .getBody();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Tokens issued before the type claim existed count as access tokens unless they belong to a refresh family
+    private static boolean isAccessToken(Claims claims) {
+        Object type = claims.get(TOKEN_TYPE_CLAIM);
+        return type == null ? claims.get(FAMILY_CLAIM) == null : ACCESS_TOKEN.equals(type);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static boolean isRefreshToken(Claims claims) {
+        Object type = claims.get(TOKEN_TYPE_CLAIM);
+        return type == null ? claims.get(FAMILY_CLAIM) != null : REFRESH_TOKEN.equals(type);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static Long userIdOf(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        return userId instanceof Number number ? number.longValue() : null;
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static List<String> rolesOf(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (roles instanceof List<?> list) {
+            return list.stream().map(String::valueOf).toList();
+        }
+        return List.of();
     }
 }
@@ -0,0 +1,14 @@
+package com.ecommerce.security.jwt;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Everything the request path needs from a token whose signature and expiry have been checked.
+ */
+public record VerifiedToken(String subject, Long userId, List<String> roles, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
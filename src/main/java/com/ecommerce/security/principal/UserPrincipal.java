@@ -0,0 +1,26 @@
+package com.ecommerce.security.principal;
+
+import lombok.Value;
+
+import java.security.Principal;
+
+/**
+ * The authenticated user as carried in the security context, built from verified token claims so that
+ * handlers can identify the caller without querying the users table.
+ */
+@Value
+public class UserPrincipal implements Principal {
+
+    Long id;
+    String email;
+    String role;
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
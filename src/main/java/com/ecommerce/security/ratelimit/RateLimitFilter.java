@@ -0,0 +1,198 @@
+package com.ecommerce.security.ratelimit;
+
+import com.ecommerce.dto.response.ApiResponse;
+import com.ecommerce.security.jwt.JwtService;
+import com.ecommerce.security.jwt.VerifiedToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Token-bucket rate limiting for the routes listed under {@code application.rate-limit.policies}.
+ * Runs ahead of JwtAuthenticationFilter so rejected requests cost neither a token verification nor a
+ * password hash. Buckets live in a bounded map and are swept once they have refilled completely; while
+ * the map is full, new clients share one overflow bucket per policy and a sweep runs in the background.
+ * <p>
+ * Clients are keyed by {@link HttpServletRequest#getRemoteAddr()}. Behind a proxy that is the proxy's
+ * address unless {@code server.forward-headers-strategy} lets the container take it from the forwarded
+ * headers of trusted proxies; X-Forwarded-For is never read here, since any client can set it.
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties properties;
+    private final JwtService jwtService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // policy name -> bucket shared by every client that found the map full
+    private final Map<String, TokenBucket> overflowBuckets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+    private final Counter overflowed;
+
+    private final ExecutorService sweeper = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rate-limit-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean sweepQueued = new AtomicBoolean();
+
+    public RateLimitFilter(RateLimitProperties properties,
+                           JwtService jwtService,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jwtService = jwtService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+
+        this.overflowed = Counter.builder("http.rate_limit.overflow")
+                .description("Requests charged to a policy's shared overflow bucket because the bucket map was full")
+                .register(meterRegistry);
+        Gauge.builder("http.rate_limit.buckets", buckets, Map::size)
+                .description("Live rate-limit buckets")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled() || properties.getPolicies().isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long now = System.nanoTime();
+
+        for (RateLimitProperties.Policy policy : matchingPolicies(request.getMethod(), path)) {
+            String key = policy.getName() + ':' + clientKey(request, policy);
+            TokenBucket bucket = bucketFor(key, policy, now);
+            long waitNanos = bucket.tryConsume(now);
+            if (waitNanos > 0) {
+                reject(response, policy, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${application.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isIdle(now));
+        overflowBuckets.entrySet().removeIf(entry -> entry.getValue().isIdle(now));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private List<RateLimitProperties.Policy> matchingPolicies(String method, String path) {
+        return properties.getPolicies().stream()
+                .filter(policy -> policy.getMethod() == null || policy.getMethod().isBlank()
+                        || policy.getMethod().equalsIgnoreCase(method))
+                .filter(policy -> pathMatcher.match(policy.getPath(), path))
+                .toList();
+    }
+
+    /**
+     * Helper method to find or create the bucket for a key. When the map is full the request is charged
+     * to the policy's overflow bucket instead, so a flood of new addresses is limited as one client, and
+     * idle buckets are swept off the request thread.
+     */
+    private TokenBucket bucketFor(String key, RateLimitProperties.Policy policy, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxBuckets()) {
+            overflowed.increment();
+            requestSweep();
+            return overflowBuckets.computeIfAbsent(policy.getName(),
+                    name -> new TokenBucket(policy.getCapacity(), policy.getRefillPerMinute(), now));
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(policy.getCapacity(), policy.getRefillPerMinute(), now));
+    }
+
+    private void requestSweep() {
+        if (!sweepQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sweeper.execute(() -> {
+                try {
+                    evictIdleBuckets();
+                } finally {
+                    sweepQueued.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Shutting down; the scheduled sweep is the fallback
+            sweepQueued.set(false);
+        }
+    }
+
+    private String clientKey(HttpServletRequest request, RateLimitProperties.Policy policy) {
+        if (policy.getScope() == RateLimitProperties.Scope.USER) {
+            String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                // Served from the verified-token cache, which the JWT filter then hits as well; only access
+                // tokens verify, so a refresh token is limited by address like any anonymous caller
+                Long userId = jwtService.verify(authHeader.substring(7))
+                        .map(VerifiedToken::userId)
+                        .orElse(null);
+                if (userId != null) {
+                    return "u" + userId;
+                }
+            }
+        }
+        return "ip" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, RateLimitProperties.Policy policy, long waitNanos) throws IOException {
+        rejectedCounters.computeIfAbsent(policy.getName(), name -> Counter.builder("http.rate_limit.rejected")
+                        .description("Requests rejected by the rate limiter")
+                        .tag("policy", name)
+                        .register(meterRegistry))
+                .increment();
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                ApiResponse.error("Too many requests, please retry later", HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+}
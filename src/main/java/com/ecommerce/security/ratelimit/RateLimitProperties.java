@@ -0,0 +1,45 @@
+package com.ecommerce.security.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "application.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Upper bound on live buckets across all policies; beyond it new clients share one overflow bucket
+     * per policy until idle buckets are swept
+     */
+    private int maxBuckets = 100_000;
+
+    private List<Policy> policies = new ArrayList<>();
+
+    public enum Scope {
+        /** One bucket per client address */
+        IP,
+        /** One bucket per authenticated user, falling back to the client address for anonymous calls */
+        USER
+    }
+
+    @Data
+    public static class Policy {
+        private String name;
+        /** Ant-style request path pattern, e.g. /api/products/search/** */
+        private String path;
+        /** HTTP method to match; any method when empty */
+        private String method;
+        private Scope scope = Scope.IP;
+        /** Burst size: the most requests allowed back to back */
+        private int capacity;
+        /** Sustained rate the bucket refills at */
+        private double refillPerMinute;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. The state is an immutable snapshot swapped with compare-and-set, so
+ * concurrent requests for the same key never block each other.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    private record State(double tokens, long refilledAt) {
+    }
+
+    TokenBucket(int capacity, double refillPerMinute, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / 60_000_000_000.0;
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    /**
+     * Take one token; returns 0 if granted, otherwise the nanoseconds until one becomes available
+     */
+    long tryConsume(long now) {
+        while (true) {
+            State current = state.get();
+            double tokens = Math.min(capacity, current.tokens() + Math.max(0, now - current.refilledAt()) * tokensPerNano);
+            if (tokens < 1) {
+                return tokensPerNano > 0 ? (long) Math.ceil((1 - tokens) / tokensPerNano) : Long.MAX_VALUE;
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * True once the bucket would have refilled completely, i.e. dropping it changes nothing
+     */
+    boolean isIdle(long now) {
+        State current = state.get();
+        return current.tokens() + (now - current.refilledAt()) * tokensPerNano >= capacity;
+    }
+}
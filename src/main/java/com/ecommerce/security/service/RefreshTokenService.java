@@ -0,0 +1,148 @@
+package com.ecommerce.security.service;
+
+import com.ecommerce.entity.RefreshTokenFamily;
+import com.ecommerce.repository.RefreshTokenFamilyRepository;
+import com.ecommerce.security.jwt.JwtService;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Issues and rotates refresh tokens. Every refresh token carries its own id and the id of its family;
+ * a refresh swaps the family's current token id in a single conditional UPDATE, so presenting an
+ * already rotated token is detected as reuse and revokes the family.
+ * <p>
+ * Revoked family ids are mirrored in a Bloom filter rebuilt periodically from the table. A family the
+ * filter has never seen is rotated without reading its row; only filter hits are confirmed against
+ * the database.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private final RefreshTokenFamilyRepository familyRepository;
+    private final JwtService jwtService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final long refreshExpiration;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter revokedFamilies;
+
+    public RefreshTokenService(RefreshTokenFamilyRepository familyRepository,
+                               JwtService jwtService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${application.security.jwt.refresh-token.expiration}") long refreshExpiration,
+                               @Value("${application.security.jwt.refresh-token.expected-revocations:100000}") int expectedRevocations,
+                               @Value("${application.security.jwt.refresh-token.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.familyRepository = familyRepository;
+        this.jwtService = jwtService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshExpiration = refreshExpiration;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.revokedFamilies = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    /**
+     * Start a new token family for a fresh login and return its first refresh token
+     */
+    public String startFamily(Long userId, UserDetails userDetails) {
+        String familyId = UUID.randomUUID().toString();
+        String tokenId = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> familyRepository.save(
+                new RefreshTokenFamily(familyId, userId, tokenId, false, nextExpiry())));
+        return buildToken(familyId, tokenId, userDetails);
+    }
+
+    /**
+     * Rotate a verified refresh token and return its successor. Throws if the token has already been
+     * rotated, in which case the whole family is revoked.
+     */
+    public String rotate(Claims presented, UserDetails userDetails) {
+        String familyId = presented.get(JwtService.FAMILY_CLAIM, String.class);
+        String presentedTokenId = presented.getId();
+        if (familyId == null || presentedTokenId == null) {
+            throw new RuntimeException("Invalid or expired refresh token");
+        }
+
+        if (revokedFamilies.mightContain(familyId)) {
+            boolean revoked = familyRepository.findById(familyId)
+                    .map(RefreshTokenFamily::isRevoked)
+                    .orElse(true);
+            if (revoked) {
+                throw new RuntimeException("Refresh token has been revoked");
+            }
+        }
+
+        String nextTokenId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        Integer rotated = transactionTemplate.execute(status ->
+                familyRepository.rotate(familyId, presentedTokenId, nextTokenId, nextExpiry(), now));
+        if (rotated == null || rotated == 0) {
+            // Either an old token of this family was replayed or the family is gone; stop the whole chain
+            revokeFamily(familyId);
+            log.warn("Refresh token reuse detected, revoked token family {}", familyId);
+            throw new RuntimeException("Refresh token has been revoked");
+        }
+        return buildToken(familyId, nextTokenId, userDetails);
+    }
+
+    public void revokeFamily(String familyId) {
+        transactionTemplate.executeWithoutResult(status -> familyRepository.revoke(familyId));
+        revokedFamilies.add(familyId);
+    }
+
+    /**
+     * Revoke every live family of a user, e.g. when the account is deactivated. Joins the caller's
+     * transaction; the filter picks the families up on its next rebuild.
+     */
+    public void revokeAllForUser(Long userId) {
+        familyRepository.revokeAllForUser(userId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.security.jwt.refresh-token.filter-rebuild-ms:300000}",
+            fixedDelayString = "${application.security.jwt.refresh-token.filter-rebuild-ms:300000}")
+    public void rebuildFilter() {
+        List<String> revoked = transactionTemplate.execute(status ->
+                familyRepository.findRevokedFamilyIds(LocalDateTime.now()));
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), falsePositiveRate);
+        revoked.forEach(rebuilt::add);
+        revokedFamilies = rebuilt;
+        log.debug("Rebuilt revoked refresh token filter with {} families", revoked.size());
+    }
+
+    @Scheduled(cron = "${application.security.jwt.refresh-token.cleanup-cron:0 15 4 * * *}")
+    public void deleteExpiredFamilies() {
+        Integer deleted = transactionTemplate.execute(status -> familyRepository.deleteExpired(LocalDateTime.now()));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} expired refresh token families", deleted);
+        }
+    }
+
+    private String buildToken(String familyId, String tokenId, UserDetails userDetails) {
+        Map<String, Object> refreshClaims = new HashMap<>();
+        refreshClaims.put(JwtService.FAMILY_CLAIM, familyId);
+        refreshClaims.put(Claims.ID, tokenId);
+        return jwtService.generateRefreshToken(refreshClaims, userDetails);
+    }
+
+    private LocalDateTime nextExpiry() {
+        return LocalDateTime.now().plusNanos(refreshExpiration * 1_000_000L);
+    }
+}
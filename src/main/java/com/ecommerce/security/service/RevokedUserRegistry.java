@@ -0,0 +1,143 @@
+package com.ecommerce.security.service;
+
+import com.ecommerce.entity.DeletedUser;
+import com.ecommerce.repository.DeletedUserRepository;
+import com.ecommerce.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids of deactivated or deleted users whose access tokens must no longer be accepted. Tokens are
+ * authenticated from their claims alone, so this set is the only per-request check against account state.
+ * Kept in step by UserServiceImpl and reloaded periodically to pick up changes made by other instances.
+ * <p>
+ * A revocation applies before its transaction commits, so a reload whose query ran before the commit
+ * would lift it again; such revocations are held as pending and merged into every reload until one
+ * started after the commit.
+ * <p>
+ * Deletion tombstones only matter while a token issued before the deletion can still be valid, so
+ * those older than the longest token lifetime are neither loaded nor kept.
+ */
+@Component
+@Slf4j
+public class RevokedUserRegistry {
+
+    private static final long UNCOMMITTED = 0;
+
+    private final UserRepository userRepository;
+    private final DeletedUserRepository deletedUserRepository;
+
+    private volatile Set<Long> revoked = ConcurrentHashMap.newKeySet();
+
+    // userId -> sequence number of the commit, or UNCOMMITTED while the transaction is open
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong commits = new AtomicLong();
+
+    private final long tokenLifetimeMillis;
+
+    public RevokedUserRegistry(UserRepository userRepository,
+                               DeletedUserRepository deletedUserRepository,
+                               @Value("${application.security.jwt.expiration}") long accessExpiration,
+                               @Value("${application.security.jwt.refresh-token.expiration}") long refreshExpiration) {
+        this.userRepository = userRepository;
+        this.deletedUserRepository = deletedUserRepository;
+        this.tokenLifetimeMillis = Math.max(accessExpiration, refreshExpiration);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.security.revocation-refresh-ms:60000}",
+            fixedDelayString = "${application.security.revocation-refresh-ms:60000}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        long started = commits.get();
+        Set<Long> loaded = ConcurrentHashMap.newKeySet();
+        loaded.addAll(userRepository.findInactiveUserIds());
+        loaded.addAll(deletedUserRepository.findUserIdsDeletedSince(tombstoneCutoff()));
+        revoked = loaded;
+        // Merged after the swap, so a revocation made while the query ran lands in one set or the other
+        loaded.addAll(pending.keySet());
+        // Committed before the query started, so the query saw them
+        pending.values().removeIf(commit -> commit != UNCOMMITTED && commit <= started);
+        log.info("Loaded {} revoked users", loaded.size());
+    }
+
+    @Scheduled(cron = "${application.security.jwt.refresh-token.cleanup-cron:0 15 4 * * *}")
+    @Transactional
+    public void purgeExpiredTombstones() {
+        int purged = deletedUserRepository.deleteDeletedBefore(tombstoneCutoff());
+        if (purged > 0) {
+            log.info("Purged {} deleted-user tombstones past the token lifetime", purged);
+        }
+    }
+
+    public boolean isRevoked(Long userId) {
+        return revoked.contains(userId);
+    }
+
+    /**
+     * Reject the user's tokens immediately; if the surrounding transaction rolls back the next reload
+     * lifts it again
+     */
+    public void revoke(Long userId) {
+        pending.put(userId, UNCOMMITTED);
+        revoked.add(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.put(userId, commits.incrementAndGet());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    pending.put(userId, commits.incrementAndGet());
+                } else {
+                    pending.remove(userId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Revoke a deleted user's tokens and record the deletion in the surrounding transaction, since
+     * there is no user row left to reload it from
+     */
+    public void revokeDeleted(Long userId) {
+        deletedUserRepository.save(new DeletedUser(userId, LocalDateTime.now()));
+        revoke(userId);
+    }
+
+    private LocalDateTime tombstoneCutoff() {
+        return LocalDateTime.now().minusNanos(tokenLifetimeMillis * 1_000_000L);
+    }
+
+    /**
+     * Accept the user's tokens again once the surrounding transaction commits
+     */
+    public void restore(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.remove(userId);
+            revoked.remove(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.remove(userId);
+                revoked.remove(userId);
+            }
+        });
+    }
+}
@@ -6,23 +6,38 @@ import com.ecommerce.dto.auth.RegisterRequest;
 import com.ecommerce.entity.User;
 import com.ecommerce.repository.UserRepository;
 import com.ecommerce.security.jwt.JwtService;
+import com.ecommerce.security.service.RefreshTokenService;
+import com.ecommerce.security.service.RevokedUserRegistry;
+import com.ecommerce.service.interfaces.GuestCartService;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AuthService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final GuestCartService guestCartService;
+    private final RefreshTokenService refreshTokenService;
+    private final RevokedUserRegistry revokedUserRegistry;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
@@ -43,22 +58,14 @@ public class AuthService {
 
         // Save user
         User savedUser = userRepository.save(user);
+        
+        // Carry over anything added to the cart before signing up, once the new user is committed
+        afterCommit(() -> mergeGuestCart(request.getGuestCartToken(), savedUser.getId()));
 
         // Generate JWT tokens
-        var accessToken = jwtService.generateToken(
-                org.springframework.security.core.userdetails.User.builder()
-                        .username(savedUser.getEmail())
-                        .password(savedUser.getPassword())
-                        .authorities("ROLE_" + savedUser.getRole().name())
-                        .build()
-        );
-        var refreshToken = jwtService.generateRefreshToken(
-                org.springframework.security.core.userdetails.User.builder()
-                        .username(savedUser.getEmail())
-                        .password(savedUser.getPassword())
-                        .authorities("ROLE_" + savedUser.getRole().name())
-                        .build()
-        );
+        var userDetails = userDetailsOf(savedUser);
+        var accessToken = jwtService.generateToken(claimsOf(savedUser), userDetails);
+        var refreshToken = refreshTokenService.startFamily(savedUser.getId(), userDetails);
 
         return AuthResponse.builder()
                 .accessToken(accessToken)
@@ -86,22 +93,13 @@ public class AuthService {
         if (!user.isActive()) {
             throw new RuntimeException("Account is deactivated");
         }
+        
+        mergeGuestCart(request.getGuestCartToken(), user.getId());
 
         // Generate JWT tokens
-        var accessToken = jwtService.generateToken(
-                org.springframework.security.core.userdetails.User.builder()
-                        .username(user.getEmail())
-                        .password(user.getPassword())
-                        .authorities("ROLE_" + user.getRole().name())
-                        .build()
-        );
-        var refreshToken = jwtService.generateRefreshToken(
-                org.springframework.security.core.userdetails.User.builder()
-                        .username(user.getEmail())
-                        .password(user.getPassword())
-                        .authorities("ROLE_" + user.getRole().name())
-                        .build()
-        );
+        var userDetails = userDetailsOf(user);
+        var accessToken = jwtService.generateToken(claimsOf(user), userDetails);
+        var refreshToken = refreshTokenService.startFamily(user.getId(), userDetails);
 
         return AuthResponse.builder()
                 .accessToken(accessToken)
@@ -113,33 +111,71 @@ public class AuthService {
     }
 
     public AuthResponse refreshToken(String refreshToken) {
-        String userEmail = jwtService.extractUsername(refreshToken);
-        
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + userEmail));
+        Claims claims = jwtService.parseRefreshClaims(refreshToken)
+                .orElseThrow(() -> new RuntimeException("Invalid or expired refresh token"));
 
-        if (!user.isActive()) {
+        // Refresh tokens carry no user id or roles, so the new access token is built from the current user row
+        User user = userRepository.findByEmail(claims.getSubject())
+                .orElseThrow(() -> new RuntimeException("Invalid or expired refresh token"));
+        if (!user.isActive() || revokedUserRegistry.isRevoked(user.getId())) {
             throw new RuntimeException("Account is deactivated");
         }
-        
-        var userDetails = org.springframework.security.core.userdetails.User.builder()
+        UserDetails userDetails = userDetailsOf(user);
+
+        var rotatedRefreshToken = refreshTokenService.rotate(claims, userDetails);
+        var accessToken = jwtService.generateToken(claimsOf(user), userDetails);
+
+        return AuthResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(rotatedRefreshToken)
+                .userId(user.getId())
+                .email(user.getEmail())
+                .role(user.getRole().name())
+                .build();
+    }
+
+    private static UserDetails userDetailsOf(User user) {
+        return org.springframework.security.core.userdetails.User.builder()
                 .username(user.getEmail())
                 .password(user.getPassword())
                 .authorities("ROLE_" + user.getRole().name())
                 .build();
+    }
+
+    /**
+     * Helper method to build the claims the JWT filter authenticates from without loading the user
+     */
+    private static Map<String, Object> claimsOf(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtService.USER_ID_CLAIM, user.getId());
+        return claims;
+    }
+
+    /**
+     * Helper method to merge a guest cart into the user's cart; best effort, so a cart that cannot be
+     * merged never fails the login or registration
+     */
+    private void mergeGuestCart(String guestCartToken, Long userId) {
+        if (guestCartToken == null) {
+            return;
+        }
+        try {
+            guestCartService.mergeIntoUserCart(guestCartToken, userId);
+        } catch (RuntimeException e) {
+            log.warn("Could not merge guest cart into the cart of user {}: {}", userId, e.getMessage());
+        }
+    }
 
-        if (jwtService.isTokenValid(refreshToken, userDetails)) {
-            var accessToken = jwtService.generateToken(userDetails);
-            
-            return AuthResponse.builder()
-                    .accessToken(accessToken)
-                    .refreshToken(refreshToken) // Reuse the same refresh token
-                    .userId(user.getId())
-                    .email(user.getEmail())
-                    .role(user.getRole().name())
-                    .build();
-        } else {
-            throw new RuntimeException("Invalid or expired refresh token");
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,148 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.event.AbandonedCartEvent;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Empties carts that have been idle longer than {@code application.cart.abandoned.max-idle-days}.
+ * Carts are processed in chunks, each in its own short transaction, so the sweep never holds locks on
+ * a large part of cart_items. The cart rows themselves are kept since every user has exactly one.
+ */
+@Component
+@Slf4j
+class AbandonedCartSweeper {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final WriteBackCartStore writeBackCartStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int maxIdleDays;
+    private final int chunkSize;
+    private final boolean publishEvents;
+
+    private final Counter sweptCarts;
+    private final Counter sweptItems;
+    private final Timer sweepTimer;
+
+    AbandonedCartSweeper(CartRepository cartRepository,
+                         CartItemRepository cartItemRepository,
+                         WriteBackCartStore writeBackCartStore,
+                         ApplicationEventPublisher eventPublisher,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${application.cart.abandoned.enabled:true}") boolean enabled,
+                         @Value("${application.cart.abandoned.max-idle-days:30}") int maxIdleDays,
+                         @Value("${application.cart.abandoned.chunk-size:500}") int chunkSize,
+                         @Value("${application.cart.abandoned.publish-events:false}") boolean publishEvents) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.writeBackCartStore = writeBackCartStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxIdleDays = maxIdleDays;
+        this.chunkSize = chunkSize;
+        this.publishEvents = publishEvents;
+
+        this.sweptCarts = Counter.builder("cart.abandoned.swept.carts")
+                .description("Idle carts emptied by the abandoned-cart sweeper")
+                .register(meterRegistry);
+        this.sweptItems = Counter.builder("cart.abandoned.swept.items")
+                .description("Cart items deleted by the abandoned-cart sweeper")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("cart.abandoned.sweep.duration")
+                .description("Wall time of one abandoned-cart sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${application.cart.abandoned.sweep-cron:0 30 3 * * *}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        sweepTimer.record(() -> {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(maxIdleDays);
+            int carts = 0;
+            int items = 0;
+            while (true) {
+                int[] swept = sweepChunk(cutoff);
+                carts += swept[0];
+                items += swept[1];
+                // A short chunk means nothing older is left; a chunk that deleted nothing means
+                // everything selected was touched in the meantime
+                if (swept[0] < chunkSize || swept[1] == 0) {
+                    break;
+                }
+            }
+            if (carts > 0) {
+                log.info("Swept {} abandoned carts ({} items) idle since before {}", carts, items, cutoff);
+            }
+        });
+    }
+
+    /**
+     * Helper method to empty one chunk of the oldest idle carts; returns {carts selected, items deleted}
+     */
+    private int[] sweepChunk(LocalDateTime cutoff) {
+        int[] result = transactionTemplate.execute(status -> {
+            List<Object[]> rows = cartRepository.findAbandoned(cutoff, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                return new int[]{0, 0};
+            }
+
+            List<Long> cartIds = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                cartIds.add((Long) row[0]);
+            }
+
+            // Only carts still idle once locked are emptied, and only those are reported
+            Set<Long> idle = new HashSet<>();
+            for (Cart cart : cartRepository.lockIdle(cartIds, cutoff)) {
+                idle.add(cart.getId());
+            }
+            if (idle.isEmpty()) {
+                return new int[]{rows.size(), 0};
+            }
+            cartRepository.resetIdleTotals(idle, cutoff);
+            int deleted = cartItemRepository.deleteIdleByCartIdIn(idle, cutoff);
+            for (Object[] row : rows) {
+                if (!idle.contains((Long) row[0])) {
+                    continue;
+                }
+                writeBackCartStore.evictIfClean((Long) row[1]);
+                if (publishEvents) {
+                    // Delivered after commit by the listener, so a rolled-back chunk sends nothing
+                    eventPublisher.publishEvent(new AbandonedCartEvent(
+                            (Long) row[0], (Long) row[1], (Long) row[2], (LocalDateTime) row[3]));
+                }
+            }
+            return new int[]{rows.size(), deleted};
+        });
+
+        sweptCarts.increment(result[0]);
+        sweptItems.increment(result[1]);
+        return result;
+    }
+}
@@ -0,0 +1,194 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.ActivitySketch;
+import com.ecommerce.entity.ActivitySketch.Metric;
+import com.ecommerce.repository.stats.ActivitySketchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Per-day HyperLogLog sketches of the distinct buyers, reviewers and cart users. Write paths add the
+ * user to today's in-memory sketch once their transaction commits; changed sketches are merged into
+ * activity_sketches every few seconds. Counts for any set of days come from merging their sketches,
+ * so monthly and arbitrary-window figures never touch the raw tables and stay within about 1% error.
+ */
+@Component
+@Slf4j
+class ActivitySketchStore {
+
+    private final ActivitySketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<ActivitySketch.Key, HyperLogLog> live = new ConcurrentHashMap<>();
+    private final Set<ActivitySketch.Key> dirty = ConcurrentHashMap.newKeySet();
+
+    ActivitySketchStore(ActivitySketchRepository sketchRepository, PlatformTransactionManager transactionManager) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    void record(Metric metric, Long userId) {
+        if (userId == null) {
+            return;
+        }
+        ActivitySketch.Key key = new ActivitySketch.Key(LocalDate.now(), metric);
+        afterCommit(() -> live.compute(key, (k, sketch) -> {
+            HyperLogLog current = sketch != null ? sketch : new HyperLogLog();
+            // Most activity comes from users already counted today, which leaves nothing to flush
+            if (current.add(userId)) {
+                dirty.add(k);
+            }
+            return current;
+        }));
+    }
+
+    @Scheduled(fixedDelayString = "${application.analytics.sketches.flush-interval-ms:10000}")
+    public void flush() {
+        for (ActivitySketch.Key key : new ArrayList<>(dirty)) {
+            dirty.remove(key);
+            HyperLogLog sketch = live.get(key);
+            if (sketch == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> mergeInto(key.getDay(), key.getMetric(), sketch));
+            } catch (RuntimeException e) {
+                dirty.add(key);
+                log.warn("Failed to flush activity sketch {} {}, will retry", key.getMetric(), key.getDay(), e);
+            }
+        }
+
+        // Earlier days are complete once flushed; keep only today and yesterday for late commits
+        LocalDate oldest = LocalDate.now().minusDays(1);
+        for (ActivitySketch.Key key : new ArrayList<>(live.keySet())) {
+            if (key.getDay().isBefore(oldest)) {
+                live.computeIfPresent(key, (k, sketch) -> dirty.contains(k) ? sketch : null);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (sketchRepository.count() > 0) {
+            return;
+        }
+        backfill(Metric.BUYERS, sketchRepository::streamBuyerDays);
+        backfill(Metric.REVIEWERS, sketchRepository::streamReviewerDays);
+        backfill(Metric.CART_USERS, sketchRepository::streamCartUserDays);
+    }
+
+    /**
+     * Estimated distinct users per day, for every day in the range with any activity
+     */
+    Map<LocalDate, Long> dailyCounts(Metric metric, LocalDate startDay, LocalDate endDay) {
+        Map<LocalDate, Long> counts = new TreeMap<>();
+        sketches(metric, startDay, endDay).forEach((day, sketch) -> counts.put(day, sketch.estimate()));
+        return counts;
+    }
+
+    /**
+     * Estimated distinct users per calendar month, counting each user once per month
+     */
+    Map<YearMonth, Long> monthlyCounts(Metric metric, LocalDate startDay, LocalDate endDay) {
+        Map<YearMonth, HyperLogLog> months = new TreeMap<>();
+        sketches(metric, startDay, endDay).forEach((day, sketch) ->
+                months.computeIfAbsent(YearMonth.from(day), month -> new HyperLogLog()).merge(sketch));
+
+        Map<YearMonth, Long> counts = new TreeMap<>();
+        months.forEach((month, sketch) -> counts.put(month, sketch.estimate()));
+        return counts;
+    }
+
+    /**
+     * Estimated distinct users over the whole range, counting each user once
+     */
+    long distinctCount(Metric metric, LocalDate startDay, LocalDate endDay) {
+        HyperLogLog merged = new HyperLogLog();
+        sketches(metric, startDay, endDay).values().forEach(merged::merge);
+        return merged.estimate();
+    }
+
+    /**
+     * Helper method to combine the stored sketches with activity not flushed yet
+     */
+    private Map<LocalDate, HyperLogLog> sketches(Metric metric, LocalDate startDay, LocalDate endDay) {
+        Map<LocalDate, HyperLogLog> sketches = new HashMap<>();
+        for (ActivitySketch stored : sketchRepository.findByMetricAndDayBetween(metric, startDay, endDay)) {
+            sketches.put(stored.getDay(), HyperLogLog.fromBytes(stored.getRegisters()));
+        }
+        live.forEach((key, sketch) -> {
+            if (key.getMetric() == metric && !key.getDay().isBefore(startDay) && !key.getDay().isAfter(endDay)) {
+                // Merging is idempotent, so days already flushed are not double counted
+                sketches.computeIfAbsent(key.getDay(), day -> new HyperLogLog()).merge(sketch);
+            }
+        });
+        return sketches;
+    }
+
+    /**
+     * Helper method to rebuild one metric's sketches from the (day, user) pairs of its source table
+     */
+    private void backfill(Metric metric, Supplier<Stream<Object[]>> source) {
+        Map<LocalDate, HyperLogLog> days = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = source.get()) {
+                rows.forEach(row -> days.computeIfAbsent(toLocalDate(row[0]), day -> new HyperLogLog())
+                        .add(((Number) row[1]).longValue()));
+            }
+        });
+        if (days.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                days.forEach((day, sketch) -> mergeInto(day, metric, sketch)));
+        log.info("Backfilled {} days of {} activity sketches", days.size(), metric);
+    }
+
+    private void mergeInto(LocalDate day, Metric metric, HyperLogLog sketch) {
+        ActivitySketch row = sketchRepository.findForUpdate(day, metric)
+                .orElseGet(() -> new ActivitySketch(day, metric, null));
+        HyperLogLog merged = new HyperLogLog();
+        if (row.getRegisters() != null) {
+            merged.merge(HyperLogLog.fromBytes(row.getRegisters()));
+        }
+        merged.merge(sketch);
+        row.setRegisters(merged.toBytes());
+        sketchRepository.save(row);
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -3,6 +3,7 @@ package com.ecommerce.service.impl;
 import com.ecommerce.entity.Address;
 import com.ecommerce.repository.AddressRepository;
 import com.ecommerce.service.interfaces.AddressService;
+import com.ecommerce.service.interfaces.ShippingService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,7 @@ import java.util.Optional;
 public class AddressServiceImpl implements AddressService {
 
     private final AddressRepository addressRepository;
+    private final ShippingService shippingService;
 
     @Override
     @Transactional
@@ -52,6 +54,7 @@ public class AddressServiceImpl implements AddressService {
             setDefaultAddress(existingAddress.getUser().getId(), addressId);
         }
         
+        shippingService.invalidateAddressQuote(existingAddress.getUser().getId(), addressId);
         return addressRepository.save(existingAddress);
     }
 
@@ -72,6 +75,7 @@ public class AddressServiceImpl implements AddressService {
                 .orElseThrow(() -> new EntityNotFoundException("Address not found with id: " + addressId));
         
         addressRepository.deleteById(addressId);
+        shippingService.invalidateAddressQuote(address.getUser().getId(), addressId);
         
         // If the deleted address was the default, set a new default if any other addresses exist
         if (address.getIsDefault()) {
@@ -0,0 +1,99 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.export.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes analytics query rows straight from their column values, one row at a time, through a fixed-size
+ * buffer; the counterpart of {@link OrderExportWriter} for results that have no entity.
+ */
+class AnalyticsExportWriter implements AutoCloseable {
+
+    private final ExportFormat format;
+    private final String[] columns;
+    private final Writer writer;
+    private final JsonGenerator generator;
+
+    AnalyticsExportWriter(ExportFormat format, String[] columns, OutputStream out, JsonFactory jsonFactory) throws IOException {
+        this.format = format;
+        this.columns = columns;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        if (format == ExportFormat.NDJSON) {
+            this.generator = jsonFactory.createGenerator(writer);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } else {
+            this.generator = null;
+            writer.write(String.join(",", columns));
+            writer.write('\n');
+        }
+    }
+
+    void write(Object[] row) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                Object value = valueOf(row[i]);
+                if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.toString());
+                } else {
+                    generator.writeString(value != null ? value.toString() : null);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } else {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csv(valueOf(row[i])));
+            }
+            writer.write('\n');
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+    }
+
+    // Timestamps are written like the LocalDateTime values of the JSON endpoints, always with seconds
+    private static Object valueOf(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp.toLocalDateTime());
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime);
+        }
+        return value;
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
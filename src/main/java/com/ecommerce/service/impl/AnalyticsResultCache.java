@@ -0,0 +1,275 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.config.AnalyticsCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Results of AnalyticsService calls keyed by method and arguments. Concurrent callers for a missing key
+ * share one load; reads past {@code refresh-ahead} of the lifetime return the cached result and reload it
+ * in the background. Rollup flushes and stock edits invalidate by bumping a per-topic generation once they
+ * commit, so stale entries are detected on read without scanning the cache. Individual orders and stock
+ * reservations do not invalidate; results see them after the next rollup flush or on expiry.
+ * <p>
+ * Cached results are shared between callers, so list and map results are stored as unmodifiable views.
+ */
+@Component
+@Slf4j
+class AnalyticsResultCache {
+
+    enum Topic {
+        ORDERS, INVENTORY
+    }
+
+    private record Key(String method, List<Object> args) {
+    }
+
+    private final AnalyticsCacheProperties properties;
+    private final ThreadPoolExecutor refresher;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(Topic.values().length);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshes;
+
+    AnalyticsResultCache(AnalyticsCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, properties.getRefreshThreads());
+        this.refresher = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "analytics-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hits = Counter.builder("analytics.cache.requests")
+                .description("Analytics calls served by the result cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("analytics.cache.requests")
+                .description("Analytics calls served by the result cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.refreshes = Counter.builder("analytics.cache.refreshes")
+                .description("Analytics results reloaded ahead of expiry")
+                .register(meterRegistry);
+        Gauge.builder("analytics.cache.size", entries, Map::size)
+                .description("Analytics results currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cached result of {@code method} for the given arguments, loading it with {@code loader} when missing,
+     * expired or invalidated by a write to one of {@code topics}
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String method, Set<Topic> topics, Supplier<T> loader, Object... args) {
+        if (!properties.isEnabled()) {
+            return (T) readOnly(loader.get());
+        }
+        Key key = new Key(method, Arrays.asList(args));
+        while (true) {
+            long now = System.nanoTime();
+            Entry entry = entries.get(key);
+            if (entry != null && isCurrent(entry, now)) {
+                if (entry.value.isDone() && now - entry.refreshAt >= 0) {
+                    refreshAhead(key, entry, loader);
+                }
+                hits.increment();
+                return (T) await(entry);
+            }
+
+            Entry loading = new Entry(topics, currentGenerations());
+            boolean owner = entry == null ? entries.putIfAbsent(key, loading) == null : entries.replace(key, entry, loading);
+            if (owner) {
+                misses.increment();
+                evictIfFull();
+                try {
+                    return (T) complete(loading, loader, ttlOf(method));
+                } catch (RuntimeException e) {
+                    entries.remove(key, loading);
+                    throw e;
+                }
+            }
+            // Another caller started the load first; wait on theirs
+        }
+    }
+
+    /**
+     * Mark every result depending on {@code topic} stale once the surrounding transaction commits
+     */
+    void invalidate(Topic topic) {
+        afterCommit(() -> generations.incrementAndGet(topic.ordinal()));
+    }
+
+    @Scheduled(fixedDelayString = "${application.analytics.cache.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.value.isDone() && !isCurrent(entry, now));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void refreshAhead(Key key, Entry entry, Supplier<?> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Entry next = new Entry(entry.topics, currentGenerations());
+        try {
+            refresher.execute(() -> {
+                try {
+                    complete(next, loader, ttlOf(key.method()));
+                    entries.replace(key, entry, next);
+                    refreshes.increment();
+                } catch (RuntimeException e) {
+                    entry.refreshing.set(false);
+                    log.warn("Background refresh of {} failed", key.method(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refresh queue is full; the entry is simply reloaded on expiry instead
+            entry.refreshing.set(false);
+        }
+    }
+
+    private Object complete(Entry entry, Supplier<?> loader, Duration ttl) {
+        try {
+            Object result = readOnly(loader.get());
+            long now = System.nanoTime();
+            long ttlNanos = ttl.toNanos();
+            entry.expiresAt = now + ttlNanos;
+            entry.refreshAt = now + (long) (ttlNanos * properties.getRefreshAhead());
+            entry.value.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            entry.value.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Views rather than List.copyOf/Map.copyOf, which would reject any null element or value
+    private static Object readOnly(Object result) {
+        if (result instanceof List<?> list) {
+            return Collections.unmodifiableList(list);
+        }
+        if (result instanceof Map<?, ?> map) {
+            return Collections.unmodifiableMap(map);
+        }
+        return result;
+    }
+
+    private boolean isCurrent(Entry entry, long now) {
+        if (!entry.value.isDone()) {
+            return true;
+        }
+        if (entry.value.isCompletedExceptionally() || now - entry.expiresAt >= 0) {
+            return false;
+        }
+        for (Topic topic : entry.topics) {
+            if (generations.get(topic.ordinal()) != entry.generations[topic.ordinal()]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Duration ttlOf(String method) {
+        return ttls.computeIfAbsent(method, name -> properties.getTtl().getOrDefault(
+                name.replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase(), properties.getDefaultTtl()));
+    }
+
+    private long[] currentGenerations() {
+        long[] snapshot = new long[generations.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = generations.get(i);
+        }
+        return snapshot;
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= properties.getMaxEntries()) {
+            return;
+        }
+        evictExpired();
+        // Still full of live results: drop arbitrary completed ones rather than grow without bound
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > properties.getMaxEntries() && it.hasNext()) {
+            if (it.next().value.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static Object await(Entry entry) {
+        try {
+            return entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Object> value = new CompletableFuture<>();
+        final Set<Topic> topics;
+        final long[] generations;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile long expiresAt;
+        volatile long refreshAt;
+
+        Entry(Set<Topic> topics, long[] generations) {
+            this.topics = topics;
+            this.generations = generations;
+        }
+    }
+}
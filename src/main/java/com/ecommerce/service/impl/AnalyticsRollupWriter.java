@@ -0,0 +1,290 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import com.ecommerce.repository.stats.DailyCategoryRollupRepository;
+import com.ecommerce.repository.stats.DailyOrderRollupRepository;
+import com.ecommerce.repository.stats.DailyProductRollupRepository;
+import com.ecommerce.repository.stats.DailyUserRollupRepository;
+import com.ecommerce.repository.stats.OrderStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the daily rollup tables in step with orders. Order writes register their deltas to be merged
+ * into in-memory accumulators once the order transaction commits; the accumulators are flushed as
+ * upserts every few seconds. This keeps the hot per-day rows out of the checkout transaction, at the
+ * cost of losing at most one flush interval on a crash, which the nightly backfill repairs.
+ * <p>
+ * A rebuild holds {@link #rebuildLock} exclusively, and order transactions hold it shared from just before
+ * their commit until their deltas are recorded. So every order the rebuild's snapshot sees has its delta
+ * pending when the rebuild starts, where it is discarded, and every later order commits after the rebuild.
+ * Order commits wait for at most one chunk of the rebuild.
+ * <p>
+ * Rollups count every order that exists, whatever its status, matching the raw-table queries they replace.
+ */
+@Component
+@Slf4j
+class AnalyticsRollupWriter {
+
+    private final DailyOrderRollupRepository orderRollupRepository;
+    private final DailyProductRollupRepository productRollupRepository;
+    private final DailyCategoryRollupRepository categoryRollupRepository;
+    private final DailyUserRollupRepository userRollupRepository;
+    private final OrderStatsRepository orderStatsRepository;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int backfillDays;
+
+    private static final int REBUILD_CHUNK_DAYS = 31;
+
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private final Map<LocalDate, Delta> orderDeltas = new ConcurrentHashMap<>();
+    private final Map<DayKey, Delta> productDeltas = new ConcurrentHashMap<>();
+    private final Map<DayKey, Delta> categoryDeltas = new ConcurrentHashMap<>();
+    private final Map<DayKey, Delta> userDeltas = new ConcurrentHashMap<>();
+
+    record DayKey(LocalDate day, Long id) {
+    }
+
+    record Delta(long orders, long units, BigDecimal revenue) {
+        Delta plus(Delta other) {
+            return new Delta(orders + other.orders, units + other.units, revenue.add(other.revenue));
+        }
+    }
+
+    AnalyticsRollupWriter(DailyOrderRollupRepository orderRollupRepository,
+                          DailyProductRollupRepository productRollupRepository,
+                          DailyCategoryRollupRepository categoryRollupRepository,
+                          DailyUserRollupRepository userRollupRepository,
+                          OrderStatsRepository orderStatsRepository,
+                          AnalyticsResultCache analyticsResultCache,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${application.analytics.rollup.backfill-days:3}") int backfillDays) {
+        this.orderRollupRepository = orderRollupRepository;
+        this.productRollupRepository = productRollupRepository;
+        this.categoryRollupRepository = categoryRollupRepository;
+        this.userRollupRepository = userRollupRepository;
+        this.orderStatsRepository = orderStatsRepository;
+        this.analyticsResultCache = analyticsResultCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillDays = backfillDays;
+    }
+
+    void orderCreated(Order order) {
+        record(order, 1);
+    }
+
+    void orderDeleted(Order order) {
+        record(order, -1);
+    }
+
+    @Scheduled(fixedDelayString = "${application.analytics.rollup.flush-interval-ms:5000}")
+    public void flush() {
+        // Shared, so a rebuild never runs between draining deltas and writing them
+        rebuildLock.readLock().lock();
+        try {
+            flushPending();
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void flushPending() {
+        Map<LocalDate, Delta> orders = drain(orderDeltas);
+        Map<DayKey, Delta> products = drain(productDeltas);
+        Map<DayKey, Delta> categories = drain(categoryDeltas);
+        Map<DayKey, Delta> users = drain(userDeltas);
+        if (orders.isEmpty() && products.isEmpty() && categories.isEmpty() && users.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                orders.forEach((day, d) -> orderRollupRepository.addDelta(day, d.orders(), d.revenue(), d.units()));
+                products.forEach((key, d) -> productRollupRepository.addDelta(key.day(), key.id(), d.orders(), d.units(), d.revenue()));
+                categories.forEach((key, d) -> categoryRollupRepository.addDelta(key.day(), key.id(), d.units(), d.revenue()));
+                users.forEach((key, d) -> userRollupRepository.addDelta(key.day(), key.id(), d.orders(), d.revenue()));
+            });
+            // Results cached between the order commit and this flush missed the order
+            analyticsResultCache.invalidate(AnalyticsResultCache.Topic.ORDERS);
+        } catch (RuntimeException e) {
+            // Put the deltas back so the next flush retries them
+            orders.forEach((day, d) -> orderDeltas.merge(day, d, Delta::plus));
+            products.forEach((key, d) -> productDeltas.merge(key, d, Delta::plus));
+            categories.forEach((key, d) -> categoryDeltas.merge(key, d, Delta::plus));
+            users.forEach((key, d) -> userDeltas.merge(key, d, Delta::plus));
+            log.warn("Failed to flush analytics rollups, will retry", e);
+        }
+    }
+
+    /**
+     * Recompute the rollups for a range of days from the raw order tables
+     */
+    void backfill(LocalDate startDay, LocalDate endDay) {
+        for (LocalDate chunkStart = startDay; !chunkStart.isAfter(endDay); chunkStart = chunkStart.plusDays(REBUILD_CHUNK_DAYS)) {
+            LocalDate chunkEnd = chunkStart.plusDays(REBUILD_CHUNK_DAYS - 1L);
+            rebuild(chunkStart, chunkEnd.isAfter(endDay) ? endDay : chunkEnd);
+        }
+        analyticsResultCache.invalidate(AnalyticsResultCache.Topic.ORDERS);
+        log.info("Rebuilt analytics rollups for {} to {}", startDay, endDay);
+    }
+
+    private void rebuild(LocalDate startDay, LocalDate endDay) {
+        LocalDateTime from = startDay.atStartOfDay();
+        LocalDateTime to = endDay.plusDays(1).atStartOfDay();
+        rebuildLock.writeLock().lock();
+        try {
+            // Pending deltas in the range belong to committed orders the rebuild counts; the rest stay queued
+            Map<LocalDate, Delta> orders = drain(orderDeltas);
+            Map<DayKey, Delta> products = drain(productDeltas);
+            Map<DayKey, Delta> categories = drain(categoryDeltas);
+            Map<DayKey, Delta> users = drain(userDeltas);
+            transactionTemplate.executeWithoutResult(status -> {
+                orderRollupRepository.deleteByDayRange(startDay, endDay);
+                productRollupRepository.deleteByDayRange(startDay, endDay);
+                categoryRollupRepository.deleteByDayRange(startDay, endDay);
+                userRollupRepository.deleteByDayRange(startDay, endDay);
+                orderRollupRepository.rebuild(from, to);
+                productRollupRepository.rebuild(from, to);
+                categoryRollupRepository.rebuild(from, to);
+                userRollupRepository.rebuild(from, to);
+            });
+            orders.forEach((day, d) -> {
+                if (day.isBefore(startDay) || day.isAfter(endDay)) {
+                    orderDeltas.merge(day, d, Delta::plus);
+                }
+            });
+            requeueOutside(products, productDeltas, startDay, endDay);
+            requeueOutside(categories, categoryDeltas, startDay, endDay);
+            requeueOutside(users, userDeltas, startDay, endDay);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private static void requeueOutside(Map<DayKey, Delta> drained, Map<DayKey, Delta> pending,
+                                       LocalDate startDay, LocalDate endDay) {
+        drained.forEach((key, d) -> {
+            if (key.day().isBefore(startDay) || key.day().isAfter(endDay)) {
+                pending.merge(key, d, Delta::plus);
+            }
+        });
+    }
+
+    /**
+     * Re-derive the last few completed days, repairing anything lost between commit and flush
+     */
+    @Scheduled(cron = "${application.analytics.rollup.backfill-cron:0 0 3 * * *}")
+    public void backfillRecentDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        backfill(yesterday.minusDays(backfillDays - 1L), yesterday);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (orderRollupRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime firstOrder = orderStatsRepository.findFirstOrderedAt();
+        if (firstOrder != null) {
+            backfill(firstOrder.toLocalDate(), LocalDate.now());
+        }
+    }
+
+    private void record(Order order, int sign) {
+        LocalDate day = order.getOrderedAt().toLocalDate();
+        Long userId = order.getUser().getId();
+
+        long units = 0;
+        Map<DayKey, Delta> products = new HashMap<>();
+        Map<DayKey, Delta> categories = new HashMap<>();
+        if (order.getOrderItems() != null) {
+            for (OrderItem item : order.getOrderItems()) {
+                long quantity = (long) sign * item.getQuantity();
+                BigDecimal revenue = sign > 0 ? item.getSubtotal() : item.getSubtotal().negate();
+                units += quantity;
+                products.merge(new DayKey(day, item.getProduct().getId()), new Delta(sign, quantity, revenue), Delta::plus);
+                categories.merge(new DayKey(day, item.getProduct().getCategory().getId()), new Delta(0, quantity, revenue), Delta::plus);
+            }
+        }
+        BigDecimal total = sign > 0 ? order.getTotalAmount() : order.getTotalAmount().negate();
+        Delta orderDelta = new Delta(sign, units, total);
+
+        aroundCommit(() -> {
+            orderDeltas.merge(day, orderDelta, Delta::plus);
+            userDeltas.merge(new DayKey(day, userId), orderDelta, Delta::plus);
+            products.forEach((key, d) -> productDeltas.merge(key, d, Delta::plus));
+            categories.forEach((key, d) -> categoryDeltas.merge(key, d, Delta::plus));
+        });
+    }
+
+    private static <K> Map<K, Delta> drain(Map<K, Delta> pending) {
+        Map<K, Delta> drained = new HashMap<>();
+        for (K key : new ArrayList<>(pending.keySet())) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Helper method to record deltas once the surrounding transaction commits, holding the rebuild lock
+     * shared across the commit so no rebuild can start between the commit and the recording
+     */
+    private void aroundCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuildLock.readLock().lock();
+            try {
+                action.run();
+            } finally {
+                rebuildLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                rebuildLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    locked = false;
+                    rebuildLock.readLock().unlock();
+                }
+            }
+        });
+    }
+}
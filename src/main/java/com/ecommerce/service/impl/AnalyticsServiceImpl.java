@@ -1,317 +1,493 @@
 package com.ecommerce.service.impl;
 
+import com.ecommerce.dto.analytics.ActiveUsersInWindow;
+import com.ecommerce.dto.analytics.CategoryInventoryValue;
+import com.ecommerce.dto.analytics.CategoryProductStats;
+import com.ecommerce.dto.analytics.CategoryRevenue;
+import com.ecommerce.dto.analytics.DailyActiveUsers;
+import com.ecommerce.dto.analytics.InactiveCustomer;
+import com.ecommerce.dto.analytics.LowStockProduct;
+import com.ecommerce.dto.analytics.MonthlyActiveUsers;
+import com.ecommerce.dto.analytics.MonthlyOrderStats;
+import com.ecommerce.dto.analytics.OrderItemAggregate;
+import com.ecommerce.dto.analytics.OrderItemQuery;
+import com.ecommerce.dto.analytics.OrderStats;
+import com.ecommerce.dto.analytics.ProductStockSummary;
+import com.ecommerce.dto.analytics.StockForecast;
+import com.ecommerce.dto.analytics.TopCustomer;
+import com.ecommerce.dto.analytics.TopRatedProduct;
+import com.ecommerce.dto.analytics.TopSellingProduct;
+import com.ecommerce.dto.analytics.UserCategory;
+import com.ecommerce.dto.analytics.UserSegment;
+import com.ecommerce.dto.analytics.WarehouseInventorySummary;
+import com.ecommerce.dto.analytics.WarehouseValueSummary;
+import com.ecommerce.dto.export.ExportFormat;
+import com.ecommerce.entity.ActivitySketch;
+import com.ecommerce.entity.DailyOrderRollup;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import com.ecommerce.repository.stats.DailyCategoryRollupRepository;
+import com.ecommerce.repository.stats.DailyOrderRollupRepository;
+import com.ecommerce.repository.stats.DailyProductRollupRepository;
+import com.ecommerce.repository.stats.DailyUserRollupRepository;
 import com.ecommerce.repository.stats.InventoryStatsRepository;
 import com.ecommerce.repository.stats.OrderStatsRepository;
 import com.ecommerce.repository.stats.ProductStatsRepository;
 import com.ecommerce.repository.stats.UserActivityRepository;
+import com.ecommerce.service.impl.AnalyticsResultCache.Topic;
 import com.ecommerce.service.interfaces.AnalyticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyticsServiceImpl implements AnalyticsService {
 
+    private static final Set<Topic> ORDERS = EnumSet.of(Topic.ORDERS);
+    private static final Set<Topic> INVENTORY = EnumSet.of(Topic.INVENTORY);
+    private static final Set<Topic> ORDERS_AND_INVENTORY = EnumSet.of(Topic.ORDERS, Topic.INVENTORY);
+    // Catalog and review results are only bounded by their lifetime
+    private static final Set<Topic> NO_TOPICS = EnumSet.noneOf(Topic.class);
+
+    private static final String[] PRODUCT_STOCK_COLUMNS = {"productName", "totalStock", "totalReserved"};
+    private static final String[] INACTIVE_CUSTOMER_COLUMNS = {
+            "userId", "email", "firstName", "lastName", "lastOrderDate", "totalOrders", "lifetimeValue"
+    };
+
     private final OrderStatsRepository orderStatsRepository;
     private final ProductStatsRepository productStatsRepository;
     private final InventoryStatsRepository inventoryStatsRepository;
     private final UserActivityRepository userActivityRepository;
+    private final DailyOrderRollupRepository orderRollupRepository;
+    private final DailyProductRollupRepository productRollupRepository;
+    private final DailyCategoryRollupRepository categoryRollupRepository;
+    private final DailyUserRollupRepository userRollupRepository;
+    private final OrderItemColumnStore orderItemColumnStore;
+    private final DemandForecaster demandForecaster;
+    private final ActivitySketchStore activitySketchStore;
+    private final LeaderboardStore leaderboardStore;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final AnalyticsResultCache resultCache;
+    private final ObjectMapper objectMapper;
+
+    // Date-range queries are answered from the daily rollups, so ranges are widened to whole days and
+    // cached under their dates
 
     @Override
-    public Map<String, Object> getOrderStatsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Object[]> results = orderStatsRepository.getOrderStatsByDateRange(startDate, endDate);
-        Map<String, Object> stats = new HashMap<>();
-        
-        if (!results.isEmpty()) {
-            Object[] data = results.get(0);
-            stats.put("orderCount", data[0]);
-            stats.put("totalRevenue", data[1]);
-            stats.put("averageOrderValue", data[2]);
-        }
-        
-        return stats;
+    public OrderStats getOrderStatsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return resultCache.get("getOrderStatsByDateRange", ORDERS, () -> {
+            List<DailyOrderRollup> days = orderRollupRepository.findByDayBetweenOrderByDay(
+                    startDate.toLocalDate(), endDate.toLocalDate());
+
+            long orderCount = 0;
+            BigDecimal revenue = BigDecimal.ZERO;
+            for (DailyOrderRollup day : days) {
+                orderCount += day.getOrderCount();
+                revenue = revenue.add(day.getRevenue());
+            }
+
+            return new OrderStats(orderCount, orderCount > 0 ? revenue : null, averageOf(revenue, orderCount));
+        }, startDate.toLocalDate(), endDate.toLocalDate());
     }
 
     @Override
-    public List<Map<String, Object>> getMonthlyOrderStats(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Object[]> results = orderStatsRepository.getMonthlyOrderStats(startDate, endDate);
-        List<Map<String, Object>> stats = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("month", data[0]);
-            entry.put("orderCount", data[1]);
-            entry.put("revenue", data[2]);
-            stats.add(entry);
-        }
-        
-        return stats;
+    public List<MonthlyOrderStats> getMonthlyOrderStats(LocalDateTime startDate, LocalDateTime endDate) {
+        return resultCache.get("getMonthlyOrderStats", ORDERS, () -> {
+            List<DailyOrderRollup> days = orderRollupRepository.findByDayBetweenOrderByDay(
+                    startDate.toLocalDate(), endDate.toLocalDate());
+            Map<YearMonth, DailyOrderRollup> months = new TreeMap<>();
+
+            // At most a few hundred day rows, so months are folded here rather than in SQL
+            for (DailyOrderRollup day : days) {
+                if (day.getOrderCount() == 0) {
+                    continue;
+                }
+                months.merge(YearMonth.from(day.getDay()), day, (a, b) -> new DailyOrderRollup(a.getDay(),
+                        a.getOrderCount() + b.getOrderCount(), a.getRevenue().add(b.getRevenue()),
+                        a.getUnitsSold() + b.getUnitsSold()));
+            }
+
+            List<MonthlyOrderStats> stats = new ArrayList<>(months.size());
+            for (Map.Entry<YearMonth, DailyOrderRollup> month : months.entrySet()) {
+                stats.add(new MonthlyOrderStats(month.getKey().toString(),
+                        month.getValue().getOrderCount(), month.getValue().getRevenue()));
+            }
+
+            return stats;
+        }, startDate.toLocalDate(), endDate.toLocalDate());
     }
 
     @Override
     public Map<String, Long> getOrderCountByStatus() {
-        List<Object[]> results = orderStatsRepository.getOrderCountByStatus();
-        Map<String, Long> stats = new HashMap<>();
-        
-        for (Object[] data : results) {
-            stats.put((String) data[0], (Long) data[1]);
-        }
-        
-        return stats;
+        return resultCache.get("getOrderCountByStatus", ORDERS, () -> {
+            List<Object[]> results = orderStatsRepository.getOrderCountByStatus();
+            Map<String, Long> stats = new HashMap<>();
+
+            for (Object[] data : results) {
+                stats.put(data[0].toString(), (Long) data[1]);
+            }
+
+            return stats;
+        });
     }
 
     @Override
-    public List<Map<String, Object>> getTopCustomersByRevenue(int limit) {
-        List<Object[]> results = orderStatsRepository.findTopCustomersByRevenue(limit);
-        List<Map<String, Object>> customers = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> customer = new HashMap<>();
-            customer.put("userId", data[0]);
-            customer.put("email", data[1]);
-            customer.put("orderCount", data[2]);
-            customer.put("totalSpent", data[3]);
-            customers.add(customer);
+    public List<TopCustomer> getTopCustomersByRevenue(int limit) {
+        Optional<List<TopKSketch.Entry>> board = leaderboardStore.topCustomers(limit);
+        if (board.isPresent()) {
+            Map<Long, String> emails = new HashMap<>();
+            for (User user : userRepository.findAllById(idsOf(board.get()))) {
+                emails.put(user.getId(), user.getEmail());
+            }
+            List<TopCustomer> customers = new ArrayList<>(board.get().size());
+
+            for (TopKSketch.Entry entry : board.get()) {
+                customers.add(new TopCustomer(entry.id(), emails.get(entry.id()), entry.count(),
+                        LeaderboardStore.revenueOf(entry)));
+            }
+
+            return customers;
         }
-        
-        return customers;
+
+        // Leaderboard not built yet or limit beyond what it tracks
+        return resultCache.get("getTopCustomersByRevenue", ORDERS, () -> {
+            List<Object[]> results = userRollupRepository.findTopCustomersByRevenue(PageRequest.of(0, limit));
+            List<TopCustomer> customers = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                customers.add(new TopCustomer((Long) data[0], (String) data[1], longOf(data[2]), decimalOf(data[3])));
+            }
+
+            return customers;
+        }, limit);
     }
 
     @Override
-    public List<Map<String, Object>> getProductStatsByCategory() {
-        List<Object[]> results = productStatsRepository.getProductStatsByCategory();
-        List<Map<String, Object>> stats = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("category", data[0]);
-            entry.put("productCount", data[1]);
-            entry.put("averagePrice", data[2]);
-            stats.add(entry);
-        }
-        
-        return stats;
+    public List<CategoryProductStats> getProductStatsByCategory() {
+        return resultCache.get("getProductStatsByCategory", NO_TOPICS, () -> {
+            List<Object[]> results = productStatsRepository.getProductStatsByCategory();
+            List<CategoryProductStats> stats = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                Double averagePrice = data[2] != null ? ((Number) data[2]).doubleValue() : null;
+                stats.add(new CategoryProductStats((String) data[0], longOf(data[1]), averagePrice));
+            }
+
+            return stats;
+        });
     }
 
     @Override
-    public List<Map<String, Object>> getTopSellingProducts(LocalDateTime startDate, LocalDateTime endDate, int limit) {
-        List<Object[]> results = productStatsRepository.findTopSellingProducts(startDate, endDate, limit);
-        List<Map<String, Object>> products = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> product = new HashMap<>();
-            product.put("productId", data[0]);
-            product.put("name", data[1]);
-            product.put("totalSold", data[2]);
-            products.add(product);
+    public List<TopSellingProduct> getTopSellingProducts(LocalDateTime startDate, LocalDateTime endDate, int limit) {
+        Optional<List<TopKSketch.Entry>> board = leaderboardStore.topProducts(
+                startDate.toLocalDate(), endDate.toLocalDate(), limit);
+        if (board.isPresent()) {
+            Map<Long, String> names = new HashMap<>();
+            for (Product product : productRepository.findAllById(idsOf(board.get()))) {
+                names.put(product.getId(), product.getName());
+            }
+            List<TopSellingProduct> products = new ArrayList<>(board.get().size());
+
+            for (TopKSketch.Entry entry : board.get()) {
+                products.add(new TopSellingProduct(entry.id(), names.get(entry.id()), entry.score()));
+            }
+
+            return products;
         }
-        
-        return products;
+
+        // Ranges older than the leaderboard retention still come from the rollups
+        return resultCache.get("getTopSellingProducts", ORDERS, () -> {
+            List<Object[]> results = productRollupRepository.findTopSellingProducts(
+                    startDate.toLocalDate(), endDate.toLocalDate(), PageRequest.of(0, limit));
+            List<TopSellingProduct> products = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                products.add(new TopSellingProduct((Long) data[0], (String) data[1], longOf(data[2])));
+            }
+
+            return products;
+        }, startDate.toLocalDate(), endDate.toLocalDate(), limit);
     }
 
     @Override
-    public List<Map<String, Object>> getCategoryRevenueInPeriod(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Object[]> results = productStatsRepository.getCategoryRevenueInPeriod(startDate, endDate);
-        List<Map<String, Object>> categoryRevenue = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("category", data[0]);
-            entry.put("revenue", data[1]);
-            categoryRevenue.add(entry);
-        }
-        
-        return categoryRevenue;
+    public List<CategoryRevenue> getCategoryRevenueInPeriod(LocalDateTime startDate, LocalDateTime endDate) {
+        return resultCache.get("getCategoryRevenueInPeriod", ORDERS, () -> {
+            List<Object[]> results = categoryRollupRepository.getCategoryRevenueInPeriod(
+                    startDate.toLocalDate(), endDate.toLocalDate());
+            List<CategoryRevenue> categoryRevenue = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                categoryRevenue.add(new CategoryRevenue((String) data[0], decimalOf(data[1])));
+            }
+
+            return categoryRevenue;
+        }, startDate.toLocalDate(), endDate.toLocalDate());
     }
 
     @Override
-    public List<Map<String, Object>> getTopRatedProducts(int minReviews, int limit) {
-        List<Object[]> results = productStatsRepository.findTopRatedProducts(minReviews, limit);
-        List<Map<String, Object>> products = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> product = new HashMap<>();
-            product.put("productId", data[0]);
-            product.put("name", data[1]);
-            product.put("averageRating", data[2]);
-            product.put("reviewCount", data[3]);
-            products.add(product);
-        }
-        
-        return products;
+    public List<TopRatedProduct> getTopRatedProducts(int minReviews, int limit) {
+        return resultCache.get("getTopRatedProducts", NO_TOPICS, () -> {
+            List<Object[]> results = productStatsRepository.findTopRatedProducts(minReviews, limit);
+            List<TopRatedProduct> products = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                products.add(new TopRatedProduct(longOf(data[0]), (String) data[1], decimalOf(data[2]), longOf(data[3])));
+            }
+
+            return products;
+        }, minReviews, limit);
     }
 
     @Override
-    public List<Map<String, Object>> getLowStockProducts(int lowStockThreshold) {
-        List<Object[]> results = productStatsRepository.findLowStockProducts(lowStockThreshold);
-        List<Map<String, Object>> products = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> product = new HashMap<>();
-            product.put("productId", data[0]);
-            product.put("name", data[1]);
-            product.put("lowStockCount", data[2]);
-            products.add(product);
-        }
-        
-        return products;
+    public List<LowStockProduct> getLowStockProducts(int lowStockThreshold) {
+        return resultCache.get("getLowStockProducts", INVENTORY, () -> {
+            List<Object[]> results = productStatsRepository.findLowStockProducts(lowStockThreshold);
+            List<LowStockProduct> products = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                products.add(new LowStockProduct(longOf(data[0]), (String) data[1], longOf(data[2])));
+            }
+
+            return products;
+        }, lowStockThreshold);
     }
 
     @Override
-    public List<Map<String, Object>> getInventorySummaryByWarehouse() {
-        List<Object[]> results = inventoryStatsRepository.getInventorySummaryByWarehouse();
-        List<Map<String, Object>> summary = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("warehouseName", data[0]);
-            entry.put("productCount", data[1]);
-            entry.put("totalQuantity", data[2]);
-            summary.add(entry);
-        }
-        
-        return summary;
+    public List<WarehouseInventorySummary> getInventorySummaryByWarehouse() {
+        return resultCache.get("getInventorySummaryByWarehouse", INVENTORY, () -> {
+            List<Object[]> results = inventoryStatsRepository.getInventorySummaryByWarehouse();
+            List<WarehouseInventorySummary> summary = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                summary.add(new WarehouseInventorySummary((String) data[0], longOf(data[1]), longOf(data[2])));
+            }
+
+            return summary;
+        });
     }
 
     @Override
-    public List<Map<String, Object>> getProductStockSummary() {
-        List<Object[]> results = inventoryStatsRepository.getProductStockSummary();
-        List<Map<String, Object>> summary = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("productName", data[0]);
-            entry.put("totalStock", data[1]);
-            entry.put("totalReserved", data[2]);
-            summary.add(entry);
-        }
-        
-        return summary;
+    public List<ProductStockSummary> getProductStockSummary() {
+        return resultCache.get("getProductStockSummary", INVENTORY, () -> {
+            List<Object[]> results = inventoryStatsRepository.getProductStockSummary();
+            List<ProductStockSummary> summary = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                summary.add(new ProductStockSummary((String) data[0], longOf(data[1]), longOf(data[2])));
+            }
+
+            return summary;
+        });
     }
 
     @Override
-    public List<Map<String, Object>> getWarehouseValueSummary() {
-        List<Object[]> results = inventoryStatsRepository.getWarehouseValueSummary();
-        List<Map<String, Object>> summary = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("warehouseName", data[0]);
-            entry.put("location", data[1]);
-            entry.put("productCount", data[2]);
-            entry.put("totalQuantity", data[3]);
-            entry.put("totalValue", data[4]);
-            summary.add(entry);
-        }
-        
-        return summary;
+    public List<WarehouseValueSummary> getWarehouseValueSummary() {
+        return resultCache.get("getWarehouseValueSummary", INVENTORY, () -> {
+            List<Object[]> results = inventoryStatsRepository.getWarehouseValueSummary();
+            List<WarehouseValueSummary> summary = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                summary.add(new WarehouseValueSummary((String) data[0], (String) data[1], longOf(data[2]),
+                        longOf(data[3]), decimalOf(data[4])));
+            }
+
+            return summary;
+        });
     }
 
     @Override
-    public List<Map<String, Object>> getInventoryValueByCategory() {
-        List<Object[]> results = inventoryStatsRepository.getInventoryValueByCategory();
-        List<Map<String, Object>> summary = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("category", data[0]);
-            entry.put("quantity", data[1]);
-            entry.put("inventoryValue", data[2]);
-            summary.add(entry);
-        }
-        
-        return summary;
+    public List<CategoryInventoryValue> getInventoryValueByCategory() {
+        return resultCache.get("getInventoryValueByCategory", INVENTORY, () -> {
+            List<Object[]> results = inventoryStatsRepository.getInventoryValueByCategory();
+            List<CategoryInventoryValue> summary = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                summary.add(new CategoryInventoryValue((String) data[0], longOf(data[1]), decimalOf(data[2])));
+            }
+
+            return summary;
+        });
     }
 
     @Override
-    public List<Map<String, Object>> getStockShortageRisk() {
-        List<Object[]> results = inventoryStatsRepository.findStockShortageRisk();
-        List<Map<String, Object>> risks = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("productId", data[0]);
-            entry.put("productName", data[1]);
-            entry.put("availableStock", data[2]);
-            entry.put("reservedStock", data[3]);
-            entry.put("last30DaysSales", data[4]);
-            risks.add(entry);
-        }
-        
-        return risks;
+    public List<StockForecast> getStockShortageRisk() {
+        return resultCache.get("getStockShortageRisk", ORDERS_AND_INVENTORY, demandForecaster::shortageRisks);
     }
 
     @Override
-    public List<Map<String, Object>> getMonthlyActiveUsers(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Object[]> results = userActivityRepository.getMonthlyActiveUsers(startDate, endDate);
-        List<Map<String, Object>> activeUsers = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("month", data[0]);
-            entry.put("activeUsers", data[1]);
-            activeUsers.add(entry);
-        }
-        
-        return activeUsers;
+    public List<StockForecast> getReorderSuggestions() {
+        return resultCache.get("getReorderSuggestions", ORDERS_AND_INVENTORY, demandForecaster::reorderSuggestions);
     }
 
+    // Active-user counts are HyperLogLog estimates with about 1% error; sketches are flushed every few
+    // seconds, so these results are only bounded by their lifetime
+
     @Override
-    public List<Map<String, Object>> getInactiveCustomers(int inactiveDays) {
-        List<Object[]> results = userActivityRepository.findInactiveCustomers(inactiveDays);
-        List<Map<String, Object>> inactiveCustomers = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> customer = new HashMap<>();
-            customer.put("userId", data[0]);
-            customer.put("email", data[1]);
-            customer.put("firstName", data[2]);
-            customer.put("lastName", data[3]);
-            customer.put("lastOrderDate", data[4]);
-            customer.put("totalOrders", data[5]);
-            customer.put("lifetimeValue", data[6]);
-            inactiveCustomers.add(customer);
-        }
-        
-        return inactiveCustomers;
+    public List<MonthlyActiveUsers> getMonthlyActiveUsers(LocalDateTime startDate, LocalDateTime endDate) {
+        return resultCache.get("getMonthlyActiveUsers", NO_TOPICS, () -> {
+            Map<YearMonth, Long> months = activitySketchStore.monthlyCounts(ActivitySketch.Metric.BUYERS,
+                    startDate.toLocalDate(), endDate.toLocalDate());
+            List<MonthlyActiveUsers> activeUsers = new ArrayList<>(months.size());
+
+            for (Map.Entry<YearMonth, Long> month : months.entrySet()) {
+                activeUsers.add(new MonthlyActiveUsers(month.getKey().toString(), month.getValue()));
+            }
+
+            return activeUsers;
+        }, startDate.toLocalDate(), endDate.toLocalDate());
+    }
+
+    @Override
+    public List<DailyActiveUsers> getDailyActiveUsers(ActivitySketch.Metric metric, LocalDateTime startDate, LocalDateTime endDate) {
+        return resultCache.get("getDailyActiveUsers", NO_TOPICS, () -> {
+            Map<LocalDate, Long> days = activitySketchStore.dailyCounts(metric,
+                    startDate.toLocalDate(), endDate.toLocalDate());
+            List<DailyActiveUsers> activeUsers = new ArrayList<>(days.size());
+
+            for (Map.Entry<LocalDate, Long> day : days.entrySet()) {
+                activeUsers.add(new DailyActiveUsers(day.getKey(), day.getValue()));
+            }
+
+            return activeUsers;
+        }, metric, startDate, endDate);
+    }
+
+    @Override
+    public ActiveUsersInWindow getActiveUsersInWindow(ActivitySketch.Metric metric, LocalDateTime startDate, LocalDateTime endDate) {
+        return resultCache.get("getActiveUsersInWindow", NO_TOPICS, () -> new ActiveUsersInWindow(metric,
+                startDate.toLocalDate(), endDate.toLocalDate(),
+                activitySketchStore.distinctCount(metric, startDate.toLocalDate(), endDate.toLocalDate())),
+                metric, startDate.toLocalDate(), endDate.toLocalDate());
+    }
+
+    @Override
+    public List<InactiveCustomer> getInactiveCustomers(int inactiveDays) {
+        return resultCache.get("getInactiveCustomers", ORDERS, () -> {
+            List<Object[]> results = userActivityRepository.findInactiveCustomers(inactiveDays);
+            List<InactiveCustomer> inactiveCustomers = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                inactiveCustomers.add(new InactiveCustomer(longOf(data[0]), (String) data[1], (String) data[2],
+                        (String) data[3], dateTimeOf(data[4]), longOf(data[5]), decimalOf(data[6])));
+            }
+
+            return inactiveCustomers;
+        }, inactiveDays);
+    }
+
+    @Override
+    public List<UserSegment> getUserSegmentAnalytics() {
+        return resultCache.get("getUserSegmentAnalytics", ORDERS, () -> {
+            List<Object[]> results = userActivityRepository.getUserSegmentAnalytics();
+            List<UserSegment> segments = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                segments.add(new UserSegment((String) data[0], longOf(data[1]), longOf(data[2]), decimalOf(data[3])));
+            }
+
+            return segments;
+        });
+    }
+
+    @Override
+    public List<UserCategory> getTopUserCategories(Long userId) {
+        return resultCache.get("getTopUserCategories", NO_TOPICS, () -> {
+            List<Object[]> results = userActivityRepository.getTopUserCategories(userId);
+            List<UserCategory> categories = new ArrayList<>(results.size());
+
+            for (Object[] data : results) {
+                categories.add(new UserCategory(longOf(data[0]), (String) data[1], longOf(data[2])));
+            }
+
+            return categories;
+        }, userId);
+    }
+
+    @Override
+    public List<OrderItemAggregate> aggregateOrderItems(OrderItemQuery query) {
+        return orderItemColumnStore.aggregate(query);
     }
 
+    // Exports bypass the result cache and write each row as it comes off the cursor
+
     @Override
-    public List<Map<String, Object>> getUserSegmentAnalytics() {
-        List<Object[]> results = userActivityRepository.getUserSegmentAnalytics();
-        List<Map<String, Object>> segments = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> segment = new HashMap<>();
-            segment.put("segment", data[0]);
-            segment.put("userCount", data[1]);
-            segment.put("orderCount", data[2]);
-            segment.put("averageOrderValue", data[3]);
-            segments.add(segment);
+    @Transactional(readOnly = true)
+    public void exportProductStockSummary(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = inventoryStatsRepository.streamProductStockSummary()) {
+            writeRows(rows, PRODUCT_STOCK_COLUMNS, format, out);
         }
-        
-        return segments;
     }
 
     @Override
-    public List<Map<String, Object>> getTopUserCategories(Long userId) {
-        List<Object[]> results = userActivityRepository.getTopUserCategories(userId);
-        List<Map<String, Object>> categories = new ArrayList<>();
-        
-        for (Object[] data : results) {
-            Map<String, Object> category = new HashMap<>();
-            category.put("categoryId", data[0]);
-            category.put("categoryName", data[1]);
-            category.put("uniqueUsers", data[2]);
-            categories.add(category);
+    @Transactional(readOnly = true)
+    public void exportInactiveCustomers(int inactiveDays, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = userActivityRepository.streamInactiveCustomers(inactiveDays)) {
+            writeRows(rows, INACTIVE_CUSTOMER_COLUMNS, format, out);
+        }
+    }
+
+    private void writeRows(Stream<Object[]> rows, String[] columns, ExportFormat format, OutputStream out) throws IOException {
+        try (AnalyticsExportWriter writer = new AnalyticsExportWriter(format, columns, out, objectMapper.getFactory())) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+        }
+    }
+
+    private static List<Long> idsOf(List<TopKSketch.Entry> entries) {
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (TopKSketch.Entry entry : entries) {
+            ids.add(entry.id());
+        }
+        return ids;
+    }
+
+    // Native queries return driver-specific numeric and temporal types, so row values are normalized here
+
+    private static long longOf(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    private static BigDecimal decimalOf(Object value) {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
         }
-        
-        return categories;
+        return value instanceof Double || value instanceof Float
+                ? BigDecimal.valueOf(((Number) value).doubleValue())
+                : BigDecimal.valueOf(((Number) value).longValue());
+    }
+
+    private static LocalDateTime dateTimeOf(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private static BigDecimal averageOf(BigDecimal total, long count) {
+        return count > 0 ? total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP) : null;
     }
 }
@@ -1,5 +1,8 @@
 package com.ecommerce.service.impl;
 
+import com.ecommerce.dto.cart.CartOperation;
+import com.ecommerce.dto.cart.CartSummary;
+import com.ecommerce.entity.ActivitySketch;
 import com.ecommerce.entity.Cart;
 import com.ecommerce.entity.CartItem;
 import com.ecommerce.entity.Product;
@@ -8,16 +11,23 @@ import com.ecommerce.repository.CartItemRepository;
 import com.ecommerce.repository.CartRepository;
 import com.ecommerce.service.interfaces.CartService;
 import com.ecommerce.service.interfaces.ProductService;
+import com.ecommerce.service.interfaces.ShippingService;
 import com.ecommerce.service.interfaces.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -27,6 +37,10 @@ public class CartServiceImpl implements CartService {
     private final CartItemRepository cartItemRepository;
     private final ProductService productService;
     private final UserService userService;
+    private final ShippingService shippingService;
+    private final WriteBackCartStore writeBackCartStore;
+    private final ProductPriceTable productPriceTable;
+    private final ActivitySketchStore activitySketchStore;
 
     @Override
     @Transactional
@@ -46,6 +60,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Optional<Cart> getCartByUserId(Long userId) {
+        flushCart(userId);
         return cartRepository.findByUserId(userId);
     }
 
@@ -56,31 +71,33 @@ public class CartServiceImpl implements CartService {
             throw new IllegalArgumentException("Quantity must be greater than zero");
         }
         
-        // Get product to verify it exists and get its current price
-        Product product = productService.getProductById(productId)
-                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
+        // Current price comes from the in-memory price table instead of a product reload
+        ProductPriceTable.PriceEntry price = productPriceTable.lookup(productId);
+        if (price == null) {
+            throw new EntityNotFoundException("Product not found with id: " + productId);
+        }
+        
+        shippingService.invalidateCartQuote(userId);
+        activitySketchStore.record(ActivitySketch.Metric.CART_USERS, userId);
+        
+        if (writeBackCartStore.isEnabled()) {
+            return writeBackCartStore.addItem(userId, productId, quantity, price);
+        }
         
         // Get or create cart
         Cart cart = getOrCreateCart(userId);
         
-        // Check if product already exists in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId);
+        // Make sure the line exists, then lock it so concurrent adds of the same product serialize
+        cartItemRepository.insertEmptyLine(cart.getId(), productId, LocalDateTime.now());
+        CartItem item = cartItemRepository.findForUpdate(cart.getId(), productId)
+                .orElseThrow(() -> new EntityNotFoundException("Product not found in cart"));
         
-        if (existingItem.isPresent()) {
-            // Update existing item
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + quantity);
-            item.setUnitPrice(product.getPrice()); // Update to current price
-            return cartItemRepository.save(item);
-        } else {
-            // Create new cart item
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setProduct(product);
-            newItem.setQuantity(quantity);
-            newItem.setUnitPrice(product.getPrice());
-            return cartItemRepository.save(newItem);
-        }
+        LineTotals before = LineTotals.of(item);
+        item.setQuantity(item.getQuantity() + quantity);
+        applyPrice(item, price); // Update to current price
+        CartItem savedItem = cartItemRepository.save(item);
+        addToTotals(cart.getId(), LineTotals.of(savedItem).minus(before));
+        return savedItem;
     }
 
     @Override
@@ -90,61 +107,83 @@ public class CartServiceImpl implements CartService {
             return removeItemFromCart(userId, productId) ? null : null;
         }
         
+        ProductPriceTable.PriceEntry price = productPriceTable.lookup(productId);
+        if (price == null) {
+            throw new EntityNotFoundException("Product not found with id: " + productId);
+        }
+        
+        activitySketchStore.record(ActivitySketch.Metric.CART_USERS, userId);
+        if (writeBackCartStore.isEnabled()) {
+            shippingService.invalidateCartQuote(userId);
+            return writeBackCartStore.updateItem(userId, productId, quantity, price);
+        }
+        
         // Get cart
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Cart not found for user"));
         
-        // Find cart item
-        CartItem item = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId)
+        // Find and lock cart item
+        CartItem item = cartItemRepository.findForUpdate(cart.getId(), productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product not found in cart"));
         
-        // Update quantity
-        item.setQuantity(quantity);
+        shippingService.invalidateCartQuote(userId);
+        LineTotals before = LineTotals.of(item);
         
-        // Update price to current product price
-        Product product = productService.getProductById(productId)
-                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
-        item.setUnitPrice(product.getPrice());
+        // Update quantity and price to current product price
+        item.setQuantity(quantity);
+        applyPrice(item, price);
         
-        return cartItemRepository.save(item);
+        CartItem savedItem = cartItemRepository.save(item);
+        addToTotals(cart.getId(), LineTotals.of(savedItem).minus(before));
+        return savedItem;
     }
 
     @Override
     @Transactional
     public boolean removeItemFromCart(Long userId, Long productId) {
+        if (writeBackCartStore.isEnabled()) {
+            shippingService.invalidateCartQuote(userId);
+            return writeBackCartStore.removeItem(userId, productId);
+        }
+        
         Optional<Cart> cartOpt = cartRepository.findByUserId(userId);
         if (cartOpt.isEmpty()) {
             return false;
         }
         
         Cart cart = cartOpt.get();
-        Optional<CartItem> itemOpt = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId);
+        // Locked, so two concurrent removals subtract the line from the totals once
+        Optional<CartItem> itemOpt = cartItemRepository.findForUpdate(cart.getId(), productId);
         if (itemOpt.isEmpty()) {
             return false;
         }
         
         CartItem item = itemOpt.get();
         cartItemRepository.delete(item);
+        shippingService.invalidateCartQuote(userId);
+        addToTotals(cart.getId(), LineTotals.EMPTY.minus(LineTotals.of(item)));
         return true;
     }
 
     @Override
     @Transactional
     public void clearCart(Long userId) {
-        Optional<Cart> cartOpt = cartRepository.findByUserId(userId);
-        if (cartOpt.isPresent()) {
-            Cart cart = cartOpt.get();
-            // Delete all cart items for this cart
+        shippingService.invalidateCartQuote(userId);
+        // Pending in-memory changes are discarded along with the rows, under the cached cart's lock
+        writeBackCartStore.clear(userId, () -> cartRepository.findByUserId(userId).ifPresent(cart -> {
+            // Delete all cart items for this cart and zero its totals
             cartItemRepository.deleteByCartId(cart.getId());
-            
-            // Reload cart to update its state
-            cart.setCartItems(new HashSet<>());
-            cartRepository.save(cart);
-        }
+            cartRepository.setTotals(cart.getId(), 0, BigDecimal.ZERO, 0, LocalDateTime.now());
+        }));
     }
 
     @Override
+    @Transactional
     public List<CartItem> getCartItems(Long userId) {
+        if (writeBackCartStore.isEnabled()) {
+            return writeBackCartStore.getItems(userId);
+        }
+        
         Optional<Cart> cartOpt = cartRepository.findByUserId(userId);
         if (cartOpt.isEmpty()) {
             return new ArrayList<>();
@@ -153,4 +192,209 @@ public class CartServiceImpl implements CartService {
         Cart cart = cartOpt.get();
         return cartItemRepository.findByCartId(cart.getId());
     }
+
+    @Override
+    @Transactional
+    public List<CartItem> getCartItemsWithProducts(Long userId) {
+        if (writeBackCartStore.isEnabled()) {
+            return writeBackCartStore.getItems(userId);
+        }
+        return cartItemRepository.findWithProductByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    public List<CartItem> repriceCart(Long userId) {
+        if (writeBackCartStore.isEnabled()) {
+            if (writeBackCartStore.reprice(userId)) {
+                shippingService.invalidateCartQuote(userId);
+            }
+            return writeBackCartStore.getItems(userId);
+        }
+        
+        // The fetch join reads the product rows, so lines are checked against the database, not the price table
+        List<CartItem> items = cartItemRepository.findWithProductByUserId(userId);
+        List<CartItem> changed = new ArrayList<>();
+        LineTotals delta = LineTotals.EMPTY;
+        for (CartItem item : items) {
+            ProductPriceTable.PriceEntry price = productPriceTable.refresh(item.getProduct());
+            if (productPriceTable.isStale(item, price)) {
+                LineTotals before = LineTotals.of(item);
+                applyPrice(item, price);
+                delta = delta.plus(LineTotals.of(item).minus(before));
+                changed.add(item);
+            }
+        }
+        if (!changed.isEmpty()) {
+            cartItemRepository.saveAll(changed);
+            cartRepository.adjustForRepricing(changed.get(0).getCart().getId(), delta.amount(), delta.weightKg());
+            shippingService.invalidateCartQuote(userId);
+        }
+        return items;
+    }
+
+    private void addToTotals(Long cartId, LineTotals delta) {
+        // Also stamps updatedAt, the activity clock the abandoned-cart sweeper reads
+        cartRepository.addToTotals(cartId, delta.units(), delta.amount(), delta.weightKg(), LocalDateTime.now());
+    }
+
+    private static void applyPrice(CartItem item, ProductPriceTable.PriceEntry price) {
+        item.setUnitPrice(price.price());
+        item.setPriceVersion(price.version());
+        item.setUnitWeightKg(price.unitWeightKg());
+        item.setSubtotal(price.price().multiply(BigDecimal.valueOf(item.getQuantity())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartSummary getCartSummary(Long userId) {
+        if (writeBackCartStore.isEnabled()) {
+            return writeBackCartStore.getSummary(userId);
+        }
+        // Read straight off the cart row; no items are loaded
+        return cartRepository.findByUserId(userId)
+                .map(cart -> CartSummary.builder()
+                        .itemCount(cart.getItemCount())
+                        .subtotal(cart.getTotalAmount())
+                        .totalWeightKg(cart.getTotalWeightKg())
+                        .build())
+                .orElseGet(CartSummary::empty);
+    }
+
+    @Override
+    @Transactional
+    public List<CartItem> applyCartOperations(Long userId, List<CartOperation> operations) {
+        Map<Long, Product> products = loadProductsFor(operations);
+        shippingService.invalidateCartQuote(userId);
+        activitySketchStore.record(ActivitySketch.Metric.CART_USERS, userId);
+        
+        if (writeBackCartStore.isEnabled()) {
+            return writeBackCartStore.applyOperations(userId, operations, products);
+        }
+        
+        Cart cart = getOrCreateCart(userId);
+        Map<Long, CartItem> items = new LinkedHashMap<>();
+        for (CartItem item : cartItemRepository.findWithProductByUserId(userId)) {
+            items.put(item.getProduct().getId(), item);
+        }
+        
+        // Apply the operations in order against the in-memory view
+        Map<Long, CartItem> removed = new HashMap<>();
+        Map<Long, CartItem> changed = new LinkedHashMap<>();
+        for (CartOperation operation : operations) {
+            Long productId = operation.getProductId();
+            CartItem item = items.get(productId);
+            switch (operation.getType()) {
+                case ADD -> {
+                    if (item == null) {
+                        // Re-adding a line removed earlier in the batch reuses its row
+                        item = removed.remove(productId);
+                        if (item == null) {
+                            item = new CartItem();
+                            item.setCart(cart);
+                        }
+                        item.setProduct(products.get(productId));
+                        item.setQuantity(0);
+                        items.put(productId, item);
+                    }
+                    item.setQuantity(item.getQuantity() + operation.getQuantity());
+                    applyPrice(item, productPriceTable.entryFor(products.get(productId)));
+                    changed.put(productId, item);
+                }
+                case UPDATE -> {
+                    if (item == null) {
+                        throw new EntityNotFoundException("Product not found in cart");
+                    }
+                    if (operation.getQuantity() <= 0) {
+                        removeLine(items, removed, changed, productId);
+                    } else {
+                        item.setQuantity(operation.getQuantity());
+                        applyPrice(item, productPriceTable.entryFor(products.get(productId)));
+                        changed.put(productId, item);
+                    }
+                }
+                case REMOVE -> removeLine(items, removed, changed, productId);
+            }
+        }
+        
+        // Written as JDBC batches (hibernate.jdbc.batch_size)
+        cartItemRepository.saveAll(changed.values());
+        cartItemRepository.deleteAllInBatch(removed.values().stream()
+                .filter(item -> item.getId() != null)
+                .toList());
+        
+        // Every line is loaded here, so the totals are rewritten outright rather than adjusted
+        LineTotals totals = LineTotals.EMPTY;
+        for (CartItem item : items.values()) {
+            totals = totals.plus(LineTotals.of(item));
+        }
+        cartRepository.setTotals(cart.getId(), totals.units(), totals.amount(), totals.weightKg(), LocalDateTime.now());
+        return new ArrayList<>(items.values());
+    }
+
+    /**
+     * Helper method to validate a batch and load every product it references in one query
+     */
+    private Map<Long, Product> loadProductsFor(List<CartOperation> operations) {
+        Set<Long> productIds = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation.getType() == CartOperation.Type.ADD && operation.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero");
+            }
+            if (operation.getType() != CartOperation.Type.REMOVE) {
+                productIds.add(operation.getProductId());
+            }
+        }
+        
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productService.getProductsByIds(productIds)) {
+            products.put(product.getId(), product);
+        }
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new EntityNotFoundException("Product not found with id: " + productId);
+            }
+        }
+        return products;
+    }
+
+    private static void removeLine(Map<Long, CartItem> items, Map<Long, CartItem> removed,
+                                   Map<Long, CartItem> changed, Long productId) {
+        CartItem item = items.remove(productId);
+        if (item != null) {
+            changed.remove(productId);
+            removed.put(productId, item);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void flushCart(Long userId) {
+        if (writeBackCartStore.isEnabled()) {
+            writeBackCartStore.flush(userId);
+        }
+    }
+
+    /**
+     * A line's contribution to the cart aggregates
+     */
+    private record LineTotals(int units, BigDecimal amount, double weightKg) {
+
+        static final LineTotals EMPTY = new LineTotals(0, BigDecimal.ZERO, 0);
+
+        static LineTotals of(CartItem item) {
+            int units = item.getQuantity() != null ? item.getQuantity() : 0;
+            BigDecimal amount = item.getSubtotal() != null ? item.getSubtotal() : BigDecimal.ZERO;
+            double weightKg = item.getUnitWeightKg() != null ? item.getUnitWeightKg() * units : 0;
+            return new LineTotals(units, amount, weightKg);
+        }
+
+        LineTotals plus(LineTotals other) {
+            return new LineTotals(units + other.units, amount.add(other.amount), weightKg + other.weightKg);
+        }
+
+        LineTotals minus(LineTotals other) {
+            return new LineTotals(units - other.units, amount.subtract(other.amount), weightKg - other.weightKg);
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package com.ecommerce.service.impl;
 
+import com.ecommerce.dto.coupon.CartLine;
+import com.ecommerce.dto.coupon.CouponEvaluation;
 import com.ecommerce.entity.*;
+import com.ecommerce.metrics.CheckoutMetrics;
 import com.ecommerce.service.interfaces.*;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -21,45 +25,94 @@ public class CheckoutServiceImpl implements CheckoutService {
     private final CartService cartService;
     private final OrderService orderService;
     private final AddressService addressService;
-    private final ProductService productService;
+    private final ProductPriceTable productPriceTable;
     private final InventoryService inventoryService;
     private final UserService userService;
+    private final ShippingService shippingService;
+    private final CouponService couponService;
+    private final CheckoutMetrics checkoutMetrics;
 
     // In a real application, you'd have these services as well
     // private final PaymentService paymentService;
-    // private final CouponService couponService;
-    // private final ShippingService shippingService;
 
     @Override
     @Transactional
     public Order checkout(Long userId, Long addressId, String paymentMethod, String paymentDetails) {
+        return checkout(userId, addressId, paymentMethod, paymentDetails, null);
+    }
+
+    @Override
+    @Transactional
+    public Order checkout(Long userId, Long addressId, String paymentMethod, String paymentDetails, String couponCode) {
+        long start = checkoutMetrics.startStage();
+        long sqlMark = checkoutMetrics.sqlMark();
+        CheckoutMetrics.StageClock stages = checkoutMetrics.startClock(CheckoutMetrics.CHECKOUT);
+        boolean success = false;
+        try {
+            Order order = placeOrder(userId, addressId, paymentMethod, paymentDetails, couponCode, stages);
+            success = true;
+            return order;
+        } finally {
+            stages.finish(success);
+            checkoutMetrics.recordStage(CheckoutMetrics.CHECKOUT, "total", start, success);
+            checkoutMetrics.recordSqlStatements(CheckoutMetrics.CHECKOUT, sqlMark);
+            checkoutMetrics.recordOutcome(CheckoutMetrics.CHECKOUT, success);
+        }
+    }
+
+    private Order placeOrder(Long userId, Long addressId, String paymentMethod, String paymentDetails, String couponCode,
+                             CheckoutMetrics.StageClock stages) {
+        // Persist any pending write-back cart changes before reading the cart
+        stages.start("flush_cart");
+        cartService.flushCart(userId);
+        
         // Validate cart
+        stages.start("validate_cart");
         if (!validateCart(userId)) {
             throw new RuntimeException("Cart validation failed. Some items may be out of stock.");
         }
         
         // Get user's cart and items
-        List<CartItem> cartItems = cartService.getCartItems(userId);
+        stages.start("load_cart");
+        List<CartItem> cartItems = cartService.getCartItemsWithProducts(userId);
         if (cartItems.isEmpty()) {
             throw new RuntimeException("Cannot checkout with an empty cart");
         }
+        stages.stop();
+        checkoutMetrics.recordCartSize(cartItems.size(), cartItems.stream().mapToInt(CartItem::getQuantity).sum());
         
         // Verify shipping address exists and belongs to the user
+        stages.start("verify_address");
         Optional<Address> addressOpt = addressService.getAddressById(addressId);
         if (addressOpt.isEmpty() || !addressOpt.get().getUser().getId().equals(userId)) {
             throw new EntityNotFoundException("Invalid shipping address");
         }
         
+        stages.start("pricing");
         // Calculate totals
-        double subtotal = 0;
+        // Line subtotals are maintained with the cart, so this only adds them up
+        BigDecimal itemsTotal = BigDecimal.ZERO;
         for (CartItem item : cartItems) {
-            subtotal += item.getUnitPrice().doubleValue() * item.getQuantity();
+            itemsTotal = itemsTotal.add(item.getSubtotal());
         }
+        double subtotal = itemsTotal.doubleValue();
         
         // Calculate shipping
         double shippingCost = calculateShippingCost(userId, addressId);
         
-        // Create new order
+        // Apply and redeem the coupon, if any
+        double discount = 0;
+        if (couponCode != null && !couponCode.isBlank()) {
+            CouponEvaluation evaluation = couponService.evaluate(couponCode, toCartLines(cartItems));
+            couponService.redeem(evaluation);
+            discount = evaluation.getDiscountAmount().doubleValue();
+            if (evaluation.isFreeShipping()) {
+                shippingCost = 0;
+            }
+        }
+        
+        // Create new order; building it from the cart lines counts towards creating it
+        stages.start("create_order");
         Order order = new Order();
         
         // Set user object instead of just ID
@@ -76,8 +129,10 @@ public class CheckoutServiceImpl implements CheckoutService {
         order.setBillingAddress(addressOpt.get()); // Using same address for billing by default
         
         // Set total amount as BigDecimal
-        BigDecimal totalAmountDecimal = BigDecimal.valueOf(subtotal + shippingCost);
+        BigDecimal totalAmountDecimal = BigDecimal.valueOf(Math.max(0, subtotal + shippingCost - discount));
         order.setTotalAmount(totalAmountDecimal);
+        order.setShippingAmount(BigDecimal.valueOf(shippingCost));
+        order.setDiscountAmount(BigDecimal.valueOf(discount));
         
         order.setPaymentMethod(paymentMethod);
         order.setOrderNumber(generateOrderNumber()); // Helper method to generate unique order number
@@ -88,17 +143,13 @@ public class CheckoutServiceImpl implements CheckoutService {
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             
-            // Set product object instead of just ID
-            Product product = productService.getProductById(cartItem.getProduct().getId())
-                    .orElseThrow(() -> new EntityNotFoundException("Product not found"));
-            orderItem.setProduct(product);
+            // Validation repriced stale lines against the product rows, so the cart's product and price are current
+            orderItem.setProduct(cartItem.getProduct());
             
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setUnitPrice(cartItem.getUnitPrice());
             
-            // Calculate subtotal for the item
-            BigDecimal subtotalDecimal = cartItem.getUnitPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-            orderItem.setSubtotal(subtotalDecimal);
+            orderItem.setSubtotal(cartItem.getSubtotal());
             
             orderItems.add(orderItem);
         }
@@ -114,22 +165,24 @@ public class CheckoutServiceImpl implements CheckoutService {
         Order createdOrder = orderService.createOrder(order);
         
         // Clear the cart after successful checkout
+        stages.start("clear_cart");
         cartService.clearCart(userId);
+        stages.stop();
         
         return createdOrder;
     }
 
     @Override
     public boolean validateCart(Long userId) {
-        List<CartItem> cartItems = cartService.getCartItems(userId);
+        // Stale line prices are corrected here against the product rows, not on cart reads
+        List<CartItem> cartItems = cartService.repriceCart(userId);
         return validateCartItems(cartItems);
     }
 
     private boolean validateCartItems(List<CartItem> cartItems) {
         for (CartItem item : cartItems) {
             // Validate product exists
-            Optional<Product> productOpt = productService.getProductById(item.getProduct().getId());
-            if (productOpt.isEmpty()) {
+            if (productPriceTable.lookup(item.getProduct().getId()) == null) {
                 return false;
             }
             
@@ -154,36 +207,33 @@ public class CheckoutServiceImpl implements CheckoutService {
 
     @Override
     public double calculateShippingCost(Long userId, Long addressId) {
-        // In a real application, this would have complex logic based on:
-        // - Weight and dimensions of products
-        // - Shipping distance
-        // - Shipping method selected
-        // - Special shipping rules or promotions
-        
-        // For this implementation, we'll use a simple calculation
-        List<CartItem> cartItems = cartService.getCartItems(userId);
-        int totalItems = cartItems.stream().mapToInt(CartItem::getQuantity).sum();
-        
-        // Basic shipping cost + per item fee
-        return 5.0 + (totalItems * 0.5);
+        // Dimensional-weight pricing against the zone/weight-band tables, memoized per cart content
+        cartService.flushCart(userId);
+        return shippingService.quoteCartShipping(userId, addressId);
     }
 
     @Override
     public double applyCoupon(Long userId, String couponCode) {
-        // In a real application, you would:
-        // 1. Validate the coupon code exists and is active
-        // 2. Check if the coupon is applicable to the user's cart
-        // 3. Apply the discount according to the coupon rules
-        // 4. Return the discount amount
-        
-        // For this implementation, we'll just simulate a fixed discount
-        if ("DISCOUNT20".equalsIgnoreCase(couponCode)) {
-            return 20.0;
-        } else if ("FREESHIP".equalsIgnoreCase(couponCode)) {
+        // Evaluation only; the coupon is redeemed when the order is placed
+        CouponEvaluation evaluation = couponService.evaluate(couponCode, toCartLines(cartService.getCartItemsWithProducts(userId)));
+        if (evaluation.isFreeShipping()) {
             return calculateShippingCost(userId, null); // Refund the shipping cost
-        } else {
-            throw new RuntimeException("Invalid coupon code");
         }
+        return evaluation.getDiscountAmount().doubleValue();
+    }
+
+    @Override
+    public List<String> getApplicableCoupons(Long userId) {
+        return couponService.findApplicableCoupons(toCartLines(cartService.getCartItemsWithProducts(userId)));
+    }
+
+    private List<CartLine> toCartLines(List<CartItem> cartItems) {
+        List<CartLine> lines = new ArrayList<>(cartItems.size());
+        for (CartItem item : cartItems) {
+            Product product = item.getProduct();
+            lines.add(new CartLine(product.getId(), product.getCategory().getId(), item.getQuantity(), item.getUnitPrice()));
+        }
+        return lines;
     }
 
     private String generateOrderNumber() {
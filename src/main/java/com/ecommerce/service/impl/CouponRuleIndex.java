@@ -0,0 +1,206 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.coupon.CartLine;
+import com.ecommerce.entity.Coupon;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable, compiled view of the active coupons. Built off the request path and swapped in whole,
+ * so evaluating a cart is a handful of hash lookups with no database access.
+ */
+final class CouponRuleIndex {
+
+    static final CouponRuleIndex EMPTY = new CouponRuleIndex(Map.of(), Map.of(), Map.of(), List.of());
+
+    private final Map<String, CompiledCoupon> byCode;
+    private final Map<Long, List<CompiledCoupon>> byProduct;
+    private final Map<Long, List<CompiledCoupon>> byCategory;
+    private final List<CompiledCoupon> cartWide;
+
+    private CouponRuleIndex(Map<String, CompiledCoupon> byCode,
+                            Map<Long, List<CompiledCoupon>> byProduct,
+                            Map<Long, List<CompiledCoupon>> byCategory,
+                            List<CompiledCoupon> cartWide) {
+        this.byCode = byCode;
+        this.byProduct = byProduct;
+        this.byCategory = byCategory;
+        this.cartWide = cartWide;
+    }
+
+    /**
+     * @param coupons active coupon definitions
+     * @param childrenByCategory category id to direct sub-category ids, used to expand category scopes
+     */
+    static CouponRuleIndex compile(Collection<Coupon> coupons, Map<Long, List<Long>> childrenByCategory) {
+        Map<String, CompiledCoupon> byCode = new HashMap<>();
+        Map<Long, List<CompiledCoupon>> byProduct = new HashMap<>();
+        Map<Long, List<CompiledCoupon>> byCategory = new HashMap<>();
+        List<CompiledCoupon> cartWide = new ArrayList<>();
+
+        for (Coupon coupon : coupons) {
+            long[] categoryIds = new long[0];
+            if (coupon.getScope() == Coupon.Scope.CATEGORY && coupon.getTargetId() != null) {
+                categoryIds = descendantsOf(coupon.getTargetId(), childrenByCategory);
+            }
+            CompiledCoupon compiled = new CompiledCoupon(coupon, categoryIds);
+            byCode.put(normalize(coupon.getCode()), compiled);
+
+            switch (coupon.getScope()) {
+                case PRODUCT -> byProduct.computeIfAbsent(coupon.getTargetId(), id -> new ArrayList<>()).add(compiled);
+                case CATEGORY -> {
+                    for (long categoryId : categoryIds) {
+                        byCategory.computeIfAbsent(categoryId, id -> new ArrayList<>()).add(compiled);
+                    }
+                }
+                default -> cartWide.add(compiled);
+            }
+        }
+        return new CouponRuleIndex(byCode, byProduct, byCategory, cartWide);
+    }
+
+    CompiledCoupon findByCode(String code) {
+        return code == null ? null : byCode.get(normalize(code));
+    }
+
+    int size() {
+        return byCode.size();
+    }
+
+    /**
+     * Every live coupon that would discount at least one of the given lines.
+     */
+    List<CompiledCoupon> applicableTo(List<CartLine> lines, long nowEpochSecond) {
+        Set<CompiledCoupon> candidates = new LinkedHashSet<>(cartWide);
+        for (CartLine line : lines) {
+            candidates.addAll(byProduct.getOrDefault(line.productId(), Collections.emptyList()));
+            candidates.addAll(byCategory.getOrDefault(line.categoryId(), Collections.emptyList()));
+        }
+        List<CompiledCoupon> applicable = new ArrayList<>();
+        for (CompiledCoupon coupon : candidates) {
+            if (coupon.isRedeemableAt(nowEpochSecond) && coupon.meetsMinimum(lines)) {
+                applicable.add(coupon);
+            }
+        }
+        return applicable;
+    }
+
+    private static long[] descendantsOf(Long rootId, Map<Long, List<Long>> childrenByCategory) {
+        Set<Long> seen = new LinkedHashSet<>();
+        List<Long> pending = new ArrayList<>(List.of(rootId));
+        while (!pending.isEmpty()) {
+            Long id = pending.remove(pending.size() - 1);
+            if (seen.add(id)) {
+                pending.addAll(childrenByCategory.getOrDefault(id, Collections.emptyList()));
+            }
+        }
+        long[] ids = seen.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    static String normalize(String code) {
+        return code.trim().toUpperCase();
+    }
+
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static final class CompiledCoupon {
+
+        private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+        final long id;
+        final String code;
+        final Coupon.DiscountType discountType;
+        final BigDecimal discountValue;
+        final Coupon.Scope scope;
+        final long targetId;
+        final long[] categoryIds;
+        final BigDecimal minimumSubtotal;
+        final int usageLimit;
+        final long startsAt;
+        final long expiresAt;
+        // Local mirror of the usage counter; the database update stays authoritative
+        final AtomicInteger usageCount;
+
+        CompiledCoupon(Coupon coupon, long[] categoryIds) {
+            this.id = coupon.getId();
+            this.code = coupon.getCode();
+            this.discountType = coupon.getDiscountType();
+            this.discountValue = coupon.getDiscountValue() != null ? coupon.getDiscountValue() : BigDecimal.ZERO;
+            this.scope = coupon.getScope();
+            this.targetId = coupon.getTargetId() != null ? coupon.getTargetId() : -1L;
+            this.categoryIds = categoryIds;
+            this.minimumSubtotal = coupon.getMinimumSubtotal();
+            this.usageLimit = coupon.getUsageLimit() != null ? coupon.getUsageLimit() : Integer.MAX_VALUE;
+            this.startsAt = coupon.getStartsAt() != null ? toEpochSecond(coupon.getStartsAt()) : Long.MIN_VALUE;
+            this.expiresAt = coupon.getExpiresAt() != null ? toEpochSecond(coupon.getExpiresAt()) : Long.MAX_VALUE;
+            this.usageCount = new AtomicInteger(coupon.getUsageCount() != null ? coupon.getUsageCount() : 0);
+        }
+
+        boolean isRedeemableAt(long nowEpochSecond) {
+            return nowEpochSecond >= startsAt && nowEpochSecond < expiresAt && usageCount.get() < usageLimit;
+        }
+
+        boolean isActiveAt(long nowEpochSecond) {
+            return nowEpochSecond >= startsAt && nowEpochSecond < expiresAt;
+        }
+
+        boolean isExhausted() {
+            return usageCount.get() >= usageLimit;
+        }
+
+        boolean appliesTo(CartLine line) {
+            return switch (scope) {
+                case CART -> true;
+                case PRODUCT -> line.productId() == targetId;
+                case CATEGORY -> Arrays.binarySearch(categoryIds, line.categoryId()) >= 0;
+            };
+        }
+
+        boolean meetsMinimum(List<CartLine> lines) {
+            if (minimumSubtotal == null) {
+                return true;
+            }
+            BigDecimal subtotal = BigDecimal.ZERO;
+            for (CartLine line : lines) {
+                subtotal = subtotal.add(line.subtotal());
+            }
+            return subtotal.compareTo(minimumSubtotal) >= 0;
+        }
+
+        BigDecimal eligibleSubtotal(List<CartLine> lines) {
+            BigDecimal eligible = BigDecimal.ZERO;
+            for (CartLine line : lines) {
+                if (appliesTo(line)) {
+                    eligible = eligible.add(line.subtotal());
+                }
+            }
+            return eligible;
+        }
+
+        BigDecimal discountFor(BigDecimal eligibleSubtotal) {
+            return switch (discountType) {
+                case PERCENTAGE -> eligibleSubtotal.multiply(discountValue)
+                        .divide(HUNDRED, 2, RoundingMode.HALF_UP);
+                case FIXED -> discountValue.min(eligibleSubtotal);
+                case FREE_SHIPPING -> BigDecimal.ZERO;
+            };
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.coupon.CartLine;
+import com.ecommerce.dto.coupon.CouponEvaluation;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Coupon;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.CouponRepository;
+import com.ecommerce.service.interfaces.CouponService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CouponServiceImpl implements CouponService {
+
+    private final CouponRepository couponRepository;
+    private final CategoryRepository categoryRepository;
+
+    private volatile CouponRuleIndex ruleIndex = CouponRuleIndex.EMPTY;
+
+    @Override
+    @Transactional
+    public Coupon createCoupon(Coupon coupon) {
+        if (couponRepository.existsByCodeIgnoreCase(coupon.getCode())) {
+            throw new IllegalArgumentException("Coupon with code '" + coupon.getCode() + "' already exists");
+        }
+        validateDefinition(coupon);
+        
+        coupon.setCode(CouponRuleIndex.normalize(coupon.getCode()));
+        coupon.setUsageCount(0);
+        Coupon savedCoupon = couponRepository.save(coupon);
+        afterCommit(this::reloadRules);
+        return savedCoupon;
+    }
+
+    @Override
+    @Transactional
+    public Coupon updateCoupon(Long couponId, Coupon coupon) {
+        Coupon existingCoupon = couponRepository.findById(couponId)
+                .orElseThrow(() -> new EntityNotFoundException("Coupon not found with id: " + couponId));
+        validateDefinition(coupon);
+        
+        // The code and usage counter are not editable
+        existingCoupon.setDescription(coupon.getDescription());
+        existingCoupon.setDiscountType(coupon.getDiscountType());
+        existingCoupon.setDiscountValue(coupon.getDiscountValue());
+        existingCoupon.setScope(coupon.getScope());
+        existingCoupon.setTargetId(coupon.getTargetId());
+        existingCoupon.setMinimumSubtotal(coupon.getMinimumSubtotal());
+        existingCoupon.setUsageLimit(coupon.getUsageLimit());
+        existingCoupon.setStartsAt(coupon.getStartsAt());
+        existingCoupon.setExpiresAt(coupon.getExpiresAt());
+        if (coupon.getActive() != null) {
+            existingCoupon.setActive(coupon.getActive());
+        }
+        
+        Coupon savedCoupon = couponRepository.save(existingCoupon);
+        afterCommit(this::reloadRules);
+        return savedCoupon;
+    }
+
+    @Override
+    public Optional<Coupon> getCouponById(Long couponId) {
+        return couponRepository.findById(couponId);
+    }
+
+    @Override
+    public List<Coupon> getAllCoupons() {
+        return couponRepository.findAll();
+    }
+
+    @Override
+    @Transactional
+    public void deleteCoupon(Long couponId) {
+        if (!couponRepository.existsById(couponId)) {
+            throw new EntityNotFoundException("Coupon not found with id: " + couponId);
+        }
+        couponRepository.deleteById(couponId);
+        afterCommit(this::reloadRules);
+    }
+
+    @Override
+    public CouponEvaluation evaluate(String couponCode, List<CartLine> lines) {
+        CouponRuleIndex.CompiledCoupon coupon = ruleIndex.findByCode(couponCode);
+        if (coupon == null) {
+            throw new IllegalArgumentException("Invalid coupon code");
+        }
+        
+        long now = CouponRuleIndex.toEpochSecond(LocalDateTime.now());
+        if (!coupon.isActiveAt(now)) {
+            throw new IllegalArgumentException("Coupon is not active");
+        }
+        if (coupon.isExhausted()) {
+            throw new IllegalArgumentException("Coupon usage limit reached");
+        }
+        if (!coupon.meetsMinimum(lines)) {
+            throw new IllegalArgumentException("Cart subtotal is below the coupon minimum");
+        }
+        
+        BigDecimal eligibleSubtotal = coupon.eligibleSubtotal(lines);
+        if (eligibleSubtotal.signum() == 0) {
+            throw new IllegalArgumentException("Coupon does not apply to any item in the cart");
+        }
+        
+        return CouponEvaluation.builder()
+                .couponId(coupon.id)
+                .code(coupon.code)
+                .discountAmount(coupon.discountFor(eligibleSubtotal))
+                .freeShipping(coupon.discountType == Coupon.DiscountType.FREE_SHIPPING)
+                .build();
+    }
+
+    @Override
+    public List<String> findApplicableCoupons(List<CartLine> lines) {
+        long now = CouponRuleIndex.toEpochSecond(LocalDateTime.now());
+        List<String> codes = new ArrayList<>();
+        for (CouponRuleIndex.CompiledCoupon coupon : ruleIndex.applicableTo(lines, now)) {
+            codes.add(coupon.code);
+        }
+        return codes;
+    }
+
+    @Override
+    @Transactional
+    public void redeem(CouponEvaluation evaluation) {
+        if (couponRepository.incrementUsageIfAvailable(evaluation.getCouponId()) == 0) {
+            throw new IllegalArgumentException("Coupon usage limit reached");
+        }
+        
+        // Mirror the increment locally once the checkout commits; a rollback leaves the mirror untouched
+        afterCommit(() -> {
+            CouponRuleIndex.CompiledCoupon coupon = ruleIndex.findByCode(evaluation.getCode());
+            if (coupon != null) {
+                coupon.usageCount.incrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.coupons.refresh-interval-ms:60000}",
+               initialDelayString = "${application.coupons.refresh-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void reloadRules() {
+        Map<Long, List<Long>> childrenByCategory = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            if (category.getParent() != null) {
+                childrenByCategory.computeIfAbsent(category.getParent().getId(), id -> new ArrayList<>())
+                        .add(category.getId());
+            }
+        }
+        
+        ruleIndex = CouponRuleIndex.compile(couponRepository.findByActiveTrue(), childrenByCategory);
+        log.debug("Compiled {} active coupons", ruleIndex.size());
+    }
+
+    /**
+     * Helper method to reject coupon definitions the rule index cannot evaluate
+     */
+    private void validateDefinition(Coupon coupon) {
+        if (coupon.getDiscountType() == null) {
+            throw new IllegalArgumentException("Discount type is required");
+        }
+        if (coupon.getScope() == null) {
+            coupon.setScope(Coupon.Scope.CART);
+        }
+        if (coupon.getScope() != Coupon.Scope.CART && coupon.getTargetId() == null) {
+            throw new IllegalArgumentException("Scoped coupons require a target id");
+        }
+        if (coupon.getDiscountValue() == null || coupon.getDiscountValue().signum() < 0) {
+            throw new IllegalArgumentException("Discount value must be zero or greater");
+        }
+        if (coupon.getDiscountType() == Coupon.DiscountType.PERCENTAGE
+                && coupon.getDiscountValue().compareTo(BigDecimal.valueOf(100)) > 0) {
+            throw new IllegalArgumentException("Percentage discount cannot exceed 100");
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
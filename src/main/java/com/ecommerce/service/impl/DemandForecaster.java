@@ -0,0 +1,334 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.analytics.StockForecast;
+import com.ecommerce.repository.stats.DailyProductRollupRepository;
+import com.ecommerce.repository.stats.InventoryStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Per-product demand forecasts fitted to the daily product rollups, and their comparison with current stock.
+ * Products that sell most days get simple exponential smoothing with the smoothing factor picked by
+ * one-step error; intermittent ones get Croston's method with the Syntetos-Boylan correction. Models are
+ * refitted in parallel once a day after the rollups are rebuilt, since they only use completed days; until
+ * then reads keep using the previous day's fit.
+ * <p>
+ * Order items do not record the warehouse they ship from, so a product's demand is split across its
+ * warehouses by their share of its on-hand stock, or evenly when none of them holds any.
+ */
+@Component
+@Slf4j
+class DemandForecaster {
+
+    private static final int FIT_THRESHOLD = 256;
+    // Average interval between sales above which demand counts as intermittent
+    private static final double INTERMITTENT_INTERVAL = 1.32;
+    private static final double[] SES_ALPHAS = {0.05, 0.1, 0.2, 0.3, 0.5};
+    private static final double CROSTON_ALPHA = 0.1;
+    private static final int RECENT_DAYS = 30;
+
+    record Forecast(String model, double daily, double sigma, long recentUnits) {
+        static final Forecast NONE = new Forecast("NONE", 0, 0, 0);
+    }
+
+    private final DailyProductRollupRepository productRollupRepository;
+    private final InventoryStatsRepository inventoryStatsRepository;
+    private final ForkJoinPool pool;
+
+    private final int historyDays;
+    private final int leadTimeDays;
+    private final double serviceLevelZ;
+    private final double riskThreshold;
+
+    private volatile Map<Long, Forecast> forecasts;
+
+    DemandForecaster(DailyProductRollupRepository productRollupRepository,
+                     InventoryStatsRepository inventoryStatsRepository,
+                     @Value("${application.analytics.forecast.parallelism:0}") int parallelism,
+                     @Value("${application.analytics.forecast.history-days:120}") int historyDays,
+                     @Value("${application.analytics.forecast.lead-time-days:14}") int leadTimeDays,
+                     @Value("${application.analytics.forecast.service-level-z:1.65}") double serviceLevelZ,
+                     @Value("${application.analytics.forecast.risk-threshold:0.2}") double riskThreshold) {
+        this.productRollupRepository = productRollupRepository;
+        this.inventoryStatsRepository = inventoryStatsRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.historyDays = historyDays;
+        this.leadTimeDays = leadTimeDays;
+        this.serviceLevelZ = serviceLevelZ;
+        this.riskThreshold = riskThreshold;
+    }
+
+    @Scheduled(cron = "${application.analytics.forecast.refit-cron:0 20 3 * * *}")
+    public synchronized void refit() {
+        long start = System.currentTimeMillis();
+        LocalDate endDay = LocalDate.now().minusDays(1);
+        LocalDate startDay = endDay.minusDays(historyDays - 1L);
+
+        Map<Long, long[]> series = new HashMap<>();
+        for (Object[] row : productRollupRepository.findDailyUnits(startDay, endDay)) {
+            int index = (int) ChronoUnit.DAYS.between(startDay, (LocalDate) row[1]);
+            series.computeIfAbsent((Long) row[0], id -> new long[historyDays])[index] = ((Number) row[2]).longValue();
+        }
+
+        Long[] productIds = series.keySet().toArray(new Long[0]);
+        long[][] history = new long[productIds.length][];
+        for (int i = 0; i < productIds.length; i++) {
+            history[i] = series.get(productIds[i]);
+        }
+        Forecast[] fitted = new Forecast[productIds.length];
+        pool.invoke(new FitTask(history, fitted, 0, productIds.length));
+
+        Map<Long, Forecast> byProduct = new HashMap<>(productIds.length * 2);
+        for (int i = 0; i < productIds.length; i++) {
+            byProduct.put(productIds[i], fitted[i]);
+        }
+        forecasts = byProduct;
+        log.info("Fitted demand forecasts for {} products in {} ms", productIds.length, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Every inventory row with its forecast demand, risk and reorder suggestion, ranked by shortage risk
+     * within each warehouse
+     */
+    List<StockForecast> forecastStock() {
+        Map<Long, Forecast> current = currentForecasts();
+
+        List<Object[]> positions = inventoryStatsRepository.findStockPositions();
+        Map<Long, long[]> productTotals = new HashMap<>();
+        for (Object[] row : positions) {
+            long[] totals = productTotals.computeIfAbsent((Long) row[0], id -> new long[2]);
+            totals[0] += onHand(row);
+            totals[1]++;
+        }
+
+        List<StockForecast> rows = new ArrayList<>(positions.size());
+        for (Object[] row : positions) {
+            Long productId = (Long) row[0];
+            Forecast forecast = current.getOrDefault(productId, Forecast.NONE);
+            long[] totals = productTotals.get(productId);
+            int available = available(row);
+            int reserved = (Integer) row[5];
+
+            double share = totals[0] > 0 ? (double) onHand(row) / totals[0] : 1.0 / totals[1];
+            double daily = forecast.daily() * share;
+            double leadTimeDemand = daily * leadTimeDays;
+            double leadTimeSigma = forecast.sigma() * share * Math.sqrt(leadTimeDays);
+
+            double risk = leadTimeSigma > 0
+                    ? 1 - normalCdf((available - leadTimeDemand) / leadTimeSigma)
+                    : (available < leadTimeDemand ? 1 : 0);
+            Double daysOfCover = daily > 0 ? round(available / daily, 1) : null;
+
+            rows.add(new StockForecast(productId, (String) row[1], (Long) row[2], (String) row[3],
+                    available, reserved, forecast.recentUnits(), forecast.model(), round(daily, 3), daysOfCover,
+                    round(risk, 4), 0, suggestedReorder(row, available, leadTimeDemand, leadTimeSigma)));
+        }
+
+        rows.sort(Comparator.comparing(StockForecast::warehouseName)
+                .thenComparing(StockForecast::warehouseId)
+                .thenComparing(Comparator.comparingDouble(StockForecast::shortageRisk).reversed())
+                .thenComparing(f -> f.daysOfCover() != null ? f.daysOfCover() : Double.MAX_VALUE));
+        List<StockForecast> ranked = new ArrayList<>(rows.size());
+        int rank = 0;
+        Long warehouseId = null;
+        for (StockForecast f : rows) {
+            rank = f.warehouseId().equals(warehouseId) ? rank + 1 : 1;
+            warehouseId = f.warehouseId();
+            ranked.add(new StockForecast(f.productId(), f.productName(), f.warehouseId(), f.warehouseName(),
+                    f.availableStock(), f.reservedStock(), f.last30DaysSales(), f.model(), f.dailyDemand(),
+                    f.daysOfCover(), f.shortageRisk(), rank, f.suggestedReorderQuantity()));
+        }
+        return ranked;
+    }
+
+    /**
+     * Inventory rows likely to run out within the lead time, keeping their per-warehouse ranking
+     */
+    List<StockForecast> shortageRisks() {
+        return forecastStock().stream().filter(f -> f.shortageRisk() >= riskThreshold).toList();
+    }
+
+    List<StockForecast> reorderSuggestions() {
+        return forecastStock().stream().filter(f -> f.suggestedReorderQuantity() > 0).toList();
+    }
+
+    /**
+     * Helper method to fit on first use; afterwards the last fit is served until the nightly refit replaces it
+     */
+    private Map<Long, Forecast> currentForecasts() {
+        Map<Long, Forecast> current = forecasts;
+        if (current == null) {
+            synchronized (this) {
+                if (forecasts == null) {
+                    refit();
+                }
+                current = forecasts;
+            }
+        }
+        return current;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Helper method to size a reorder once projected stock at the end of the lead time, less safety stock,
+     * falls to the row's reorder threshold; the configured reorder quantity is the minimum order
+     */
+    private int suggestedReorder(Object[] row, int available, double leadTimeDemand, double leadTimeSigma) {
+        int threshold = row[6] != null ? (Integer) row[6] : 0;
+        int minimum = row[7] != null ? (Integer) row[7] : 0;
+        double target = leadTimeDemand + serviceLevelZ * leadTimeSigma + threshold;
+        if (available > target) {
+            return 0;
+        }
+        return Math.max(minimum, (int) Math.ceil(target - available));
+    }
+
+    private static int available(Object[] row) {
+        return Math.max(0, (Integer) row[4] - (Integer) row[5]);
+    }
+
+    private static int onHand(Object[] row) {
+        return Math.max(0, (Integer) row[4]);
+    }
+
+    private static Forecast fit(long[] history) {
+        int sales = 0;
+        long recent = 0;
+        for (int t = 0; t < history.length; t++) {
+            if (history[t] > 0) {
+                sales++;
+            }
+            if (t >= history.length - RECENT_DAYS) {
+                recent += history[t];
+            }
+        }
+        if (sales == 0) {
+            return Forecast.NONE;
+        }
+        return (double) history.length / sales > INTERMITTENT_INTERVAL
+                ? croston(history, recent)
+                : smoothing(history, recent);
+    }
+
+    /**
+     * Helper method to fit simple exponential smoothing, keeping the factor with the lowest one-step error
+     */
+    private static Forecast smoothing(long[] history, long recent) {
+        int warmUp = Math.min(7, history.length);
+        double initial = 0;
+        for (int t = 0; t < warmUp; t++) {
+            initial += history[t];
+        }
+        initial /= warmUp;
+
+        double bestLevel = initial;
+        double bestError = Double.MAX_VALUE;
+        for (double alpha : SES_ALPHAS) {
+            double level = initial;
+            double squaredError = 0;
+            for (int t = warmUp; t < history.length; t++) {
+                double error = history[t] - level;
+                squaredError += error * error;
+                level += alpha * error;
+            }
+            if (squaredError < bestError) {
+                bestError = squaredError;
+                bestLevel = level;
+            }
+        }
+        int steps = Math.max(1, history.length - warmUp);
+        return new Forecast("SES", bestLevel, Math.sqrt(bestError / steps), recent);
+    }
+
+    /**
+     * Helper method to fit Croston's method: demand sizes and intervals between sales are smoothed separately
+     */
+    private static Forecast croston(long[] history, long recent) {
+        double size = -1;
+        double interval = 0;
+        int sinceLast = 0;
+        double squaredError = 0;
+        int steps = 0;
+        for (long demand : history) {
+            sinceLast++;
+            if (size >= 0) {
+                double error = demand - correctedRate(size, interval);
+                squaredError += error * error;
+                steps++;
+            }
+            if (demand > 0) {
+                if (size < 0) {
+                    size = demand;
+                    interval = sinceLast;
+                } else {
+                    size += CROSTON_ALPHA * (demand - size);
+                    interval += CROSTON_ALPHA * (sinceLast - interval);
+                }
+                sinceLast = 0;
+            }
+        }
+        return new Forecast("CROSTON", correctedRate(size, interval), Math.sqrt(squaredError / Math.max(1, steps)), recent);
+    }
+
+    // Syntetos-Boylan approximation; plain Croston overestimates the rate
+    private static double correctedRate(double size, double interval) {
+        return (1 - CROSTON_ALPHA / 2) * size / interval;
+    }
+
+    // Abramowitz-Stegun 7.1.26, accurate to about 1e-7
+    private static double normalCdf(double x) {
+        double z = Math.abs(x) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * z);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+                * Math.exp(-z * z);
+        return x >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+
+    private static double round(double value, int places) {
+        double scale = Math.pow(10, places);
+        return Math.round(value * scale) / scale;
+    }
+
+    private static final class FitTask extends RecursiveAction {
+        private final long[][] history;
+        private final Forecast[] fitted;
+        private final int from;
+        private final int to;
+
+        FitTask(long[][] history, Forecast[] fitted, int from, int to) {
+            this.history = history;
+            this.fitted = fitted;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    fitted[i] = fit(history[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new FitTask(history, fitted, from, mid), new FitTask(history, fitted, mid, to));
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.cart.CartOperation;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.GuestCart;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.GuestCartRepository;
+import com.ecommerce.service.interfaces.CartService;
+import com.ecommerce.service.interfaces.GuestCartService;
+import com.ecommerce.service.interfaces.ProductService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GuestCartServiceImpl implements GuestCartService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final GuestCartRepository guestCartRepository;
+    private final ProductService productService;
+    private final CartService cartService;
+
+    @Value("${application.cart.guest.ttl-ms:604800000}")
+    private long ttlMillis;
+
+    @Value("${application.cart.guest.max-carts:50000}")
+    private int maxCarts;
+
+    @Value("${application.cart.guest.max-lines:100}")
+    private int maxLines;
+
+    @Value("${application.cart.guest.max-line-quantity:999}")
+    private int maxLineQuantity;
+
+    @Value("${application.cart.guest.spill-to-database:false}")
+    private boolean spillToDatabase;
+
+    private final Map<String, PackedCart> carts = new ConcurrentHashMap<>();
+
+    // One entry per cart, ordered by expiry, so the sweep and eviction take the soonest-expiring carts in O(log n)
+    private final NavigableSet<Expiry> expiries = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(Expiry::expiresAt).thenComparing(Expiry::token));
+
+    @Override
+    public String addItem(String token, Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        if (quantity > maxLineQuantity) {
+            throw new IllegalArgumentException("Quantity cannot exceed " + maxLineQuantity);
+        }
+        if (productService.getProductById(productId).isEmpty()) {
+            throw new EntityNotFoundException("Product not found with id: " + productId);
+        }
+
+        while (true) {
+            // Unknown or expired tokens simply start a new cart
+            PackedCart cart = token != null ? find(token).orElse(null) : null;
+            if (cart == null) {
+                token = newToken();
+                PackedCart created = new PackedCart();
+                created.expiresAt = System.currentTimeMillis() + ttlMillis;
+                cart = store(token, created);
+            }
+            synchronized (cart) {
+                if (cart.removed) {
+                    // Evicted between the lookup and the lock; look it up again
+                    continue;
+                }
+                int index = cart.indexOf(productId);
+                if (index < 0) {
+                    if (cart.size >= maxLines) {
+                        throw new IllegalArgumentException("Guest cart cannot hold more than " + maxLines + " products");
+                    }
+                    cart.append(productId, quantity);
+                } else {
+                    if (cart.quantities[index] > maxLineQuantity - quantity) {
+                        throw new IllegalArgumentException("Quantity cannot exceed " + maxLineQuantity);
+                    }
+                    cart.quantities[index] += quantity;
+                }
+                extend(token, cart);
+                return token;
+            }
+        }
+    }
+
+    @Override
+    public void updateItem(String token, Long productId, int quantity) {
+        if (quantity <= 0) {
+            removeItem(token, productId);
+            return;
+        }
+        if (quantity > maxLineQuantity) {
+            throw new IllegalArgumentException("Quantity cannot exceed " + maxLineQuantity);
+        }
+        while (true) {
+            PackedCart cart = find(token).orElseThrow(() -> new EntityNotFoundException("Guest cart not found"));
+            synchronized (cart) {
+                if (cart.removed) {
+                    continue;
+                }
+                int index = cart.indexOf(productId);
+                if (index < 0) {
+                    throw new EntityNotFoundException("Product not found in cart");
+                }
+                cart.quantities[index] = quantity;
+                extend(token, cart);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean removeItem(String token, Long productId) {
+        while (true) {
+            Optional<PackedCart> cartOpt = find(token);
+            if (cartOpt.isEmpty()) {
+                return false;
+            }
+            PackedCart cart = cartOpt.get();
+            synchronized (cart) {
+                if (cart.removed) {
+                    continue;
+                }
+                int index = cart.indexOf(productId);
+                if (index < 0) {
+                    return false;
+                }
+                cart.removeAt(index);
+                extend(token, cart);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void clear(String token) {
+        if (token == null) {
+            return;
+        }
+        PackedCart cart = carts.remove(token);
+        if (cart != null) {
+            synchronized (cart) {
+                cart.removed = true;
+                expiries.remove(new Expiry(cart.expiresAt, token));
+            }
+        }
+        if (spillToDatabase) {
+            guestCartRepository.deleteById(token);
+        }
+    }
+
+    @Override
+    public List<CartItem> getItems(String token) {
+        Optional<PackedCart> cartOpt = find(token);
+        if (cartOpt.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        long[] productIds;
+        int[] quantities;
+        PackedCart cart = cartOpt.get();
+        synchronized (cart) {
+            productIds = Arrays.copyOf(cart.productIds, cart.size);
+            quantities = Arrays.copyOf(cart.quantities, cart.size);
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productService.getProductsByIds(Arrays.stream(productIds).boxed().toList())) {
+            products.put(product.getId(), product);
+        }
+
+        // Guest lines are always priced at the current product price
+        List<CartItem> items = new ArrayList<>(productIds.length);
+        for (int i = 0; i < productIds.length; i++) {
+            Product product = products.get(productIds[i]);
+            if (product == null) {
+                continue;
+            }
+            CartItem item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(quantities[i]);
+            item.setUnitPrice(product.getPrice());
+            item.setSubtotal(product.getPrice().multiply(BigDecimal.valueOf(quantities[i])));
+            items.add(item);
+        }
+        return items;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void mergeIntoUserCart(String token, Long userId) {
+        Optional<PackedCart> cartOpt = find(token);
+        if (cartOpt.isEmpty()) {
+            return;
+        }
+
+        long[] productIds;
+        int[] quantities;
+        PackedCart cart = cartOpt.get();
+        synchronized (cart) {
+            productIds = Arrays.copyOf(cart.productIds, cart.size);
+            quantities = Arrays.copyOf(cart.quantities, cart.size);
+        }
+
+        // Skip products deleted since they were added so the merge cannot fail the login
+        Set<Long> existing = new HashSet<>();
+        for (Product product : productService.getProductsByIds(Arrays.stream(productIds).boxed().toList())) {
+            existing.add(product.getId());
+        }
+
+        List<CartOperation> operations = new ArrayList<>(productIds.length);
+        for (int i = 0; i < productIds.length; i++) {
+            if (existing.contains(productIds[i])) {
+                operations.add(CartOperation.builder()
+                        .type(CartOperation.Type.ADD)
+                        .productId(productIds[i])
+                        .quantity(quantities[i])
+                        .build());
+            }
+        }
+
+        if (!operations.isEmpty()) {
+            cartService.applyCartOperations(userId, operations);
+        }
+        clear(token);
+    }
+
+    @Scheduled(fixedDelayString = "${application.cart.guest.sweep-interval-ms:60000}")
+    @Transactional
+    public void evictExpiredCarts() {
+        long now = System.currentTimeMillis();
+        // Only entries already due are taken out, so a live cart's entry is never briefly missing
+        for (Expiry soonest : expiries) {
+            if (soonest.expiresAt() >= now) {
+                break;
+            }
+            if (expiries.remove(soonest)) {
+                removeIfCurrent(soonest);
+            }
+        }
+        if (spillToDatabase) {
+            int deleted = guestCartRepository.deleteExpired(LocalDateTime.now());
+            if (deleted > 0) {
+                log.info("Deleted {} expired guest carts from the database", deleted);
+            }
+        }
+    }
+
+    /**
+     * Helper method to look up a live cart in memory, falling back to the spilled copy
+     */
+    private Optional<PackedCart> find(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        PackedCart cart = carts.get(token);
+        if (cart != null) {
+            return cart.expiresAt < now ? Optional.empty() : Optional.of(cart);
+        }
+        if (!spillToDatabase) {
+            return Optional.empty();
+        }
+
+        Optional<GuestCart> spilled = guestCartRepository.findById(token);
+        if (spilled.isEmpty()) {
+            return Optional.empty();
+        }
+        PackedCart restored = PackedCart.fromBytes(spilled.get().getPayload());
+        restored.expiresAt = spilled.get().getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (restored.expiresAt < now) {
+            return Optional.empty();
+        }
+        guestCartRepository.deleteById(token);
+        return Optional.of(store(token, restored));
+    }
+
+    private PackedCart store(String token, PackedCart cart) {
+        if (carts.size() >= maxCarts) {
+            evictSoonestExpiring();
+        }
+        // Indexed under the monitor, so a change cannot move the expiry before its entry exists
+        synchronized (cart) {
+            PackedCart existing = carts.putIfAbsent(token, cart);
+            if (existing != null) {
+                return existing;
+            }
+            expiries.add(new Expiry(cart.expiresAt, token));
+            return cart;
+        }
+    }
+
+    /**
+     * Helper method to push a cart's expiry out after a change; the caller holds the cart's monitor. The old
+     * entry may already have been taken by an eviction that will find it out of date, so the new one is
+     * added for any cart still in the map.
+     */
+    private void extend(String token, PackedCart cart) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        expiries.remove(new Expiry(cart.expiresAt, token));
+        cart.expiresAt = expiresAt;
+        if (!cart.removed) {
+            expiries.add(new Expiry(expiresAt, token));
+        }
+    }
+
+    // Makes room by dropping (or spilling) the cart closest to expiry
+    private void evictSoonestExpiring() {
+        Expiry soonest;
+        while ((soonest = expiries.pollFirst()) != null) {
+            PackedCart victim = removeIfCurrent(soonest);
+            if (victim == null) {
+                continue;
+            }
+            if (spillToDatabase && victim.expiresAt > System.currentTimeMillis()) {
+                byte[] payload;
+                synchronized (victim) {
+                    payload = victim.toBytes();
+                }
+                LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(victim.expiresAt), ZoneId.systemDefault());
+                guestCartRepository.save(new GuestCart(soonest.token(), payload, expiresAt));
+            }
+            return;
+        }
+    }
+
+    /**
+     * Helper method to drop the cart an expiry entry was taken for, unless the entry is out of date
+     */
+    private PackedCart removeIfCurrent(Expiry expiry) {
+        PackedCart cart = carts.get(expiry.token());
+        if (cart == null) {
+            return null;
+        }
+        synchronized (cart) {
+            if (cart.expiresAt != expiry.expiresAt() || !carts.remove(expiry.token(), cart)) {
+                return null;
+            }
+            cart.removed = true;
+            return cart;
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private record Expiry(long expiresAt, String token) {
+    }
+
+    /**
+     * Guest cart lines as parallel primitive arrays; a typical cart is a few dozen bytes.
+     */
+    private static final class PackedCart {
+        private static final int LINE_BYTES = Long.BYTES + Integer.BYTES;
+
+        long[] productIds = new long[4];
+        int[] quantities = new int[4];
+        int size;
+        volatile long expiresAt;
+        // Set under the monitor once the cart has left the map; callers holding it look it up again
+        boolean removed;
+
+        int indexOf(long productId) {
+            for (int i = 0; i < size; i++) {
+                if (productIds[i] == productId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void append(long productId, int quantity) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                quantities = Arrays.copyOf(quantities, size * 2);
+            }
+            productIds[size] = productId;
+            quantities[size] = quantity;
+            size++;
+        }
+
+        void removeAt(int index) {
+            int tail = size - index - 1;
+            System.arraycopy(productIds, index + 1, productIds, index, tail);
+            System.arraycopy(quantities, index + 1, quantities, index, tail);
+            size--;
+        }
+
+        byte[] toBytes() {
+            ByteBuffer buffer = ByteBuffer.allocate(size * LINE_BYTES);
+            for (int i = 0; i < size; i++) {
+                buffer.putLong(productIds[i]).putInt(quantities[i]);
+            }
+            return buffer.array();
+        }
+
+        static PackedCart fromBytes(byte[] payload) {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            PackedCart cart = new PackedCart();
+            while (buffer.remaining() >= LINE_BYTES) {
+                cart.append(buffer.getLong(), buffer.getInt());
+            }
+            return cart;
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 public class InventoryServiceImpl implements InventoryService {
 
     private final InventoryRepository inventoryRepository;
+    private final AnalyticsResultCache analyticsResultCache;
 
     @Override
     @Transactional
@@ -31,6 +32,7 @@ public class InventoryServiceImpl implements InventoryService {
             throw new RuntimeException("Inventory already exists for this product and warehouse");
         }
         
+        analyticsResultCache.invalidate(AnalyticsResultCache.Topic.INVENTORY);
         return inventoryRepository.save(inventory);
     }
 
@@ -50,6 +52,7 @@ public class InventoryServiceImpl implements InventoryService {
         existingInventory.setBatchNumber(inventory.getBatchNumber());
         existingInventory.setExpiryDate(inventory.getExpiryDate());
         
+        analyticsResultCache.invalidate(AnalyticsResultCache.Topic.INVENTORY);
         return inventoryRepository.save(existingInventory);
     }
 
@@ -85,6 +88,7 @@ public class InventoryServiceImpl implements InventoryService {
             throw new EntityNotFoundException("Inventory not found with id: " + inventoryId);
         }
         inventoryRepository.deleteById(inventoryId);
+        analyticsResultCache.invalidate(AnalyticsResultCache.Topic.INVENTORY);
     }
 
     @Override
@@ -103,6 +107,7 @@ public class InventoryServiceImpl implements InventoryService {
         // Update status based on new quantity and reorder threshold
         updateInventoryStatus(inventory);
         
+        analyticsResultCache.invalidate(AnalyticsResultCache.Topic.INVENTORY);
         return inventoryRepository.save(inventory);
     }
 
@@ -121,6 +126,7 @@ public class InventoryServiceImpl implements InventoryService {
         // Update status based on available quantity
         updateInventoryStatus(inventory);
         
+        // Reservations change with every order, so inventory results pick them up on expiry instead
         return inventoryRepository.save(inventory);
     }
 
@@ -0,0 +1,217 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import com.ecommerce.repository.stats.LeaderboardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory leaderboards of customers by lifetime revenue and products by units sold per day. Orders are
+ * added when created and taken back out when deleted, once their transaction commits, so reading the top K
+ * is a walk over K entries instead of a GROUP BY over order history. Like the rollups, the boards count
+ * every order whatever its status.
+ * <p>
+ * Both boards are rebuilt from the daily rollups at startup and every few minutes after, which is how
+ * orders placed on other instances reach this one's boards. Orders whose rollup deltas are not yet flushed
+ * when a rebuild reads them are missed until the next rebuild; callers fall back to the rollup queries
+ * whenever a board cannot answer.
+ */
+@Component
+@Slf4j
+class LeaderboardStore {
+
+    // Revenue is tracked in cents so the sketches can stay on long counters
+    private static final int REVENUE_SCALE = 2;
+    private static final Comparator<TopKSketch.Entry> RANKING = Comparator.comparingLong(TopKSketch.Entry::score).reversed()
+            .thenComparingLong(TopKSketch.Entry::id);
+
+    private final LeaderboardRepository leaderboardRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int width;
+    private final int capacity;
+    private final int retentionDays;
+
+    private volatile boolean ready;
+    private volatile TopKSketch customers;
+    private volatile Map<LocalDate, TopKSketch> productDays = new ConcurrentHashMap<>();
+
+    LeaderboardStore(LeaderboardRepository leaderboardRepository,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${application.analytics.leaderboards.sketch-width:4096}") int width,
+                     @Value("${application.analytics.leaderboards.capacity:500}") int capacity,
+                     @Value("${application.analytics.leaderboards.retention-days:90}") int retentionDays) {
+        this.leaderboardRepository = leaderboardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.width = width;
+        this.capacity = capacity;
+        this.retentionDays = retentionDays;
+        this.customers = new TopKSketch(width, capacity);
+    }
+
+    void orderCounted(Order order) {
+        record(order, 1);
+    }
+
+    void orderUncounted(Order order) {
+        record(order, -1);
+    }
+
+    /**
+     * Top customers by revenue, or empty when the board cannot answer for this limit
+     */
+    Optional<List<TopKSketch.Entry>> topCustomers(int limit) {
+        if (!ready || limit > capacity) {
+            return Optional.empty();
+        }
+        return Optional.of(customers.top(limit));
+    }
+
+    /**
+     * Top products by units sold over the days of the range, or empty when the range reaches past the
+     * retained days or the limit is beyond what the boards track. Rebuilding also drops expired days.
+     * Totals over several days are read back exactly from the rollups for the best-placed candidates.
+     */
+    Optional<List<TopKSketch.Entry>> topProducts(LocalDate startDay, LocalDate endDay, int limit) {
+        if (!ready || limit > capacity || startDay.isBefore(firstRetainedDay())) {
+            return Optional.empty();
+        }
+        List<TopKSketch> days = new ArrayList<>();
+        productDays.forEach((day, sketch) -> {
+            if (!day.isBefore(startDay) && !day.isAfter(endDay)) {
+                days.add(sketch);
+            }
+        });
+        if (days.size() <= 1) {
+            return Optional.of(days.isEmpty() ? List.of() : days.get(0).top(limit));
+        }
+
+        // Candidates are the products tracked on some day of the range; one that sold steadily but never
+        // made a single day's board can be missed, which is the usual Space-Saving trade-off. Summing the
+        // days' estimates only shortlists them, since untracked days add Count-Min overestimates.
+        Set<Long> candidates = new LinkedHashSet<>();
+        days.forEach(sketch -> candidates.addAll(sketch.trackedIds()));
+        List<TopKSketch.Entry> estimates = new ArrayList<>(candidates.size());
+        for (Long productId : candidates) {
+            long units = 0;
+            for (TopKSketch sketch : days) {
+                units += sketch.get(productId).score();
+            }
+            estimates.add(new TopKSketch.Entry(productId, units, 0));
+        }
+        estimates.sort(RANKING);
+        List<Long> shortlist = estimates.stream().limit(capacity).map(TopKSketch.Entry::id).toList();
+        if (shortlist.isEmpty()) {
+            return Optional.of(List.of());
+        }
+
+        List<TopKSketch.Entry> totals = new ArrayList<>(shortlist.size());
+        for (Object[] row : transactionTemplate.execute(status -> leaderboardRepository.sumProductUnits(shortlist, startDay, endDay))) {
+            totals.add(new TopKSketch.Entry(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+        }
+        totals.sort(RANKING);
+        return Optional.of(totals.subList(0, Math.min(limit, totals.size())));
+    }
+
+    static BigDecimal revenueOf(TopKSketch.Entry entry) {
+        return BigDecimal.valueOf(entry.score(), REVENUE_SCALE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.analytics.leaderboards.rebuild-interval-ms:300000}",
+               initialDelayString = "${application.analytics.leaderboards.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        TopKSketch rebuiltCustomers = new TopKSketch(width, capacity);
+        Map<LocalDate, TopKSketch> rebuiltDays = new ConcurrentHashMap<>();
+        LocalDate since = firstRetainedDay();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = leaderboardRepository.streamCustomerTotals()) {
+                rows.forEach(row -> rebuiltCustomers.add(((Number) row[0]).longValue(),
+                        cents((BigDecimal) row[1]), ((Number) row[2]).longValue()));
+            }
+            try (Stream<Object[]> rows = leaderboardRepository.streamProductDailyUnits(since)) {
+                rows.forEach(row -> rebuiltDays.computeIfAbsent(toLocalDate(row[0]), day -> new TopKSketch(width, capacity))
+                        .add(((Number) row[1]).longValue(), ((Number) row[2]).longValue(), ((Number) row[3]).longValue()));
+            }
+        });
+
+        customers = rebuiltCustomers;
+        productDays = rebuiltDays;
+        ready = true;
+        log.debug("Rebuilt leaderboards with {} days of product sales", rebuiltDays.size());
+    }
+
+    private void record(Order order, int sign) {
+        if (order.getUser() == null || order.getOrderedAt() == null) {
+            return;
+        }
+        long userId = order.getUser().getId();
+        LocalDate day = order.getOrderedAt().toLocalDate();
+        long revenue = sign * cents(order.getTotalAmount());
+
+        Map<Long, Long> units = new HashMap<>();
+        if (order.getOrderItems() != null) {
+            for (OrderItem item : order.getOrderItems()) {
+                units.merge(item.getProduct().getId(), (long) sign * item.getQuantity(), Long::sum);
+            }
+        }
+
+        afterCommit(() -> {
+            customers.add(userId, revenue, sign);
+            if (day.isBefore(firstRetainedDay())) {
+                return;
+            }
+            TopKSketch sketch = productDays.computeIfAbsent(day, d -> new TopKSketch(width, capacity));
+            units.forEach((productId, quantity) -> sketch.add(productId, quantity, sign));
+        });
+    }
+
+    private LocalDate firstRetainedDay() {
+        return LocalDate.now().minusDays(retentionDays - 1L);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(REVENUE_SCALE).longValue();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
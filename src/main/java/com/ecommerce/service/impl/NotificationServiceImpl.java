@@ -2,6 +2,7 @@ package com.ecommerce.service.impl;
 
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.Product;
+import com.ecommerce.event.AbandonedCartEvent;
 import com.ecommerce.service.interfaces.NotificationService;
 import com.ecommerce.service.interfaces.OrderService;
 import com.ecommerce.service.interfaces.ProductService;
@@ -10,6 +11,8 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -112,6 +115,22 @@ public class NotificationServiceImpl implements NotificationService {
         return sendCustomNotification(userId, "PRICE_DROP", params);
     }
 
+    @Override
+    public boolean sendAbandonedCartReminder(Long userId, long itemCount, LocalDateTime lastActivity) {
+        logger.info("Sending abandoned cart reminder to user {} ({} items)", userId, itemCount);
+        
+        Map<String, Object> params = new HashMap<>();
+        params.put("itemCount", itemCount);
+        params.put("lastActivity", lastActivity);
+        
+        return sendCustomNotification(userId, "ABANDONED_CART", params);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAbandonedCart(AbandonedCartEvent event) {
+        sendAbandonedCartReminder(event.userId(), event.itemCount(), event.lastActivity());
+    }
+
     @Override
     public boolean sendCustomNotification(Long userId, String template, Map<String, Object> params) {
         logger.info("Sending custom notification of type {} to user {}", template, userId);
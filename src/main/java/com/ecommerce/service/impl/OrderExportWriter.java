@@ -0,0 +1,110 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.export.ExportFormat;
+import com.ecommerce.entity.Order;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes orders one row at a time so an export never holds more than the current row in memory.
+ */
+class OrderExportWriter implements AutoCloseable {
+
+    private static final String[] COLUMNS = {
+            "id", "orderNumber", "userId", "totalAmount", "paymentStatus",
+            "orderStatus", "paymentMethod", "trackingNumber", "orderedAt"
+    };
+
+    private final ExportFormat format;
+    private final Writer writer;
+    private final JsonGenerator generator;
+
+    OrderExportWriter(ExportFormat format, OutputStream out, JsonFactory jsonFactory) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        if (format == ExportFormat.NDJSON) {
+            this.generator = jsonFactory.createGenerator(writer);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } else {
+            this.generator = null;
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+    }
+
+    void write(Order order) throws IOException {
+        // The user is a lazy proxy; reading its id does not initialize it
+        Long userId = order.getUser() != null ? order.getUser().getId() : null;
+        if (format == ExportFormat.NDJSON) {
+            writeJson(order, userId);
+        } else {
+            writeCsv(order, userId);
+        }
+    }
+
+    private void writeJson(Order order, Long userId) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectField("id", order.getId());
+        generator.writeStringField("orderNumber", order.getOrderNumber());
+        generator.writeObjectField("userId", userId);
+        generator.writeObjectField("totalAmount", order.getTotalAmount());
+        generator.writeStringField("paymentStatus", nameOf(order.getPaymentStatus()));
+        generator.writeStringField("orderStatus", nameOf(order.getOrderStatus()));
+        generator.writeStringField("paymentMethod", order.getPaymentMethod());
+        generator.writeStringField("trackingNumber", order.getTrackingNumber());
+        generator.writeStringField("orderedAt", order.getOrderedAt() != null ? order.getOrderedAt().toString() : null);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeCsv(Order order, Long userId) throws IOException {
+        writer.write(csv(order.getId()));
+        writer.write(',');
+        writer.write(csv(order.getOrderNumber()));
+        writer.write(',');
+        writer.write(csv(userId));
+        writer.write(',');
+        writer.write(csv(order.getTotalAmount() != null ? order.getTotalAmount().toPlainString() : null));
+        writer.write(',');
+        writer.write(csv(nameOf(order.getPaymentStatus())));
+        writer.write(',');
+        writer.write(csv(nameOf(order.getOrderStatus())));
+        writer.write(',');
+        writer.write(csv(order.getPaymentMethod()));
+        writer.write(',');
+        writer.write(csv(order.getTrackingNumber()));
+        writer.write(',');
+        writer.write(csv(order.getOrderedAt()));
+        writer.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
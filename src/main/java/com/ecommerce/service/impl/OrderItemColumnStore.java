@@ -0,0 +1,561 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.analytics.OrderItemAggregate;
+import com.ecommerce.dto.analytics.OrderItemDimension;
+import com.ecommerce.dto.analytics.OrderItemQuery;
+import com.ecommerce.repository.stats.OrderItemStatsRepository;
+import com.ecommerce.repository.stats.OrderStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Order items joined with their product, category, customer, order status and shipping country, held as
+ * primitive column arrays with dictionary-encoded attributes. Ad-hoc group-by questions are answered by a
+ * parallel in-memory scan instead of a new native query per question.
+ * <p>
+ * New items are appended and order status changes applied on a short refresh interval. Readers always
+ * scan an immutable snapshot: appends only write past the published size and changed columns are copied
+ * before they are modified. A nightly rebuild picks up product recategorisation, deletes made by other
+ * instances and items whose transaction committed out of id order.
+ */
+@Component
+@Slf4j
+class OrderItemColumnStore {
+
+    private static final String UNKNOWN = "unknown";
+
+    // Dictionary-coded dimensions, in column order
+    private static final OrderItemDimension[] CODED = {
+            OrderItemDimension.PRODUCT, OrderItemDimension.CATEGORY, OrderItemDimension.BRAND,
+            OrderItemDimension.CUSTOMER, OrderItemDimension.ORDER_STATUS, OrderItemDimension.COUNTRY
+    };
+    private static final int STATUS_COLUMN = 4;
+
+    private static final int SPLIT_THRESHOLD = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    // Orders updated just before the previous check may have committed after it
+    private static final long STATUS_OVERLAP_SECONDS = 60;
+
+    private final OrderItemStatsRepository orderItemStatsRepository;
+    private final OrderStatsRepository orderStatsRepository;
+    private final ForkJoinPool pool;
+    private final int loadBatchSize;
+
+    // Orders deleted on this instance, applied on the next refresh
+    private final Set<Long> pendingDeletes = ConcurrentHashMap.newKeySet();
+
+    // Writer state, only touched while holding the store's monitor
+    private Segment segment = new Segment();
+    private LocalDateTime lastStatusCheck;
+
+    private volatile Columns columns = new Segment().publish();
+
+    OrderItemColumnStore(OrderItemStatsRepository orderItemStatsRepository,
+                         OrderStatsRepository orderStatsRepository,
+                         @Value("${application.analytics.columnar.parallelism:0}") int parallelism,
+                         @Value("${application.analytics.columnar.load-batch-size:10000}") int loadBatchSize) {
+        this.orderItemStatsRepository = orderItemStatsRepository;
+        this.orderStatsRepository = orderStatsRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${application.analytics.columnar.rebuild-cron:0 15 3 * * *}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDateTime checkStartedAt = LocalDateTime.now();
+        segment = new Segment();
+        appendNewItems();
+        lastStatusCheck = checkStartedAt;
+        applyPendingDeletes();
+        columns = segment.publish();
+        log.info("Loaded {} order items into the column store in {} ms", segment.size, System.currentTimeMillis() - start);
+    }
+
+    @Scheduled(initialDelayString = "${application.analytics.columnar.refresh-ms:60000}",
+            fixedDelayString = "${application.analytics.columnar.refresh-ms:60000}")
+    public synchronized void refresh() {
+        if (lastStatusCheck == null) {
+            return;
+        }
+        LocalDateTime checkStartedAt = LocalDateTime.now();
+        int changed = appendNewItems();
+        changed += applyStatusChanges(lastStatusCheck.minusSeconds(STATUS_OVERLAP_SECONDS));
+        changed += applyPendingDeletes();
+        lastStatusCheck = checkStartedAt;
+        if (changed > 0) {
+            columns = segment.publish();
+        }
+    }
+
+    /**
+     * Drop an order's items once the deleting transaction commits
+     */
+    void orderDeleted(Long orderId) {
+        afterCommit(() -> pendingDeletes.add(orderId));
+    }
+
+    List<OrderItemAggregate> aggregate(OrderItemQuery query) {
+        Columns snapshot = columns;
+        List<OrderItemDimension> groupBy = query.getGroupBy() != null ? query.getGroupBy() : List.of();
+
+        Axis[] axes = new Axis[groupBy.size()];
+        long[] strides = new long[axes.length];
+        long groups = 1;
+        try {
+            for (int a = 0; a < axes.length; a++) {
+                axes[a] = snapshot.axis(requireDimension(groupBy.get(a)));
+                strides[a] = groups;
+                groups = Math.multiplyExact(groups, Math.max(axes[a].cardinality(), 1));
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Too many group-by dimensions for a single query");
+        }
+
+        List<Axis> filterAxes = new ArrayList<>();
+        List<boolean[]> masks = new ArrayList<>();
+        if (query.getFilters() != null) {
+            for (Map.Entry<OrderItemDimension, List<String>> filter : query.getFilters().entrySet()) {
+                Axis axis = snapshot.axis(requireDimension(filter.getKey()));
+                filterAxes.add(axis);
+                masks.add(axis.mask(filter.getValue() != null ? new HashSet<>(filter.getValue()) : Set.of()));
+            }
+        }
+
+        int startDay = query.getStartDate() != null ? (int) query.getStartDate().toEpochDay() : Integer.MIN_VALUE;
+        int endDay = query.getEndDate() != null ? (int) query.getEndDate().toEpochDay() : Integer.MAX_VALUE;
+        Plan plan = new Plan(snapshot, axes, strides, filterAxes.toArray(new Axis[0]),
+                masks.toArray(new boolean[0][]), startDay, endDay);
+
+        GroupTable table = snapshot.size() == 0 ? new GroupTable() : pool.invoke(new ScanTask(plan, 0, snapshot.size()));
+        return decode(table, axes, strides, query);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Helper method to append every item past the last loaded id; returns the number appended
+     */
+    private int appendNewItems() {
+        int appended = 0;
+        while (true) {
+            List<Object[]> rows = orderItemStatsRepository.findFactsAfter(segment.lastItemId, PageRequest.of(0, loadBatchSize));
+            for (Object[] row : rows) {
+                segment.append(row);
+            }
+            appended += rows.size();
+            if (rows.size() < loadBatchSize) {
+                return appended;
+            }
+        }
+    }
+
+    /**
+     * Helper method to re-code the status of items whose order changed since the given time
+     */
+    private int applyStatusChanges(LocalDateTime since) {
+        List<Object[]> changed = orderStatsRepository.findStatusesUpdatedSince(since);
+        if (changed.isEmpty() || segment.size == 0) {
+            return 0;
+        }
+        changed.sort(Comparator.comparing(row -> (Long) row[0]));
+        long[] orderIds = new long[changed.size()];
+        int[] statusCodes = new int[changed.size()];
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = (Long) changed.get(i)[0];
+            statusCodes[i] = segment.dictionaries[STATUS_COLUMN].encode(((Enum<?>) changed.get(i)[1]).name());
+        }
+
+        // Published snapshots may share the status column, so modify a copy
+        int[] statuses = segment.coded[STATUS_COLUMN].clone();
+        int updated = 0;
+        for (int row = 0; row < segment.size; row++) {
+            int i = Arrays.binarySearch(orderIds, segment.orderIds[row]);
+            if (i >= 0 && statuses[row] != statusCodes[i]) {
+                statuses[row] = statusCodes[i];
+                updated++;
+            }
+        }
+        segment.coded[STATUS_COLUMN] = statuses;
+        return updated;
+    }
+
+    private int applyPendingDeletes() {
+        if (pendingDeletes.isEmpty()) {
+            return 0;
+        }
+        Set<Long> orderIds = new HashSet<>(pendingDeletes);
+        int deleted = 0;
+        for (int row = 0; row < segment.size; row++) {
+            if (orderIds.contains(segment.orderIds[row]) && !segment.deleted.get(row)) {
+                segment.deleted.set(row);
+                deleted++;
+            }
+        }
+        pendingDeletes.removeAll(orderIds);
+        return deleted;
+    }
+
+    private static List<OrderItemAggregate> decode(GroupTable table, Axis[] axes, long[] strides, OrderItemQuery query) {
+        List<OrderItemAggregate> results = new ArrayList<>(table.size);
+        for (int slot = 0; slot < table.keys.length; slot++) {
+            long key = table.keys[slot];
+            if (key == GroupTable.EMPTY) {
+                continue;
+            }
+            Object[] group = new Object[axes.length];
+            for (int a = 0; a < axes.length; a++) {
+                int code = (int) ((key / strides[a]) % Math.max(axes[a].cardinality(), 1));
+                group[a] = axes[a].labels()[code];
+            }
+            results.add(new OrderItemAggregate(Arrays.asList(group), table.units[slot],
+                    BigDecimal.valueOf(table.cents[slot], 2), table.lines[slot]));
+        }
+
+        OrderItemQuery.Measure sortBy = query.getSortBy() != null ? query.getSortBy() : OrderItemQuery.Measure.REVENUE;
+        Comparator<OrderItemAggregate> order = switch (sortBy) {
+            case UNITS -> Comparator.comparingLong(OrderItemAggregate::units);
+            case LINES -> Comparator.comparingLong(OrderItemAggregate::lines);
+            case REVENUE -> Comparator.comparing(OrderItemAggregate::revenue);
+        };
+        results.sort(order.reversed());
+
+        if (query.getLimit() != null && query.getLimit() < results.size()) {
+            return new ArrayList<>(results.subList(0, Math.max(query.getLimit(), 0)));
+        }
+        return results;
+    }
+
+    private static OrderItemDimension requireDimension(OrderItemDimension dimension) {
+        if (dimension == null) {
+            throw new IllegalArgumentException("Unknown or missing dimension");
+        }
+        return dimension;
+    }
+
+    private static int codedColumn(OrderItemDimension dimension) {
+        for (int i = 0; i < CODED.length; i++) {
+            if (CODED[i] == dimension) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Growable columns owned by the writer. Arrays are only ever written past the published size, or
+     * replaced, so snapshots can share them.
+     */
+    private static final class Segment {
+        final Dictionary[] dictionaries = new Dictionary[CODED.length];
+        final int[][] coded = new int[CODED.length][INITIAL_CAPACITY];
+        long[] orderIds = new long[INITIAL_CAPACITY];
+        int[] days = new int[INITIAL_CAPACITY];
+        int[] quantities = new int[INITIAL_CAPACITY];
+        long[] revenueCents = new long[INITIAL_CAPACITY];
+        final BitSet deleted = new BitSet();
+        int size;
+        long lastItemId;
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+
+        Segment() {
+            for (int i = 0; i < dictionaries.length; i++) {
+                dictionaries[i] = new Dictionary();
+            }
+        }
+
+        void append(Object[] row) {
+            if (size == orderIds.length) {
+                int capacity = size * 2;
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                days = Arrays.copyOf(days, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                revenueCents = Arrays.copyOf(revenueCents, capacity);
+                for (int i = 0; i < coded.length; i++) {
+                    coded[i] = Arrays.copyOf(coded[i], capacity);
+                }
+            }
+
+            int day = (int) ((LocalDateTime) row[2]).toLocalDate().toEpochDay();
+            orderIds[size] = (Long) row[1];
+            days[size] = day;
+            coded[0][size] = dictionaries[0].encode(row[3]);
+            coded[1][size] = dictionaries[1].encode(row[4]);
+            coded[2][size] = dictionaries[2].encode(row[5]);
+            coded[3][size] = dictionaries[3].encode(row[6]);
+            coded[STATUS_COLUMN][size] = dictionaries[STATUS_COLUMN].encode(((Enum<?>) row[7]).name());
+            coded[5][size] = dictionaries[5].encode(row[8]);
+            quantities[size] = (Integer) row[9];
+            revenueCents[size] = ((BigDecimal) row[10]).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+            lastItemId = (Long) row[0];
+            size++;
+        }
+
+        Columns publish() {
+            Object[][] labels = new Object[CODED.length][];
+            for (int i = 0; i < CODED.length; i++) {
+                labels[i] = dictionaries[i].values();
+            }
+            return new Columns(size, days, coded.clone(), quantities, revenueCents, labels,
+                    deleted.isEmpty() ? null : (BitSet) deleted.clone(), minDay, maxDay);
+        }
+    }
+
+    private static final class Dictionary {
+        private final Map<Object, Integer> codes = new HashMap<>();
+        private Object[] values = new Object[16];
+        private int size;
+
+        int encode(Object value) {
+            // Missing values (no brand, no shipping address) form their own group, which filters can name
+            if (value == null) {
+                value = UNKNOWN;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+
+        Object[] values() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Immutable view of the columns that queries scan
+     */
+    private record Columns(int size, int[] days, int[][] coded, int[] quantities, long[] revenueCents,
+                           Object[][] labels, BitSet deleted, int minDay, int maxDay) {
+
+        Axis axis(OrderItemDimension dimension) {
+            int column = codedColumn(dimension);
+            if (column >= 0) {
+                return new Axis(coded[column], null, 0, labels[column].length, labels[column]);
+            }
+            if (size == 0) {
+                return new Axis(days, new int[0], 0, 0, new Object[0]);
+            }
+
+            // Time dimensions map each day in the loaded range to a bucket through a lookup table
+            int[] bucketOfDay = new int[maxDay - minDay + 1];
+            Map<String, Integer> buckets = new LinkedHashMap<>();
+            for (int day = minDay; day <= maxDay; day++) {
+                String label = timeBucket(dimension, LocalDate.ofEpochDay(day));
+                Integer bucket = buckets.putIfAbsent(label, buckets.size());
+                bucketOfDay[day - minDay] = bucket != null ? bucket : buckets.size() - 1;
+            }
+            return new Axis(days, bucketOfDay, minDay, buckets.size(), buckets.keySet().toArray());
+        }
+
+        private static String timeBucket(OrderItemDimension dimension, LocalDate date) {
+            return switch (dimension) {
+                case DAY -> date.toString();
+                case WEEK -> String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR),
+                        date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+                case MONTH -> YearMonth.from(date).toString();
+                default -> throw new IllegalArgumentException("Unsupported dimension: " + dimension);
+            };
+        }
+    }
+
+    /**
+     * A dimension resolved against a snapshot: per-row codes in [0, cardinality) and their labels
+     */
+    private record Axis(int[] column, int[] bucketOfDay, int dayOffset, int cardinality, Object[] labels) {
+
+        int code(int row) {
+            return bucketOfDay == null ? column[row] : bucketOfDay[column[row] - dayOffset];
+        }
+
+        boolean[] mask(Set<String> allowed) {
+            boolean[] mask = new boolean[cardinality];
+            for (int code = 0; code < cardinality; code++) {
+                mask[code] = allowed.contains(String.valueOf(labels[code]));
+            }
+            return mask;
+        }
+    }
+
+    private record Plan(Columns columns, Axis[] axes, long[] strides, Axis[] filterAxes, boolean[][] masks,
+                        int startDay, int endDay) {
+
+        GroupTable scan(int from, int to) {
+            int[] days = columns.days();
+            int[] quantities = columns.quantities();
+            long[] revenueCents = columns.revenueCents();
+            BitSet deleted = columns.deleted();
+
+            GroupTable table = new GroupTable();
+            rows:
+            for (int row = from; row < to; row++) {
+                int day = days[row];
+                if (day < startDay || day > endDay || (deleted != null && deleted.get(row))) {
+                    continue;
+                }
+                for (int f = 0; f < filterAxes.length; f++) {
+                    if (!masks[f][filterAxes[f].code(row)]) {
+                        continue rows;
+                    }
+                }
+                long key = 0;
+                for (int a = 0; a < axes.length; a++) {
+                    key += axes[a].code(row) * strides[a];
+                }
+                table.add(key, quantities[row], revenueCents[row], 1);
+            }
+            return table;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<GroupTable> {
+        private final Plan plan;
+        private final int from;
+        private final int to;
+
+        ScanTask(Plan plan, int from, int to) {
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GroupTable compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                return plan.scan(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(plan, from, mid);
+            left.fork();
+            GroupTable right = new ScanTask(plan, mid, to).compute();
+            GroupTable merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+    }
+
+    /**
+     * Open-addressing map from a composite group key to its running sums
+     */
+    private static final class GroupTable {
+        static final long EMPTY = -1L;
+
+        long[] keys = newKeys(16);
+        long[] units = new long[16];
+        long[] cents = new long[16];
+        long[] lines = new long[16];
+        int size;
+
+        void add(long key, long unitDelta, long centDelta, long lineDelta) {
+            int slot = slotOf(key);
+            units[slot] += unitDelta;
+            cents[slot] += centDelta;
+            lines[slot] += lineDelta;
+        }
+
+        void merge(GroupTable other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != EMPTY) {
+                    add(other.keys[slot], other.units[slot], other.cents[slot], other.lines[slot]);
+                }
+            }
+        }
+
+        private int slotOf(long key) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size * 2 >= keys.length) {
+                grow();
+                return slotOf(key);
+            }
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldUnits = units;
+            long[] oldCents = cents;
+            long[] oldLines = lines;
+            int capacity = oldKeys.length * 2;
+            keys = newKeys(capacity);
+            units = new long[capacity];
+            cents = new long[capacity];
+            lines = new long[capacity];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    add(oldKeys[slot], oldUnits[slot], oldCents[slot], oldLines[slot]);
+                }
+            }
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -1,36 +1,81 @@
 package com.ecommerce.service.impl;
 
+import com.ecommerce.dto.export.ExportFormat;
+import com.ecommerce.entity.ActivitySketch;
 import com.ecommerce.entity.Inventory;
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.OrderItem;
+import com.ecommerce.entity.OrderSummary;
 import com.ecommerce.entity.Product;
+import com.ecommerce.metrics.CheckoutMetrics;
 import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.OrderSummaryRepository;
 import com.ecommerce.service.interfaces.InventoryService;
 import com.ecommerce.service.interfaces.OrderService;
 import com.ecommerce.service.interfaces.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
+    private static final Set<String> SUMMARY_SORT_PROPERTIES = Set.of(
+            "orderedAt", "orderNumber", "orderStatus", "paymentStatus", "totalAmount", "itemCount");
+
     private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
     private final ProductService productService;
     private final InventoryService inventoryService;
+    private final ObjectMapper objectMapper;
+    private final CheckoutMetrics checkoutMetrics;
+    private final AnalyticsRollupWriter analyticsRollupWriter;
+    private final OrderItemColumnStore orderItemColumnStore;
+    private final ActivitySketchStore activitySketchStore;
+    private final LeaderboardStore leaderboardStore;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
     @Transactional
     public Order createOrder(Order order) {
+        long start = checkoutMetrics.startStage();
+        long sqlMark = checkoutMetrics.sqlMark();
+        CheckoutMetrics.StageClock stages = checkoutMetrics.startClock(CheckoutMetrics.CREATE_ORDER);
+        boolean success = false;
+        try {
+            Order savedOrder = insertOrder(order, stages);
+            success = true;
+            return savedOrder;
+        } finally {
+            stages.finish(success);
+            checkoutMetrics.recordStage(CheckoutMetrics.CREATE_ORDER, "total", start, success);
+            checkoutMetrics.recordSqlStatements(CheckoutMetrics.CREATE_ORDER, sqlMark);
+            checkoutMetrics.recordOutcome(CheckoutMetrics.CREATE_ORDER, success);
+        }
+    }
+
+    private Order insertOrder(Order order, CheckoutMetrics.StageClock stages) {
         // Set order date if not already set
         if (order.getOrderedAt() == null) {
             order.setOrderedAt(LocalDateTime.now());
@@ -46,6 +91,9 @@ public class OrderServiceImpl implements OrderService {
             order.setPaymentStatus(Order.PaymentStatus.PENDING);
         }
         
+        int itemCount = 0;
+        String thumbnailUrl = null;
+        
         // Calculate total amount and set product references
         if (order.getOrderItems() != null && !order.getOrderItems().isEmpty()) {
             BigDecimal total = BigDecimal.ZERO;
@@ -54,6 +102,7 @@ public class OrderServiceImpl implements OrderService {
                 // Set order reference
                 item.setOrder(order);
                 
+                stages.start("product_reload");
                 Optional<Product> productOpt = productService.getProductById(item.getProduct().getId());
                 if (productOpt.isPresent()) {
                     Product product = productOpt.get();
@@ -63,7 +112,13 @@ public class OrderServiceImpl implements OrderService {
                     item.setSubtotal(itemTotal);
                     total = total.add(itemTotal);
                     
+                    itemCount += item.getQuantity();
+                    if (thumbnailUrl == null) {
+                        thumbnailUrl = product.getImageUrl();
+                    }
+                    
                     // Check and reserve inventory
+                    stages.start("reserve_inventory");
                     List<Inventory> inventoryItems = inventoryService.getInventoryByProductId(product.getId());
                     if (inventoryItems.isEmpty()) {
                         throw new RuntimeException("No inventory found for product ID: " + product.getId());
@@ -73,6 +128,7 @@ public class OrderServiceImpl implements OrderService {
                     // In a real implementation, this would be more sophisticated
                     Inventory inventory = inventoryItems.get(0);
                     if (inventory.getQuantity() - inventory.getReservedQuantity() < item.getQuantity()) {
+                        checkoutMetrics.recordReservationConflict();
                         throw new RuntimeException("Insufficient inventory for product ID: " + product.getId());
                     }
                     
@@ -81,10 +137,33 @@ public class OrderServiceImpl implements OrderService {
                     throw new EntityNotFoundException("Product not found with id: " + item.getProduct().getId());
                 }
             }
-            order.setTotalAmount(total);
+            
+            // Items are repriced above; shipping and discount come from checkout
+            BigDecimal shipping = order.getShippingAmount() != null ? order.getShippingAmount() : BigDecimal.ZERO;
+            BigDecimal discount = order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO;
+            order.setTotalAmount(total.add(shipping).subtract(discount).max(BigDecimal.ZERO));
         }
         
-        return orderRepository.save(order);
+        stages.start("insert");
+        Order savedOrder = orderRepository.save(order);
+        
+        // Keep the order history read model in step with the order; persisted directly since the row is new
+        entityManager.persist(new OrderSummary(
+                savedOrder.getId(),
+                savedOrder.getUser().getId(),
+                savedOrder.getOrderNumber(),
+                savedOrder.getOrderedAt(),
+                savedOrder.getOrderStatus(),
+                savedOrder.getPaymentStatus(),
+                savedOrder.getTotalAmount(),
+                itemCount,
+                thumbnailUrl));
+        analyticsRollupWriter.orderCreated(savedOrder);
+        activitySketchStore.record(ActivitySketch.Metric.BUYERS, savedOrder.getUser().getId());
+        leaderboardStore.orderCounted(savedOrder);
+        stages.stop();
+        
+        return savedOrder;
     }
 
     @Override
@@ -102,6 +181,19 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findByUserId(userId, pageable);
     }
 
+    @Override
+    public Page<OrderSummary> getOrderSummariesByUserId(Long userId, Pageable pageable) {
+        // Unsorted requests get newest first, which the (user_id, ordered_at desc) index serves directly
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by(Sort.Direction.DESC, "orderedAt");
+        for (Sort.Order order : sort) {
+            if (!SUMMARY_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Order history cannot be sorted by " + order.getProperty());
+            }
+        }
+        return orderSummaryRepository.findByUserId(
+                userId, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
+    }
+
     @Override
     public List<Order> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         return orderRepository.findByOrderedAtBetween(startDate, endDate);
@@ -112,6 +204,23 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findByOrderStatus(status);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                        ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Order> orders = orderRepository.streamByOrderedAtBetween(startDate, endDate)) {
+            writeOrders(orders, format, out);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOrdersByStatus(Order.OrderStatus status, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Order> orders = orderRepository.streamByOrderStatus(status)) {
+            writeOrders(orders, format, out);
+        }
+    }
+
     @Override
     @Transactional
     public Order updateOrderStatus(Long orderId, Order.OrderStatus newStatus) {
@@ -146,7 +255,9 @@ public class OrderServiceImpl implements OrderService {
             confirmInventoryForOrder(order);
         }
         
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        orderSummaryRepository.updateOrderStatus(orderId, newStatus);
+        return savedOrder;
     }
 
     @Override
@@ -167,6 +278,7 @@ public class OrderServiceImpl implements OrderService {
         releaseInventoryForOrder(order);
         
         orderRepository.save(order);
+        orderSummaryRepository.updateOrderStatus(orderId, Order.OrderStatus.CANCELLED);
     }
     
     @Override
@@ -180,7 +292,11 @@ public class OrderServiceImpl implements OrderService {
             releaseInventoryForOrder(order);
         }
         
+        leaderboardStore.orderUncounted(order);
+        analyticsRollupWriter.orderDeleted(order);
+        orderItemColumnStore.orderDeleted(orderId);
         orderRepository.delete(order);
+        orderSummaryRepository.deleteById(orderId);
     }
     
     @Override
@@ -190,9 +306,25 @@ public class OrderServiceImpl implements OrderService {
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with id: " + orderId));
         
         order.setPaymentStatus(newStatus);
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        orderSummaryRepository.updatePaymentStatus(orderId, newStatus);
+        return savedOrder;
     }
     
+    /**
+     * Helper method to write a cursor of orders, detaching each one so the persistence context stays empty
+     */
+    private void writeOrders(Stream<Order> orders, ExportFormat format, OutputStream out) throws IOException {
+        try (OrderExportWriter writer = new OrderExportWriter(format, out, objectMapper.getFactory())) {
+            Iterator<Order> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
+                writer.write(order);
+                entityManager.detach(order);
+            }
+        }
+    }
+
     /**
      * Helper method to release inventory for all items in an order
      */
@@ -0,0 +1,127 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current price, price version and billable unit weight of every product, so cart writes can price lines without
+ * loading products. Kept in step by ProductServiceImpl and reloaded periodically to pick up changes
+ * made by other instances; entries only ever move to a newer version. Checkout re-reads the product
+ * rows rather than trusting this table.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class ProductPriceTable {
+
+    private final ProductRepository productRepository;
+
+    @Value("${application.shipping.dimensional-divisor:5000}")
+    private double dimensionalDivisor;
+
+    private final Map<Long, PriceEntry> prices = new ConcurrentHashMap<>();
+
+    record PriceEntry(long version, BigDecimal price, double unitWeightKg) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.cart.price-table-refresh-ms:300000}",
+            fixedDelayString = "${application.cart.price-table-refresh-ms:300000}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        // Merged by version rather than swapped, so a price published while the query ran is not rolled back
+        Set<Long> known = new HashSet<>(prices.keySet());
+        int loaded = 0;
+        for (Object[] row : productRepository.findAllPriceVersions()) {
+            double unitWeightKg = ShippingWeights.billableWeightKg((Double) row[3], (String) row[4],
+                    (Double) row[5], (Double) row[6], (Double) row[7], (String) row[8], dimensionalDivisor);
+            Long productId = (Long) row[0];
+            prices.merge(productId, new PriceEntry((Long) row[2], (BigDecimal) row[1], unitWeightKg), ProductPriceTable::newer);
+            known.remove(productId);
+            loaded++;
+        }
+        // Products known before the query but missing from it were deleted elsewhere
+        known.forEach(prices::remove);
+        log.info("Loaded prices for {} products", loaded);
+    }
+
+    /**
+     * Price entry for a product, reading it through from the database on a miss; null if the product
+     * does not exist
+     */
+    PriceEntry lookup(Long productId) {
+        PriceEntry entry = prices.get(productId);
+        if (entry != null) {
+            return entry;
+        }
+        return productRepository.findById(productId)
+                .map(this::refresh)
+                .orElse(null);
+    }
+
+    /**
+     * Price entry of a product row just read from the database, recorded unless the table already
+     * holds a newer version
+     */
+    PriceEntry refresh(Product product) {
+        PriceEntry entry = entryFor(product);
+        prices.merge(product.getId(), entry, ProductPriceTable::newer);
+        return entry;
+    }
+
+    boolean isStale(CartItem item, PriceEntry entry) {
+        return entry != null && (item.getPriceVersion() == null || item.getPriceVersion() < entry.version());
+    }
+
+    /**
+     * Publish a saved product's price once the surrounding transaction commits
+     */
+    void publish(Product product) {
+        Long productId = product.getId();
+        PriceEntry entry = entryFor(product);
+        afterCommit(() -> prices.merge(productId, entry, ProductPriceTable::newer));
+    }
+
+    void remove(Long productId) {
+        afterCommit(() -> prices.remove(productId));
+    }
+
+    PriceEntry entryFor(Product product) {
+        return new PriceEntry(product.getPriceVersion(), product.getPrice(),
+                ShippingWeights.billableWeightKg(product, dimensionalDivisor));
+    }
+
+    private static PriceEntry newer(PriceEntry current, PriceEntry updated) {
+        return updated.version() >= current.version() ? updated : current;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -10,7 +10,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -18,11 +20,15 @@ import java.util.Optional;
 public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductPriceTable productPriceTable;
 
     @Override
     @Transactional
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        product.setPriceVersion(0L);
+        Product savedProduct = productRepository.save(product);
+        productPriceTable.publish(savedProduct);
+        return savedProduct;
     }
 
     @Override
@@ -31,6 +37,12 @@ public class ProductServiceImpl implements ProductService {
         Product existingProduct = productRepository.findById(productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
         
+        // Bump the price version so carts holding the old price or shipping weight get repriced at checkout
+        boolean priceChanged = product.getPrice() != null && existingProduct.getPrice().compareTo(product.getPrice()) != 0;
+        if (priceChanged || !sameShippingDimensions(existingProduct, product)) {
+            existingProduct.setPriceVersion(existingProduct.getPriceVersion() + 1);
+        }
+        
         // Update fields
         existingProduct.setName(product.getName());
         existingProduct.setDescription(product.getDescription());
@@ -49,7 +61,9 @@ public class ProductServiceImpl implements ProductService {
         existingProduct.setDimensionUnit(product.getDimensionUnit());
         existingProduct.setActive(product.getActive());
         
-        return productRepository.save(existingProduct);
+        Product savedProduct = productRepository.save(existingProduct);
+        productPriceTable.publish(savedProduct);
+        return savedProduct;
     }
 
     @Override
@@ -57,6 +71,17 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findById(productId);
     }
 
+    @Override
+    public List<Product> getProductsByIds(Collection<Long> productIds) {
+        return productRepository.findAllById(productIds);
+    }
+
+    @Override
+    public Product getProductReference(Long productId) {
+        // Lazy proxy for wiring associations; no select is issued
+        return productRepository.getReferenceById(productId);
+    }
+
     @Override
     public List<Product> getAllProducts() {
         return productRepository.findAll();
@@ -89,6 +114,7 @@ public class ProductServiceImpl implements ProductService {
             throw new EntityNotFoundException("Product not found with id: " + productId);
         }
         productRepository.deleteById(productId);
+        productPriceTable.remove(productId);
     }
 
     @Override
@@ -106,4 +132,16 @@ public class ProductServiceImpl implements ProductService {
     public Page<Product> searchProducts(String keyword, Pageable pageable) {
         return productRepository.findByNameContainingIgnoreCase(keyword, pageable);
     }
+
+    /**
+     * Helper method to check whether an update leaves the inputs of the billable shipping weight unchanged
+     */
+    private static boolean sameShippingDimensions(Product existing, Product updated) {
+        return Objects.equals(existing.getWeight(), updated.getWeight())
+                && Objects.equals(existing.getWeightUnit(), updated.getWeightUnit())
+                && Objects.equals(existing.getWidth(), updated.getWidth())
+                && Objects.equals(existing.getHeight(), updated.getHeight())
+                && Objects.equals(existing.getDepth(), updated.getDepth())
+                && Objects.equals(existing.getDimensionUnit(), updated.getDimensionUnit());
+    }
 }
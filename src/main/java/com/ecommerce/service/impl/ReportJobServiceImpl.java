@@ -0,0 +1,254 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.config.ReportRoutingDataSource;
+import com.ecommerce.dto.analytics.ReportRequest;
+import com.ecommerce.entity.ReportJob;
+import com.ecommerce.entity.ReportResult;
+import com.ecommerce.exception.ServiceBusyException;
+import com.ecommerce.repository.ReportJobRepository;
+import com.ecommerce.repository.ReportResultRepository;
+import com.ecommerce.service.interfaces.AnalyticsService;
+import com.ecommerce.service.interfaces.ReportJobService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs analytics reports on a bounded pool of worker threads whose queries use the dedicated report
+ * connection pool, and stores each result for later download. A request identical to one still queued or
+ * running is answered with the existing job instead of starting another.
+ */
+@Service
+@Slf4j
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportResultRepository reportResultRepository;
+    private final AnalyticsService analyticsService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+
+    private final int retentionDays;
+    private final int staleAfterMinutes;
+
+    // Jobs queued or running on this instance, whose heartbeat it keeps advancing
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ReportJobServiceImpl(ReportJobRepository reportJobRepository,
+                                ReportResultRepository reportResultRepository,
+                                AnalyticsService analyticsService,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${application.analytics.reports.threads:2}") int threads,
+                                @Value("${application.analytics.reports.queue-capacity:20}") int queueCapacity,
+                                @Value("${application.analytics.reports.retention-days:7}") int retentionDays,
+                                @Value("${application.analytics.reports.stale-after-minutes:60}") int staleAfterMinutes) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportResultRepository = reportResultRepository;
+        this.analyticsService = analyticsService;
+        this.objectMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.staleAfterMinutes = staleAfterMinutes;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "analytics-report-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public ReportJob submitReport(ReportRequest request, Long userId) {
+        String parameters = toJson(request);
+        String requestKey = sha256(parameters);
+
+        Optional<ReportJob> running = reportJobRepository.findByActiveKey(requestKey);
+        if (running.isPresent()) {
+            return running.get();
+        }
+
+        ReportJob job = new ReportJob();
+        job.setType(request.getType());
+        job.setParameters(parameters);
+        job.setRequestKey(requestKey);
+        job.setActiveKey(requestKey);
+        job.setRequestedBy(userId);
+        ReportJob created;
+        try {
+            created = transactionTemplate.execute(status -> reportJobRepository.saveAndFlush(job));
+        } catch (DataIntegrityViolationException e) {
+            // The same request was submitted concurrently, here or on another instance; if that job has
+            // already finished, its result answers this request too
+            return reportJobRepository.findByActiveKey(requestKey)
+                    .or(() -> reportJobRepository.findFirstByRequestKeyOrderByIdDesc(requestKey))
+                    .orElseThrow(() -> e);
+        }
+
+        Long jobId = created.getId();
+        inFlight.add(jobId);
+        try {
+            executor.execute(() -> run(jobId, request));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(jobId);
+            reportJobRepository.deleteById(jobId);
+            throw new ServiceBusyException("Too many reports queued, please retry shortly", 30);
+        }
+        return created;
+    }
+
+    @Override
+    public Optional<ReportJob> getReportJob(Long jobId) {
+        return reportJobRepository.findById(jobId);
+    }
+
+    @Override
+    public Optional<ReportResult> getReportResult(Long jobId) {
+        return reportResultRepository.findById(jobId);
+    }
+
+    @Scheduled(fixedDelayString = "${application.analytics.reports.cleanup-interval-ms:600000}")
+    public void cleanUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ownJobs = List.copyOf(inFlight);
+        if (!ownJobs.isEmpty()) {
+            transactionTemplate.execute(status -> reportJobRepository.heartbeat(ownJobs, now));
+        }
+        int stale = transactionTemplate.execute(status -> reportJobRepository.failStale(
+                now.minusMinutes(staleAfterMinutes), "Report did not finish; the instance running it may have stopped", now));
+        if (stale > 0) {
+            log.warn("Marked {} stale report jobs as failed", stale);
+        }
+
+        List<Long> expired = reportJobRepository.findIdsCompletedBefore(now.minusDays(retentionDays));
+        if (!expired.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                reportResultRepository.deleteAllByIdInBatch(expired);
+                reportJobRepository.deleteAllByIdInBatch(expired);
+            });
+            log.info("Deleted {} expired report jobs", expired.size());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Long jobId, ReportRequest request) {
+        try {
+            if (transactionTemplate.execute(status -> reportJobRepository.markRunning(jobId, LocalDateTime.now())) == 0) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Object result = ReportRoutingDataSource.onReportPool(() -> execute(request));
+            byte[] payload = objectMapper.writeValueAsBytes(result);
+            Integer rowCount = result instanceof Collection<?> rows ? rows.size() : null;
+
+            boolean completed = transactionTemplate.execute(status -> {
+                if (reportJobRepository.markCompleted(jobId, rowCount, LocalDateTime.now()) == 0) {
+                    return false;
+                }
+                reportResultRepository.save(new ReportResult(jobId, "application/json", payload));
+                return true;
+            });
+            if (!completed) {
+                log.warn("Report job {} ({}) was failed as stale before it finished; result discarded", jobId, request.getType());
+                return;
+            }
+            log.info("Report job {} ({}) completed in {} ms", jobId, request.getType(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Report job {} ({}) failed", jobId, request.getType(), e);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            transactionTemplate.executeWithoutResult(status -> reportJobRepository.markFailed(
+                    jobId, message.length() > 1000 ? message.substring(0, 1000) : message, LocalDateTime.now()));
+        } finally {
+            inFlight.remove(jobId);
+        }
+    }
+
+    private Object execute(ReportRequest request) {
+        return switch (request.getType()) {
+            case ORDER_STATS -> analyticsService.getOrderStatsByDateRange(required(request.getStartDate(), "startDate"),
+                    required(request.getEndDate(), "endDate"));
+            case MONTHLY_ORDER_STATS -> analyticsService.getMonthlyOrderStats(required(request.getStartDate(), "startDate"),
+                    required(request.getEndDate(), "endDate"));
+            case TOP_CUSTOMERS -> analyticsService.getTopCustomersByRevenue(limitOf(request));
+            case TOP_SELLING_PRODUCTS -> analyticsService.getTopSellingProducts(required(request.getStartDate(), "startDate"),
+                    required(request.getEndDate(), "endDate"), limitOf(request));
+            case CATEGORY_REVENUE -> analyticsService.getCategoryRevenueInPeriod(required(request.getStartDate(), "startDate"),
+                    required(request.getEndDate(), "endDate"));
+            case PRODUCT_STOCK_SUMMARY -> analyticsService.getProductStockSummary();
+            case WAREHOUSE_VALUE_SUMMARY -> analyticsService.getWarehouseValueSummary();
+            case INVENTORY_VALUE_BY_CATEGORY -> analyticsService.getInventoryValueByCategory();
+            case STOCK_SHORTAGE_RISK -> analyticsService.getStockShortageRisk();
+            case REORDER_SUGGESTIONS -> analyticsService.getReorderSuggestions();
+            case MONTHLY_ACTIVE_USERS -> analyticsService.getMonthlyActiveUsers(required(request.getStartDate(), "startDate"),
+                    required(request.getEndDate(), "endDate"));
+            case DAILY_ACTIVE_USERS -> analyticsService.getDailyActiveUsers(required(request.getMetric(), "metric"),
+                    required(request.getStartDate(), "startDate"), required(request.getEndDate(), "endDate"));
+            case ACTIVE_USERS_IN_WINDOW -> analyticsService.getActiveUsersInWindow(required(request.getMetric(), "metric"),
+                    required(request.getStartDate(), "startDate"), required(request.getEndDate(), "endDate"));
+            case INACTIVE_CUSTOMERS -> analyticsService.getInactiveCustomers(required(request.getInactiveDays(), "inactiveDays"));
+            case USER_SEGMENTS -> analyticsService.getUserSegmentAnalytics();
+            case ORDER_ITEM_AGGREGATE -> analyticsService.aggregateOrderItems(required(request.getQuery(), "query"));
+        };
+    }
+
+    private static int limitOf(ReportRequest request) {
+        return request.getLimit() != null ? request.getLimit() : 100;
+    }
+
+    private static <T> T required(T value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Report parameter '" + name + "' is required");
+        }
+        return value;
+    }
+
+    private String toJson(ReportRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Report request cannot be serialized", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
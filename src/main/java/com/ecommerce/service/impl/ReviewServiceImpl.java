@@ -1,5 +1,6 @@
 package com.ecommerce.service.impl;
 
+import com.ecommerce.entity.ActivitySketch;
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.Review;
 import com.ecommerce.entity.User;
@@ -26,6 +27,7 @@ public class ReviewServiceImpl implements ReviewService {
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ActivitySketchStore activitySketchStore;
 
     @Override
     @Transactional
@@ -48,6 +50,7 @@ public class ReviewServiceImpl implements ReviewService {
         }
         review.setUpdatedAt(LocalDateTime.now());
         
+        activitySketchStore.record(ActivitySketch.Metric.REVIEWERS, user.getId());
         return reviewRepository.save(review);
     }
 
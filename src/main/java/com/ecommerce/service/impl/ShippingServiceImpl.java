@@ -0,0 +1,257 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.Address;
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.ShippingRate;
+import com.ecommerce.entity.Warehouse;
+import com.ecommerce.repository.AddressRepository;
+import com.ecommerce.repository.CartRepository;
+import com.ecommerce.repository.ShippingRateRepository;
+import com.ecommerce.repository.WarehouseRepository;
+import com.ecommerce.service.interfaces.ShippingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShippingServiceImpl implements ShippingService {
+
+    private static final int ZONE_COUNT = ShippingRate.Zone.values().length;
+
+    private final ShippingRateRepository shippingRateRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final AddressRepository addressRepository;
+    private final CartRepository cartRepository;
+
+    @Value("${application.shipping.quote-cache-size:10000}")
+    private int quoteCacheSize;
+
+    @Value("${application.shipping.dimensional-divisor:5000}")
+    private double dimensionalDivisor;
+
+    // Swapped as a whole on reload so readers never see half-built tables
+    private volatile RateTables rateTables = RateTables.EMPTY;
+
+    // userId -> content hash of the cart last quoted for that user
+    private final Map<Long, Long> cartHashByUser = new ConcurrentHashMap<>();
+
+    // Bumped by every cart invalidation, so a quote that read the cart before a change commits does not
+    // leave the old hash behind
+    private final AtomicLong cartChanges = new AtomicLong();
+
+    // (user, destination address) -> last quote, reused while the user's cart hash still matches; least
+    // recently used entries are evicted once the cache is full
+    private final Map<QuoteKey, Quote> quotes = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<QuoteKey, Quote> eldest) {
+            return size() > quoteCacheSize;
+        }
+    });
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reloadRateTables() {
+        List<ShippingRate> rates = shippingRateRepository.findAllByOrderByZoneAscMaxWeightKgAsc();
+
+        double[][] bandLimits = new double[ZONE_COUNT][];
+        double[][] bandPrices = new double[ZONE_COUNT][];
+        for (ShippingRate.Zone zone : ShippingRate.Zone.values()) {
+            List<ShippingRate> zoneRates = rates.stream()
+                    .filter(rate -> rate.getZone() == zone)
+                    .sorted(Comparator.comparing(ShippingRate::getMaxWeightKg))
+                    .toList();
+            double[] limits = new double[zoneRates.size()];
+            double[] prices = new double[zoneRates.size()];
+            for (int i = 0; i < zoneRates.size(); i++) {
+                limits[i] = zoneRates.get(i).getMaxWeightKg();
+                prices[i] = zoneRates.get(i).getPrice().doubleValue();
+            }
+            bandLimits[zone.ordinal()] = limits;
+            bandPrices[zone.ordinal()] = prices;
+        }
+
+        List<Warehouse> warehouses = warehouseRepository.findByActiveTrue();
+        String[] originCountries = new String[warehouses.size()];
+        String[] originStates = new String[warehouses.size()];
+        for (int i = 0; i < warehouses.size(); i++) {
+            Address address = warehouses.get(i).getAddress();
+            originCountries[i] = normalize(address.getCountry());
+            originStates[i] = normalize(address.getState());
+        }
+
+        rateTables = new RateTables(bandLimits, bandPrices, originCountries, originStates);
+        quotes.clear();
+        cartHashByUser.clear();
+
+        if (rates.isEmpty()) {
+            log.warn("No shipping rates configured; falling back to per-item shipping");
+        }
+        log.info("Loaded {} shipping rate bands and {} warehouse origins", rates.size(), warehouses.size());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public double quoteCartShipping(Long userId, Long addressId) {
+        // Quotes are kept per user, so the address was checked against this user when it was cached
+        QuoteKey key = new QuoteKey(userId, addressId);
+
+        // Repeat calls for an unchanged cart are answered without touching the database
+        Long cartHash = cartHashByUser.get(userId);
+        if (cartHash != null) {
+            Quote cached = quotes.get(key);
+            if (cached != null && cached.contentHash() == cartHash) {
+                return cached.cost();
+            }
+        }
+
+        // Unit count and billable weight are maintained on the cart row, so no items are loaded
+        long changes = cartChanges.get();
+        Optional<Cart> cart = cartRepository.findByUserId(userId);
+        int itemCount = cart.map(Cart::getItemCount).orElse(0);
+        double weightKg = cart.map(Cart::getTotalWeightKg).orElse(0.0);
+        long contentHash = 31 * Double.doubleToLongBits(weightKg) + itemCount;
+        cartHashByUser.put(userId, contentHash);
+        if (cartChanges.get() != changes) {
+            cartHashByUser.remove(userId, contentHash);
+        }
+
+        Quote cached = quotes.get(key);
+        if (cached != null && cached.contentHash() == contentHash) {
+            return cached.cost();
+        }
+
+        ShippingRate.Zone zone = ShippingRate.Zone.DOMESTIC;
+        if (addressId != null) {
+            Address destination = addressRepository.findById(addressId)
+                    .filter(address -> address.getUser().getId().equals(userId))
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid shipping address"));
+            zone = rateTables.nearestZone(normalize(destination.getCountry()), normalize(destination.getState()));
+        }
+
+        double cost = price(itemCount, weightKg, zone);
+        quotes.put(key, new Quote(contentHash, cost));
+        return cost;
+    }
+
+    @Override
+    public void invalidateCartQuote(Long userId) {
+        // After commit, so a concurrent quote cannot cache the totals this change is replacing
+        afterCommit(() -> {
+            cartChanges.incrementAndGet();
+            cartHashByUser.remove(userId);
+        });
+    }
+
+    @Override
+    public void invalidateAddressQuote(Long userId, Long addressId) {
+        afterCommit(() -> quotes.remove(new QuoteKey(userId, addressId)));
+    }
+
+    @Override
+    public double billableWeightKg(Product product) {
+        return ShippingWeights.billableWeightKg(product, dimensionalDivisor);
+    }
+
+    private double price(int itemCount, double billableWeightKg, ShippingRate.Zone zone) {
+        if (itemCount == 0) {
+            return 0.0;
+        }
+
+        RateTables tables = rateTables;
+        double[] limits = tables.bandLimits[zone.ordinal()];
+        if (limits.length == 0) {
+            return 5.0 + (itemCount * 0.5);
+        }
+        return tables.lookup(zone, billableWeightKg);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record QuoteKey(Long userId, Long addressId) {
+    }
+
+    private record Quote(long contentHash, double cost) {
+    }
+
+    private static final class RateTables {
+
+        static final RateTables EMPTY = new RateTables(
+                new double[ZONE_COUNT][0], new double[ZONE_COUNT][0], new String[0], new String[0]);
+
+        final double[][] bandLimits;
+        final double[][] bandPrices;
+        final String[] originCountries;
+        final String[] originStates;
+
+        RateTables(double[][] bandLimits, double[][] bandPrices, String[] originCountries, String[] originStates) {
+            this.bandLimits = bandLimits;
+            this.bandPrices = bandPrices;
+            this.originCountries = originCountries;
+            this.originStates = originStates;
+        }
+
+        // The origin warehouse is whichever active warehouse gives the cheapest zone
+        ShippingRate.Zone nearestZone(String country, String state) {
+            ShippingRate.Zone best = ShippingRate.Zone.INTERNATIONAL;
+            for (int i = 0; i < originCountries.length; i++) {
+                if (originCountries[i].equals(country)) {
+                    if (originStates[i].equals(state)) {
+                        return ShippingRate.Zone.LOCAL;
+                    }
+                    best = ShippingRate.Zone.DOMESTIC;
+                }
+            }
+            return originCountries.length == 0 ? ShippingRate.Zone.DOMESTIC : best;
+        }
+
+        double lookup(ShippingRate.Zone zone, double weightKg) {
+            double[] limits = bandLimits[zone.ordinal()];
+            double[] prices = bandPrices[zone.ordinal()];
+            int band = Arrays.binarySearch(limits, weightKg);
+            if (band < 0) {
+                band = -band - 1;
+            }
+            if (band < limits.length) {
+                return prices[band];
+            }
+            // Heavier than the top band: charge whole multiples of it
+            int last = limits.length - 1;
+            return prices[last] * Math.ceil(weightKg / limits[last]);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.Product;
+
+/**
+ * Unit conversions behind billable shipping weight, shared by the shipping quote and the cart
+ * aggregates so both agree on what a product weighs.
+ */
+final class ShippingWeights {
+
+    private ShippingWeights() {
+    }
+
+    static double billableWeightKg(Product product, double dimensionalDivisor) {
+        return billableWeightKg(product.getWeight(), product.getWeightUnit(), product.getWidth(),
+                product.getHeight(), product.getDepth(), product.getDimensionUnit(), dimensionalDivisor);
+    }
+
+    /**
+     * Helper method to compute the greater of actual and dimensional weight for one unit
+     */
+    static double billableWeightKg(Double weight, String weightUnit, Double width, Double height, Double depth,
+                                   String dimensionUnit, double dimensionalDivisor) {
+        double actual = toKg(weight, weightUnit);
+        if (width == null || height == null || depth == null) {
+            return actual;
+        }
+        double volumeCm3 = toCm(width, dimensionUnit) * toCm(height, dimensionUnit) * toCm(depth, dimensionUnit);
+        return Math.max(actual, volumeCm3 / dimensionalDivisor);
+    }
+
+    private static double toKg(Double weight, String unit) {
+        if (weight == null) {
+            return 0;
+        }
+        return switch (normalize(unit)) {
+            case "G" -> weight / 1000;
+            case "LB", "LBS" -> weight * 0.45359237;
+            case "OZ" -> weight * 0.028349523125;
+            default -> weight;
+        };
+    }
+
+    private static double toCm(double length, String unit) {
+        return switch (normalize(unit)) {
+            case "MM" -> length / 10;
+            case "M" -> length * 100;
+            case "IN" -> length * 2.54;
+            default -> length;
+        };
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Heavy hitters of a stream of signed (id, score, count) updates. A Count-Min sketch holds an upper-bound
+ * estimate for every id in fixed memory, while up to {@code capacity} of the highest-scoring ids are tracked
+ * exactly in a ranked set, Space-Saving style: an untracked id whose estimate overtakes the lowest tracked
+ * one replaces it. Ids tracked since before their first update therefore have exact totals; ids admitted
+ * later carry at most the sketch's overestimate.
+ */
+final class TopKSketch {
+
+    record Entry(long id, long score, long count) {
+    }
+
+    private static final int DEPTH = 4;
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::score).reversed()
+            .thenComparingLong(Entry::id);
+
+    private final int width;
+    private final int capacity;
+    private final long[][] scores;
+    private final long[][] counts;
+    private final Map<Long, Entry> tracked = new HashMap<>();
+    private final TreeSet<Entry> ranked = new TreeSet<>(RANKING);
+
+    TopKSketch(int width, int capacity) {
+        this.width = width;
+        this.capacity = capacity;
+        this.scores = new long[DEPTH][width];
+        this.counts = new long[DEPTH][width];
+    }
+
+    synchronized void add(long id, long score, long count) {
+        for (int row = 0; row < DEPTH; row++) {
+            int column = column(id, row);
+            scores[row][column] += score;
+            counts[row][column] += count;
+        }
+
+        Entry current = tracked.get(id);
+        if (current != null) {
+            ranked.remove(current);
+            Entry next = new Entry(id, current.score() + score, current.count() + count);
+            if (next.score() > 0) {
+                track(next);
+            } else {
+                tracked.remove(id);
+            }
+            return;
+        }
+        if (score <= 0) {
+            return;
+        }
+
+        Entry candidate = estimateOf(id);
+        if (tracked.size() < capacity) {
+            track(candidate);
+        } else if (RANKING.compare(candidate, ranked.last()) < 0) {
+            tracked.remove(ranked.pollLast().id());
+            track(candidate);
+        }
+    }
+
+    /**
+     * The {@code k} highest-scoring tracked ids, best first
+     */
+    synchronized List<Entry> top(int k) {
+        List<Entry> top = new ArrayList<>(Math.min(k, ranked.size()));
+        Iterator<Entry> it = ranked.iterator();
+        while (top.size() < k && it.hasNext()) {
+            top.add(it.next());
+        }
+        return top;
+    }
+
+    /**
+     * Exact totals for tracked ids, sketch estimates for the rest
+     */
+    synchronized Entry get(long id) {
+        Entry entry = tracked.get(id);
+        return entry != null ? entry : estimateOf(id);
+    }
+
+    synchronized List<Long> trackedIds() {
+        return new ArrayList<>(tracked.keySet());
+    }
+
+    private void track(Entry entry) {
+        tracked.put(entry.id(), entry);
+        ranked.add(entry);
+    }
+
+    private Entry estimateOf(long id) {
+        long score = Long.MAX_VALUE;
+        long count = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int column = column(id, row);
+            score = Math.min(score, scores[row][column]);
+            count = Math.min(count, counts[row][column]);
+        }
+        return new Entry(id, Math.max(score, 0), Math.max(count, 0));
+    }
+
+    private int column(long id, int row) {
+        return (int) Long.remainderUnsigned(mix(id + row * 0x632BE59BD9B4E019L), width);
+    }
+
+    // SplitMix64 finalizer, seeded per row so the rows hash independently
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
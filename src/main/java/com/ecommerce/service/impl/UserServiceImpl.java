@@ -2,6 +2,8 @@ package com.ecommerce.service.impl;
 
 import com.ecommerce.entity.User;
 import com.ecommerce.repository.UserRepository;
+import com.ecommerce.security.service.RefreshTokenService;
+import com.ecommerce.security.service.RevokedUserRegistry;
 import com.ecommerce.service.interfaces.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +20,8 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final RevokedUserRegistry revokedUserRegistry;
+    private final RefreshTokenService refreshTokenService;
 
     @Override
     @Transactional
@@ -64,6 +68,12 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByEmail(email);
     }
 
+    @Override
+    public User getUserReference(Long userId) {
+        // Proxy for setting associations without loading the user row
+        return userRepository.getReferenceById(userId);
+    }
+
     @Override
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -76,6 +86,8 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
         user.setActive(false);
         userRepository.save(user);
+        revokedUserRegistry.revoke(userId);
+        refreshTokenService.revokeAllForUser(userId);
     }
 
     @Override
@@ -85,6 +97,7 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
         user.setActive(true);
         userRepository.save(user);
+        revokedUserRegistry.restore(userId);
     }
 
     @Override
@@ -111,5 +124,7 @@ public class UserServiceImpl implements UserService {
             throw new EntityNotFoundException("User not found with id: " + userId);
         }
         userRepository.deleteById(userId);
+        revokedUserRegistry.revokeDeleted(userId);
+        refreshTokenService.revokeAllForUser(userId);
     }
 }
@@ -0,0 +1,629 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dto.cart.CartOperation;
+import com.ecommerce.dto.cart.CartSummary;
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CartRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Write-back cart store used when {@code application.cart.store=write-back}. Active carts live in a
+ * bounded, access-ordered map keyed by user id; mutations only touch memory and mark the cart dirty, and a
+ * scheduled task reconciles dirty carts with cart_items in batches. Callers that read carts straight from
+ * the database (checkout, shipping) must call {@link #flush(Long)} first.
+ * <p>
+ * A cart is flushed by one thread at a time, under its flush lock. Evicted carts are marked dead under
+ * their monitor, and mutators that find a dead cart reload it, so no change lands in a copy that will
+ * never be flushed again.
+ */
+@Component
+@Slf4j
+class WriteBackCartStore {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ProductPriceTable productPriceTable;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int maxCarts;
+    private final int flushBatchSize;
+    private final long idleEvictMillis;
+
+    private static final int EVICTION_ATTEMPTS = 4;
+
+    // Access-ordered, so the least recently used cart comes first; guarded by its own monitor
+    private final LinkedHashMap<Long, CachedCart> carts = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Misses being read from the database, so concurrent requests for one user load it once
+    private final Map<Long, CompletableFuture<CachedCart>> loading = new ConcurrentHashMap<>();
+
+    WriteBackCartStore(CartRepository cartRepository,
+                       CartItemRepository cartItemRepository,
+                       ProductRepository productRepository,
+                       UserRepository userRepository,
+                       ProductPriceTable productPriceTable,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${application.cart.store:database}") String store,
+                       @Value("${application.cart.write-back.max-carts:10000}") int maxCarts,
+                       @Value("${application.cart.write-back.flush-batch-size:200}") int flushBatchSize,
+                       @Value("${application.cart.write-back.idle-evict-ms:1800000}") long idleEvictMillis) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.productPriceTable = productPriceTable;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Flushes commit on their own so a rolled-back checkout cannot undo a write the cache considers done
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = "write-back".equalsIgnoreCase(store);
+        this.maxCarts = maxCarts;
+        this.flushBatchSize = flushBatchSize;
+        this.idleEvictMillis = idleEvictMillis;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    CartItem addItem(Long userId, Long productId, int quantity, ProductPriceTable.PriceEntry price) {
+        return withCart(userId, cart -> {
+            Line line = cart.lines.get(productId);
+            if (line == null) {
+                // Only new lines need the product itself, for the cart view
+                Product product = productRepository.findById(productId)
+                        .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
+                line = new Line(product, 0);
+                cart.lines.put(productId, line);
+            }
+            line.quantity += quantity;
+            line.setPrice(price); // Update to current price
+            cart.touch(true);
+            return line.toCartItem();
+        });
+    }
+
+    CartItem updateItem(Long userId, Long productId, int quantity, ProductPriceTable.PriceEntry price) {
+        return withCart(userId, cart -> {
+            Line line = cart.lines.get(productId);
+            if (line == null) {
+                throw new EntityNotFoundException("Product not found in cart");
+            }
+            line.quantity = quantity;
+            line.setPrice(price);
+            cart.touch(true);
+            return line.toCartItem();
+        });
+    }
+
+    boolean removeItem(Long userId, Long productId) {
+        return withCart(userId, cart -> {
+            if (cart.lines.remove(productId) == null) {
+                return false;
+            }
+            cart.touch(true);
+            return true;
+        });
+    }
+
+    /**
+     * Apply a batch atomically: the operations run against a copy that replaces the cart only if all succeed
+     */
+    List<CartItem> applyOperations(Long userId, List<CartOperation> operations, Map<Long, Product> products) {
+        return withCart(userId, cart -> {
+            Map<Long, Line> lines = new LinkedHashMap<>();
+            cart.lines.forEach((productId, line) -> lines.put(productId, line.copy()));
+            for (CartOperation operation : operations) {
+                Long productId = operation.getProductId();
+                Line line = lines.get(productId);
+                switch (operation.getType()) {
+                    case ADD -> {
+                        Product product = products.get(productId);
+                        if (line == null) {
+                            line = new Line(product, 0);
+                            lines.put(productId, line);
+                        }
+                        line.quantity += operation.getQuantity();
+                        line.product = product;
+                        line.setPrice(productPriceTable.entryFor(product));
+                    }
+                    case UPDATE -> {
+                        if (line == null) {
+                            throw new EntityNotFoundException("Product not found in cart");
+                        }
+                        if (operation.getQuantity() <= 0) {
+                            lines.remove(productId);
+                        } else {
+                            line.quantity = operation.getQuantity();
+                            line.product = products.get(productId);
+                            line.setPrice(productPriceTable.entryFor(line.product));
+                        }
+                    }
+                    case REMOVE -> lines.remove(productId);
+                }
+            }
+            cart.lines.clear();
+            cart.lines.putAll(lines);
+            cart.touch(true);
+            return toCartItems(cart);
+        });
+    }
+
+    List<CartItem> getItems(Long userId) {
+        return withCart(userId, cart -> {
+            cart.touch(false);
+            return toCartItems(cart);
+        });
+    }
+
+    /**
+     * Reprice stale lines against the product rows, for checkout; the next flush writes them out.
+     * Returns whether any line changed.
+     */
+    boolean reprice(Long userId) {
+        // Products are read outside the cart's monitor; a line added meanwhile was priced when it was added
+        List<Long> productIds = withCart(userId, cart -> new ArrayList<>(cart.lines.keySet()));
+        Map<Long, ProductPriceTable.PriceEntry> prices = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            prices.put(product.getId(), productPriceTable.refresh(product));
+        }
+        return withCart(userId, cart -> {
+            boolean repriced = false;
+            for (Map.Entry<Long, Line> entry : cart.lines.entrySet()) {
+                ProductPriceTable.PriceEntry price = prices.get(entry.getKey());
+                if (price != null && entry.getValue().priceVersion < price.version()) {
+                    entry.getValue().setPrice(price);
+                    repriced = true;
+                }
+            }
+            cart.touch(repriced);
+            return repriced;
+        });
+    }
+
+    CartSummary getSummary(Long userId) {
+        return withCart(userId, cart -> summarize(cart.lines.values()));
+    }
+
+    private static CartSummary summarize(Collection<Line> lines) {
+        int units = 0;
+        BigDecimal amount = BigDecimal.ZERO;
+        double weightKg = 0;
+        for (Line line : lines) {
+            units += line.quantity;
+            amount = amount.add(line.subtotal());
+            weightKg += line.unitWeightKg * line.quantity;
+        }
+        return new CartSummary(units, amount, weightKg);
+    }
+
+    private static List<CartItem> toCartItems(CachedCart cart) {
+        List<CartItem> items = new ArrayList<>(cart.lines.size());
+        for (Line line : cart.lines.values()) {
+            items.add(line.toCartItem());
+        }
+        return items;
+    }
+
+    /**
+     * Drop the cached copy and delete the cart's rows with {@code deleteRows}. The copy is retired under its
+     * monitor, so mutators holding it reload instead; the delete runs under the flush lock only, so no
+     * flush can write the lines back, while a reload for the user waits on the load slot held meanwhile.
+     */
+    void clear(Long userId, Runnable deleteRows) {
+        CompletableFuture<CachedCart> slot = new CompletableFuture<>();
+        CompletableFuture<CachedCart> pending;
+        while ((pending = loading.putIfAbsent(userId, slot)) != null) {
+            pending.exceptionally(e -> null).join();
+        }
+        try {
+            CachedCart cart = cached(userId);
+            if (cart == null) {
+                deleteRows.run();
+                return;
+            }
+            cart.flushLock.lock();
+            try {
+                synchronized (cart) {
+                    cart.dirty = false;
+                    retire(cart);
+                }
+                deleteRows.run();
+            } finally {
+                cart.flushLock.unlock();
+            }
+        } finally {
+            loading.remove(userId, slot);
+            slot.complete(null);
+        }
+    }
+
+    /**
+     * Drop the cached copy unless it has unflushed changes; used after rows were deleted underneath it
+     */
+    void evictIfClean(Long userId) {
+        CachedCart cart = cached(userId);
+        if (cart == null) {
+            return;
+        }
+        cart.flushLock.lock();
+        try {
+            retire(cart);
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    /**
+     * Synchronously write a user's pending changes in a transaction of their own
+     */
+    void flush(Long userId) {
+        CachedCart cart = cached(userId);
+        if (cart == null) {
+            return;
+        }
+        cart.flushLock.lock();
+        try {
+            if (cart.dirty) {
+                flushBatch(List.of(cart));
+            }
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.cart.write-back.flush-interval-ms:1000}")
+    public void flushDirtyCarts() {
+        if (!enabled) {
+            return;
+        }
+        List<CachedCart> snapshot;
+        synchronized (carts) {
+            snapshot = new ArrayList<>(carts.values());
+        }
+
+        List<CachedCart> batch = new ArrayList<>(flushBatchSize);
+        long idleCutoff = System.currentTimeMillis() - idleEvictMillis;
+        for (CachedCart cart : snapshot) {
+            // A cart a request thread is flushing or evicting right now is left for the next pass
+            if (!cart.flushLock.tryLock()) {
+                continue;
+            }
+            if (cart.dirty) {
+                batch.add(cart);
+                if (batch.size() == flushBatchSize) {
+                    flushScheduled(batch);
+                    batch = new ArrayList<>(flushBatchSize);
+                }
+            } else {
+                try {
+                    if (cart.lastAccess < idleCutoff) {
+                        retire(cart);
+                    }
+                } finally {
+                    cart.flushLock.unlock();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushScheduled(batch);
+        }
+    }
+
+    /**
+     * Helper method to run an action under the monitor of the user's live cached cart, reloading the cart
+     * if it was evicted between the lookup and the lock
+     */
+    private <T> T withCart(Long userId, Function<CachedCart, T> action) {
+        while (true) {
+            CachedCart cart = load(userId);
+            synchronized (cart) {
+                if (!cart.dead) {
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    private CachedCart cached(Long userId) {
+        synchronized (carts) {
+            return carts.get(userId);
+        }
+    }
+
+    private CachedCart load(Long userId) {
+        while (true) {
+            CachedCart cached = cached(userId);
+            if (cached != null) {
+                return cached;
+            }
+
+            // The database is read outside the map's lock; a concurrent miss for the same user waits for this load
+            CompletableFuture<CachedCart> mine = new CompletableFuture<>();
+            CompletableFuture<CachedCart> pending = loading.putIfAbsent(userId, mine);
+            if (pending != null) {
+                await(pending);
+                continue;
+            }
+            try {
+                CachedCart loaded = cached(userId);
+                if (loaded == null) {
+                    loaded = readCart(userId);
+                    synchronized (carts) {
+                        carts.put(userId, loaded);
+                    }
+                    evictOverflow();
+                }
+                mine.complete(loaded);
+                return loaded;
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(userId, mine);
+            }
+        }
+    }
+
+    private CachedCart readCart(Long userId) {
+        Cart cart = cartRepository.findByUserId(userId).orElseGet(() -> {
+            if (!userRepository.existsById(userId)) {
+                throw new EntityNotFoundException("User not found with id: " + userId);
+            }
+            Cart newCart = new Cart();
+            newCart.setUser(userRepository.getReferenceById(userId));
+            return cartRepository.save(newCart);
+        });
+
+        CachedCart cached = new CachedCart(userId, cart.getId());
+        for (CartItem item : cartItemRepository.findWithProductByUserId(userId)) {
+            cached.lines.put(item.getProduct().getId(),
+                    Line.of(item));
+        }
+        return cached;
+    }
+
+    /**
+     * Helper method to flush and drop least recently used carts until the map is back within its bound;
+     * a cart changed again while being flushed stays, and the map is trimmed on a later miss
+     */
+    private void evictOverflow() {
+        for (int attempt = 0; attempt < EVICTION_ATTEMPTS; attempt++) {
+            CachedCart eldest;
+            synchronized (carts) {
+                if (carts.size() <= maxCarts) {
+                    return;
+                }
+                eldest = carts.values().iterator().next();
+            }
+            eldest.flushLock.lock();
+            try {
+                if (eldest.dirty) {
+                    flushBatch(List.of(eldest));
+                }
+                retire(eldest);
+            } finally {
+                eldest.flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Helper method to drop a clean cart from the map and mark it dead, so mutators still holding it
+     * reload it instead of changing a copy that is no longer flushed; the caller holds its flush lock
+     */
+    private boolean retire(CachedCart cart) {
+        synchronized (cart) {
+            if (cart.dirty) {
+                return false;
+            }
+            cart.dead = true;
+            synchronized (carts) {
+                carts.remove(cart.userId, cart);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Helper method for the scheduled pass: a failed batch stays dirty and is retried on the next pass,
+     * without stopping the batches and idle evictions after it
+     */
+    private void flushScheduled(List<CachedCart> batch) {
+        try {
+            flushBatch(batch);
+        } catch (RuntimeException e) {
+            // Already logged by flushBatch
+        } finally {
+            batch.forEach(cart -> cart.flushLock.unlock());
+        }
+    }
+
+    private static void await(CompletableFuture<CachedCart> pending) {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method to reconcile a batch of carts with cart_items in one transaction: one query to read
+     * the current rows, then batched updates and deletes, and upserts for new lines. The caller holds the
+     * flush lock of every cart in the batch.
+     */
+    private void flushBatch(List<CachedCart> batch) {
+        Map<Long, Map<Long, Line>> snapshots = new HashMap<>();
+        for (CachedCart cart : batch) {
+            synchronized (cart) {
+                Map<Long, Line> snapshot = new LinkedHashMap<>();
+                cart.lines.forEach((productId, line) -> snapshot.put(productId, line.copy()));
+                snapshots.put(cart.cartId, snapshot);
+                cart.dirty = false;
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<CartItem> toSave = new ArrayList<>();
+                List<CartItem> toDelete = new ArrayList<>();
+                LocalDateTime now = LocalDateTime.now();
+
+                Map<Long, Map<Long, CartItem>> existingByCart = new HashMap<>();
+                for (CartItem item : cartItemRepository.findByCartIdIn(snapshots.keySet())) {
+                    existingByCart.computeIfAbsent(item.getCart().getId(), id -> new HashMap<>())
+                            .put(item.getProduct().getId(), item);
+                }
+
+                snapshots.forEach((cartId, lines) -> {
+                    Map<Long, CartItem> existing = existingByCart.getOrDefault(cartId, new HashMap<>());
+                    lines.forEach((productId, line) -> {
+                        CartItem item = existing.remove(productId);
+                        if (item == null) {
+                            // Upserted on (cart_id, product_id), so a row written by another path is overwritten, not duplicated
+                            cartItemRepository.upsertLine(cartId, productId, line.quantity, line.unitPrice,
+                                    line.subtotal(), line.priceVersion, line.unitWeightKg, now);
+                            return;
+                        }
+                        if (item.getQuantity() == line.quantity
+                                && Long.valueOf(line.priceVersion).equals(item.getPriceVersion())
+                                && line.unitPrice.compareTo(item.getUnitPrice()) == 0) {
+                            return;
+                        }
+                        item.setQuantity(line.quantity);
+                        item.setUnitPrice(line.unitPrice);
+                        item.setPriceVersion(line.priceVersion);
+                        item.setUnitWeightKg(line.unitWeightKg);
+                        item.setSubtotal(line.subtotal());
+                        toSave.add(item);
+                    });
+                    // Whatever is left in the table was removed in memory
+                    toDelete.addAll(existing.values());
+                });
+
+                cartItemRepository.saveAll(toSave);
+                cartItemRepository.deleteAllInBatch(toDelete);
+
+                // The cache holds the whole cart, so the totals are written outright
+                snapshots.forEach((cartId, lines) -> {
+                    CartSummary totals = summarize(lines.values());
+                    cartRepository.setTotals(cartId, totals.getItemCount(), totals.getSubtotal(),
+                            totals.getTotalWeightKg(), now);
+                });
+            });
+        } catch (RuntimeException e) {
+            // Leave the carts dirty so the next pass retries them
+            for (CachedCart cart : batch) {
+                synchronized (cart) {
+                    cart.dirty = true;
+                }
+            }
+            log.error("Failed to flush {} carts: {}", batch.size(), e.getMessage());
+            throw e;
+        }
+    }
+
+    private static final class CachedCart {
+        final Long userId;
+        final Long cartId;
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        final ReentrantLock flushLock = new ReentrantLock();
+        volatile boolean dirty;
+        // Set under the monitor once the cart has left the map; mutators seeing it reload
+        volatile boolean dead;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        CachedCart(Long userId, Long cartId) {
+            this.userId = userId;
+            this.cartId = cartId;
+        }
+
+        void touch(boolean modified) {
+            lastAccess = System.currentTimeMillis();
+            if (modified) {
+                dirty = true;
+            }
+        }
+    }
+
+    private static final class Line {
+        Product product;
+        int quantity;
+        BigDecimal unitPrice = BigDecimal.ZERO;
+        long priceVersion = -1L;
+        double unitWeightKg;
+
+        Line(Product product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        static Line of(CartItem item) {
+            Line line = new Line(item.getProduct(), item.getQuantity());
+            line.unitPrice = item.getUnitPrice();
+            line.priceVersion = item.getPriceVersion() != null ? item.getPriceVersion() : -1L;
+            line.unitWeightKg = item.getUnitWeightKg() != null ? item.getUnitWeightKg() : 0;
+            return line;
+        }
+
+        Line copy() {
+            Line copy = new Line(product, quantity);
+            copy.unitPrice = unitPrice;
+            copy.priceVersion = priceVersion;
+            copy.unitWeightKg = unitWeightKg;
+            return copy;
+        }
+
+        void setPrice(ProductPriceTable.PriceEntry price) {
+            this.unitPrice = price.price();
+            this.priceVersion = price.version();
+            this.unitWeightKg = price.unitWeightKg();
+        }
+
+        BigDecimal subtotal() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        CartItem toCartItem() {
+            CartItem item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(quantity);
+            item.setUnitPrice(unitPrice);
+            item.setPriceVersion(priceVersion);
+            item.setUnitWeightKg(unitWeightKg);
+            item.setSubtotal(subtotal());
+            return item;
+        }
+    }
+}
@@ -1,33 +1,69 @@
 package com.ecommerce.service.interfaces;
 
+import com.ecommerce.dto.analytics.ActiveUsersInWindow;
+import com.ecommerce.dto.analytics.CategoryInventoryValue;
+import com.ecommerce.dto.analytics.CategoryProductStats;
+import com.ecommerce.dto.analytics.CategoryRevenue;
+import com.ecommerce.dto.analytics.DailyActiveUsers;
+import com.ecommerce.dto.analytics.InactiveCustomer;
+import com.ecommerce.dto.analytics.LowStockProduct;
+import com.ecommerce.dto.analytics.MonthlyActiveUsers;
+import com.ecommerce.dto.analytics.MonthlyOrderStats;
+import com.ecommerce.dto.analytics.OrderItemAggregate;
+import com.ecommerce.dto.analytics.OrderItemQuery;
+import com.ecommerce.dto.analytics.OrderStats;
+import com.ecommerce.dto.analytics.ProductStockSummary;
+import com.ecommerce.dto.analytics.StockForecast;
+import com.ecommerce.dto.analytics.TopCustomer;
+import com.ecommerce.dto.analytics.TopRatedProduct;
+import com.ecommerce.dto.analytics.TopSellingProduct;
+import com.ecommerce.dto.analytics.UserCategory;
+import com.ecommerce.dto.analytics.UserSegment;
+import com.ecommerce.dto.analytics.WarehouseInventorySummary;
+import com.ecommerce.dto.analytics.WarehouseValueSummary;
+import com.ecommerce.dto.export.ExportFormat;
+import com.ecommerce.entity.ActivitySketch;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
 public interface AnalyticsService {
     // Order analytics
-    Map<String, Object> getOrderStatsByDateRange(LocalDateTime startDate, LocalDateTime endDate);
-    List<Map<String, Object>> getMonthlyOrderStats(LocalDateTime startDate, LocalDateTime endDate);
+    OrderStats getOrderStatsByDateRange(LocalDateTime startDate, LocalDateTime endDate);
+    List<MonthlyOrderStats> getMonthlyOrderStats(LocalDateTime startDate, LocalDateTime endDate);
     Map<String, Long> getOrderCountByStatus();
-    List<Map<String, Object>> getTopCustomersByRevenue(int limit);
+    List<TopCustomer> getTopCustomersByRevenue(int limit);
     
     // Product analytics
-    List<Map<String, Object>> getProductStatsByCategory();
-    List<Map<String, Object>> getTopSellingProducts(LocalDateTime startDate, LocalDateTime endDate, int limit);
-    List<Map<String, Object>> getCategoryRevenueInPeriod(LocalDateTime startDate, LocalDateTime endDate);
-    List<Map<String, Object>> getTopRatedProducts(int minReviews, int limit);
-    List<Map<String, Object>> getLowStockProducts(int lowStockThreshold);
+    List<CategoryProductStats> getProductStatsByCategory();
+    List<TopSellingProduct> getTopSellingProducts(LocalDateTime startDate, LocalDateTime endDate, int limit);
+    List<CategoryRevenue> getCategoryRevenueInPeriod(LocalDateTime startDate, LocalDateTime endDate);
+    List<TopRatedProduct> getTopRatedProducts(int minReviews, int limit);
+    List<LowStockProduct> getLowStockProducts(int lowStockThreshold);
     
     // Inventory analytics
-    List<Map<String, Object>> getInventorySummaryByWarehouse();
-    List<Map<String, Object>> getProductStockSummary();
-    List<Map<String, Object>> getWarehouseValueSummary();
-    List<Map<String, Object>> getInventoryValueByCategory();
-    List<Map<String, Object>> getStockShortageRisk();
+    List<WarehouseInventorySummary> getInventorySummaryByWarehouse();
+    List<ProductStockSummary> getProductStockSummary();
+    List<WarehouseValueSummary> getWarehouseValueSummary();
+    List<CategoryInventoryValue> getInventoryValueByCategory();
+    List<StockForecast> getStockShortageRisk();
+    List<StockForecast> getReorderSuggestions();
     
     // User analytics
-    List<Map<String, Object>> getMonthlyActiveUsers(LocalDateTime startDate, LocalDateTime endDate);
-    List<Map<String, Object>> getInactiveCustomers(int inactiveDays);
-    List<Map<String, Object>> getUserSegmentAnalytics();
-    List<Map<String, Object>> getTopUserCategories(Long userId);
+    List<MonthlyActiveUsers> getMonthlyActiveUsers(LocalDateTime startDate, LocalDateTime endDate);
+    List<DailyActiveUsers> getDailyActiveUsers(ActivitySketch.Metric metric, LocalDateTime startDate, LocalDateTime endDate);
+    ActiveUsersInWindow getActiveUsersInWindow(ActivitySketch.Metric metric, LocalDateTime startDate, LocalDateTime endDate);
+    List<InactiveCustomer> getInactiveCustomers(int inactiveDays);
+    List<UserSegment> getUserSegmentAnalytics();
+    List<UserCategory> getTopUserCategories(Long userId);
+    
+    // Ad-hoc order item aggregation
+    List<OrderItemAggregate> aggregateOrderItems(OrderItemQuery query);
+    
+    // Streaming exports of the largest results
+    void exportProductStockSummary(ExportFormat format, OutputStream out) throws IOException;
+    void exportInactiveCustomers(int inactiveDays, ExportFormat format, OutputStream out) throws IOException;
 }
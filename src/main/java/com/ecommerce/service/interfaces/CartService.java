@@ -1,5 +1,7 @@
 package com.ecommerce.service.interfaces;
 
+import com.ecommerce.dto.cart.CartOperation;
+import com.ecommerce.dto.cart.CartSummary;
 import com.ecommerce.entity.Cart;
 import com.ecommerce.entity.CartItem;
 
@@ -14,4 +16,9 @@ public interface CartService {
     boolean removeItemFromCart(Long userId, Long productId);
     void clearCart(Long userId);
     List<CartItem> getCartItems(Long userId);
+    List<CartItem> getCartItemsWithProducts(Long userId);
+    List<CartItem> repriceCart(Long userId);
+    CartSummary getCartSummary(Long userId);
+    List<CartItem> applyCartOperations(Long userId, List<CartOperation> operations);
+    void flushCart(Long userId);
 }
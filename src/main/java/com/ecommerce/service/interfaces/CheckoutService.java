@@ -2,6 +2,8 @@ package com.ecommerce.service.interfaces;
 
 import com.ecommerce.entity.Order;
 
+import java.util.List;
+
 public interface CheckoutService {
     /**
      * Process a complete checkout from the user's cart
@@ -13,6 +15,17 @@ public interface CheckoutService {
      */
     Order checkout(Long userId, Long addressId, String paymentMethod, String paymentDetails);
     
+    /**
+     * Process a complete checkout from the user's cart, redeeming a coupon
+     * @param userId The ID of the user checking out
+     * @param addressId The shipping address ID
+     * @param paymentMethod The payment method identifier
+     * @param paymentDetails Additional payment details if needed
+     * @param couponCode The coupon to redeem, or null for none
+     * @return The created order
+     */
+    Order checkout(Long userId, Long addressId, String paymentMethod, String paymentDetails, String couponCode);
+    
     /**
      * Validate if all items in the user's cart are available for purchase
      * @param userId The ID of the user
@@ -35,4 +48,11 @@ public interface CheckoutService {
      * @return The discount amount applied
      */
     double applyCoupon(Long userId, String couponCode);
+    
+    /**
+     * List the coupon codes that currently apply to the user's cart
+     * @param userId The ID of the user
+     * @return Applicable coupon codes
+     */
+    List<String> getApplicableCoupons(Long userId);
 }
@@ -0,0 +1,44 @@
+package com.ecommerce.service.interfaces;
+
+import com.ecommerce.dto.coupon.CartLine;
+import com.ecommerce.dto.coupon.CouponEvaluation;
+import com.ecommerce.entity.Coupon;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CouponService {
+    Coupon createCoupon(Coupon coupon);
+    Coupon updateCoupon(Long couponId, Coupon coupon);
+    Optional<Coupon> getCouponById(Long couponId);
+    List<Coupon> getAllCoupons();
+    void deleteCoupon(Long couponId);
+    
+    /**
+     * Price a coupon against a cart using the in-memory rule index
+     * @param couponCode The coupon code entered by the customer
+     * @param lines The cart contents
+     * @return The discount the coupon grants
+     * @throws IllegalArgumentException if the coupon is unknown, expired, exhausted or not applicable
+     */
+    CouponEvaluation evaluate(String couponCode, List<CartLine> lines);
+    
+    /**
+     * List the codes of all live coupons that would discount at least one line of the cart
+     * @param lines The cart contents
+     * @return Applicable coupon codes
+     */
+    List<String> findApplicableCoupons(List<CartLine> lines);
+    
+    /**
+     * Record one use of an evaluated coupon with an atomic conditional update
+     * @param evaluation A previously computed evaluation
+     * @throws IllegalArgumentException if the usage limit was reached in the meantime
+     */
+    void redeem(CouponEvaluation evaluation);
+    
+    /**
+     * Recompile the rule index from the coupon table
+     */
+    void reloadRules();
+}
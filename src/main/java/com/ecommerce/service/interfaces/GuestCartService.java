@@ -0,0 +1,14 @@
+package com.ecommerce.service.interfaces;
+
+import com.ecommerce.entity.CartItem;
+
+import java.util.List;
+
+public interface GuestCartService {
+    String addItem(String token, Long productId, int quantity);
+    void updateItem(String token, Long productId, int quantity);
+    boolean removeItem(String token, Long productId);
+    void clear(String token);
+    List<CartItem> getItems(String token);
+    void mergeIntoUserCart(String token, Long userId);
+}
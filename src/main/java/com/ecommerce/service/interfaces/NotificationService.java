@@ -1,5 +1,6 @@
 package com.ecommerce.service.interfaces;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -39,6 +40,15 @@ public interface NotificationService {
      */
     boolean sendPriceDropNotification(Long userId, Long productId, double oldPrice, double newPrice);
     
+    /**
+     * Remind a user about items left in a cart they abandoned
+     * @param userId The user to notify
+     * @param itemCount Number of distinct items that were in the cart
+     * @param lastActivity When the cart was last changed
+     * @return true if notification was sent successfully
+     */
+    boolean sendAbandonedCartReminder(Long userId, long itemCount, LocalDateTime lastActivity);
+    
     /**
      * Send a custom notification with variable parameters
      * @param userId The user to notify
@@ -1,9 +1,13 @@
 package com.ecommerce.service.interfaces;
 
+import com.ecommerce.dto.export.ExportFormat;
 import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -13,8 +17,11 @@ public interface OrderService {
     Optional<Order> getOrderById(Long orderId);
     List<Order> getOrdersByUserId(Long userId);
     Page<Order> getOrdersByUserId(Long userId, Pageable pageable);
+    Page<OrderSummary> getOrderSummariesByUserId(Long userId, Pageable pageable);
     List<Order> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate);
     List<Order> getOrdersByStatus(Order.OrderStatus status);
+    void exportOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate, ExportFormat format, OutputStream out) throws IOException;
+    void exportOrdersByStatus(Order.OrderStatus status, ExportFormat format, OutputStream out) throws IOException;
     Order updateOrderStatus(Long orderId, Order.OrderStatus status);
     Order updatePaymentStatus(Long orderId, Order.PaymentStatus status);
     void cancelOrder(Long orderId);
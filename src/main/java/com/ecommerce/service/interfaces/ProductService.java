@@ -4,6 +4,7 @@ import com.ecommerce.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,8 @@ public interface ProductService {
     Product createProduct(Product product);
     Product updateProduct(Long productId, Product product);
     Optional<Product> getProductById(Long productId);
+    List<Product> getProductsByIds(Collection<Long> productIds);
+    Product getProductReference(Long productId);
     List<Product> getAllProducts();
     Page<Product> getAllProducts(Pageable pageable);
     Page<Product> searchProducts(String keyword, Pageable pageable);
@@ -0,0 +1,24 @@
+package com.ecommerce.service.interfaces;
+
+import com.ecommerce.dto.analytics.ReportRequest;
+import com.ecommerce.entity.ReportJob;
+import com.ecommerce.entity.ReportResult;
+
+import java.util.Optional;
+
+public interface ReportJobService {
+    /**
+     * Queue an analytics report, or return the job already running an identical request
+     * @param request Report type and parameters
+     * @param userId The user submitting the report
+     * @return the queued or in-flight job
+     */
+    ReportJob submitReport(ReportRequest request, Long userId);
+
+    Optional<ReportJob> getReportJob(Long jobId);
+
+    /**
+     * Result of a completed job; empty while the job is queued or running, or if it failed
+     */
+    Optional<ReportResult> getReportResult(Long jobId);
+}
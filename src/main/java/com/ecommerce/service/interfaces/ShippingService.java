@@ -0,0 +1,38 @@
+package com.ecommerce.service.interfaces;
+
+import com.ecommerce.entity.Product;
+
+public interface ShippingService {
+    /**
+     * Quote shipping for the user's current cart to the given address
+     * @param userId The ID of the user
+     * @param addressId The destination address ID, or null to quote a domestic delivery
+     * @return The shipping cost
+     */
+    double quoteCartShipping(Long userId, Long addressId);
+    
+    /**
+     * Forget the memoized quote for a user's cart after its contents change
+     * @param userId The ID of the user
+     */
+    void invalidateCartQuote(Long userId);
+    
+    /**
+     * Forget the memoized quote for one of a user's addresses after it changes or is deleted
+     * @param userId The ID of the address owner
+     * @param addressId The ID of the address
+     */
+    void invalidateAddressQuote(Long userId, Long addressId);
+    
+    /**
+     * Billable weight of one unit of a product, the larger of its actual and dimensional weight
+     * @param product The product
+     * @return The weight in kilograms
+     */
+    double billableWeightKg(Product product);
+    
+    /**
+     * Reload the zone/weight-band rate tables and warehouse origins from the database
+     */
+    void reloadRateTables();
+}
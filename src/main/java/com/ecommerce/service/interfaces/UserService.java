@@ -10,6 +10,7 @@ public interface UserService {
     User updateUser(Long userId, User user);
     Optional<User> getUserById(Long userId);
     Optional<User> getUserByEmail(String email);
+    User getUserReference(Long userId);
     List<User> getAllUsers();
     void deactivateUser(Long userId);
     void activateUser(Long userId);
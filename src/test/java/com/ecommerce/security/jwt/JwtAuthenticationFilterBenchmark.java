@@ -0,0 +1,107 @@
+package com.ecommerce.security.jwt;
+
+import com.ecommerce.security.service.RevokedUserRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JWT filter path for a repeated token (served from the verified-token cache) and for
+ * tokens that always need a full HMAC verification.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ecommerce.security.jwt.JwtAuthenticationFilterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final int TOKENS = 4096;
+
+    private JwtAuthenticationFilter cachedFilter;
+    private JwtAuthenticationFilter uncachedFilter;
+    private String token;
+    private String[] distinctTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        UserDetails user = new User("bench@example.com", "n/a", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        JwtService cached = jwtService(10_000);
+        // A cache size of zero clears on every insert, so each lookup misses
+        JwtService uncached = jwtService(0);
+        // Never reloaded here, so nothing is revoked
+        RevokedUserRegistry revokedUserRegistry = new RevokedUserRegistry(null, null, 86_400_000L, 604_800_000L);
+        cachedFilter = new JwtAuthenticationFilter(cached, revokedUserRegistry);
+        uncachedFilter = new JwtAuthenticationFilter(uncached, revokedUserRegistry);
+
+        token = cached.generateToken(Map.of(JwtService.USER_ID_CLAIM, 1L), user);
+        distinctTokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            distinctTokens[i] = uncached.generateToken(Map.of(JwtService.USER_ID_CLAIM, (long) i + 1), user);
+        }
+    }
+
+    @Benchmark
+    public Authentication repeatedToken() throws Exception {
+        return runFilter(cachedFilter, token);
+    }
+
+    @Benchmark
+    public Authentication uncachedToken() throws Exception {
+        return runFilter(uncachedFilter, distinctTokens[next++ & (TOKENS - 1)]);
+    }
+
+    private static Authentication runFilter(JwtAuthenticationFilter filter, String jwt) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart");
+        request.addHeader("Authorization", "Bearer " + jwt);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private static JwtService jwtService(int cacheSize) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", cacheSize);
+        jwtService.init();
+        return jwtService;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
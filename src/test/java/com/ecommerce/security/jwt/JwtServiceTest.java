@@ -0,0 +1,56 @@
+package com.ecommerce.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Access and refresh tokens must not stand in for each other.
+ */
+class JwtServiceTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private final UserDetails user = new User("user@example.com", "n/a", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 100);
+        jwtService.init();
+    }
+
+    @Test
+    void accessTokenVerifiesWithItsUserAndRoles() {
+        String token = jwtService.generateToken(Map.of(JwtService.USER_ID_CLAIM, 7L), user);
+
+        VerifiedToken verified = jwtService.verify(token).orElseThrow();
+        assertThat(verified.userId()).isEqualTo(7L);
+        assertThat(verified.roles()).containsExactly("ROLE_CUSTOMER");
+        assertThat(jwtService.parseRefreshClaims(token)).isEmpty();
+    }
+
+    @Test
+    void refreshTokenCarriesNoUserOrRolesAndNeverVerifiesAsAccess() {
+        String token = jwtService.generateRefreshToken(
+                Map.of(JwtService.FAMILY_CLAIM, "family", JwtService.USER_ID_CLAIM, 7L), user);
+
+        assertThat(jwtService.verify(token)).isEmpty();
+        Claims claims = jwtService.parseRefreshClaims(token).orElseThrow();
+        assertThat(claims.get(JwtService.FAMILY_CLAIM)).isEqualTo("family");
+        assertThat(claims).doesNotContainKeys(JwtService.USER_ID_CLAIM, JwtService.ROLES_CLAIM);
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecommerce.security.ratelimit;
+
+import com.ecommerce.security.jwt.JwtService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Races requests against one bucket and against a full bucket map.
+ */
+class RateLimitFilterConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private final AtomicInteger passed = new AtomicInteger();
+    private final FilterChain chain = (request, response) -> passed.incrementAndGet();
+
+    @Test
+    void concurrentRequestsFromOneClientNeverExceedTheBurst() throws Exception {
+        RateLimitFilter filter = filter(1_000, 50);
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 200; i++) {
+                send(filter, "10.0.0.1");
+            }
+        });
+
+        assertThat(passed.get()).isEqualTo(50);
+    }
+
+    @Test
+    void newClientsShareTheOverflowBucketOnceTheMapIsFull() throws Exception {
+        RateLimitFilter filter = filter(10, 1);
+        // Without background sweeps the buckets are never dropped, so the count below is exact
+        filter.shutdown();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 500; i++) {
+                send(filter, "10." + thread + "." + (i / 250) + "." + (i % 250));
+            }
+        });
+
+        // Every tracked client gets its single token, and all the others together get one more
+        Map<?, ?> buckets = (Map<?, ?>) ReflectionTestUtils.getField(filter, "buckets");
+        assertThat(buckets.size()).isLessThanOrEqualTo(10 + THREADS);
+        assertThat(passed.get()).isEqualTo(buckets.size() + 1);
+    }
+
+    private static RateLimitFilter filter(int maxBuckets, int capacity) {
+        RateLimitProperties.Policy policy = new RateLimitProperties.Policy();
+        policy.setName("login");
+        policy.setPath("/api/v1/auth/login");
+        policy.setMethod("POST");
+        policy.setCapacity(capacity);
+        // No refill, so every granted request is one token of the initial burst
+        policy.setRefillPerMinute(0);
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxBuckets(maxBuckets);
+        properties.setPolicies(List.of(policy));
+        return new RateLimitFilter(properties, mock(JwtService.class), new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry());
+    }
+
+    private void send(RateLimitFilter filter, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr(remoteAddr);
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+    }
+
+    private static void runConcurrently(ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                body.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
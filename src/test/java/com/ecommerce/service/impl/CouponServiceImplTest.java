@@ -0,0 +1,58 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.Coupon;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CouponServiceImplTest {
+
+    private CouponRepository couponRepository;
+    private CouponServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        couponRepository = mock(CouponRepository.class);
+        service = new CouponServiceImpl(couponRepository, mock(CategoryRepository.class));
+    }
+
+    @Test
+    void duplicateCodeIsRejectedAsInvalidInput() {
+        when(couponRepository.existsByCodeIgnoreCase("save10")).thenReturn(true);
+
+        assertThatThrownBy(() -> service.createCoupon(coupon("save10")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("already exists");
+        verify(couponRepository, never()).save(any());
+    }
+
+    @Test
+    void newCodeIsNormalizedAndSaved() {
+        when(couponRepository.existsByCodeIgnoreCase(" save10 ")).thenReturn(false);
+        when(couponRepository.save(any(Coupon.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Coupon saved = service.createCoupon(coupon(" save10 "));
+
+        assertThat(saved.getCode()).isEqualTo("SAVE10");
+        assertThat(saved.getUsageCount()).isZero();
+    }
+
+    private static Coupon coupon(String code) {
+        Coupon coupon = new Coupon();
+        coupon.setCode(code);
+        coupon.setDiscountType(Coupon.DiscountType.PERCENTAGE);
+        coupon.setDiscountValue(BigDecimal.TEN);
+        return coupon;
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.GuestCartRepository;
+import com.ecommerce.service.interfaces.CartService;
+import com.ecommerce.service.interfaces.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Races guest cart changes against each other and against eviction when the cart map is full.
+ */
+class GuestCartServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private GuestCartServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = mock(ProductService.class);
+        when(productService.getProductById(anyLong())).thenAnswer(invocation -> Optional.of(product(invocation.getArgument(0))));
+        when(productService.getProductsByIds(any())).thenAnswer(invocation -> {
+            List<Product> products = new ArrayList<>();
+            for (Long productId : invocation.<Iterable<Long>>getArgument(0)) {
+                products.add(product(productId));
+            }
+            return products;
+        });
+
+        service = new GuestCartServiceImpl(mock(GuestCartRepository.class), productService, mock(CartService.class));
+        ReflectionTestUtils.setField(service, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(service, "maxCarts", 100);
+        ReflectionTestUtils.setField(service, "maxLines", 100);
+        ReflectionTestUtils.setField(service, "maxLineQuantity", 1_000_000);
+    }
+
+    @Test
+    void concurrentAddsToOneCartAreAllCounted() throws Exception {
+        String token = service.addItem(null, 1L, 1);
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                assertThat(service.addItem(token, 1L, 1)).isEqualTo(token);
+            }
+        });
+
+        List<CartItem> items = service.getItems(token);
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getQuantity()).isEqualTo(1 + THREADS * 1000);
+    }
+
+    @Test
+    void creatingCartsBeyondTheLimitKeepsTheMapBoundedAndIndexed() throws Exception {
+        runConcurrently(() -> {
+            for (int i = 0; i < 2000; i++) {
+                String token = service.addItem(null, 1L + i % 5, 1);
+                service.addItem(token, 2L, 1);
+                if (i % 7 == 0) {
+                    service.clear(token);
+                }
+            }
+        });
+        service.evictExpiredCarts();
+
+        Map<?, ?> carts = (Map<?, ?>) ReflectionTestUtils.getField(service, "carts");
+        Set<?> expiries = (Set<?>) ReflectionTestUtils.getField(service, "expiries");
+        assertThat(carts.size()).isLessThanOrEqualTo(100 + THREADS);
+        assertThat(expiries).hasSize(carts.size());
+    }
+
+    @Test
+    void lineQuantityIsCapped() {
+        ReflectionTestUtils.setField(service, "maxLineQuantity", 999);
+        String token = service.addItem(null, 1L, 999);
+
+        assertThatThrownBy(() -> service.addItem(token, 1L, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.addItem(token, 1L, Integer.MAX_VALUE)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.getItems(token).get(0).getQuantity()).isEqualTo(999);
+    }
+
+    private void runConcurrently(Runnable body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                body.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private static Product product(long productId) {
+        Product product = new Product();
+        product.setId(productId);
+        product.setPrice(BigDecimal.TEN);
+        return product;
+    }
+}
@@ -0,0 +1,302 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CartRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Races request-thread mutations against synchronous and scheduled flushes and LRU eviction, against
+ * repositories backed by an in-memory cart_items table.
+ */
+class WriteBackCartStoreConcurrencyTest {
+
+    private static final ProductPriceTable.PriceEntry PRICE = new ProductPriceTable.PriceEntry(1L, BigDecimal.TEN, 0.5);
+    private static final int THREADS = 8;
+    private static final int ADDS_PER_THREAD = 500;
+
+    // (cart id, product id) -> row; stands in for cart_items and its unique constraint
+    private final Map<List<Long>, CartItem> table = new HashMap<>();
+    private final AtomicInteger activeFlushes = new AtomicInteger();
+    private final AtomicInteger overlappingFlushes = new AtomicInteger();
+    private final AtomicLong nextId = new AtomicLong();
+    private volatile long failingCartId = -1;
+
+    private CartRepository cartRepository;
+    private CartItemRepository cartItemRepository;
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        cartItemRepository = mock(CartItemRepository.class);
+        productRepository = mock(ProductRepository.class);
+
+        when(cartRepository.findByUserId(anyLong())).thenAnswer(invocation -> {
+            Cart cart = new Cart();
+            cart.setId(cartIdOf(invocation.getArgument(0)));
+            return Optional.of(cart);
+        });
+        when(productRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(product(invocation.getArgument(0))));
+        when(cartItemRepository.findWithProductByUserId(anyLong())).thenAnswer(invocation -> {
+            long cartId = cartIdOf(invocation.getArgument(0));
+            synchronized (table) {
+                return table.values().stream().filter(item -> item.getCart().getId() == cartId).map(this::copy).toList();
+            }
+        });
+        when(cartItemRepository.findByCartIdIn(any())).thenAnswer(invocation -> {
+            // Each cart must be flushed by one thread at a time
+            if (activeFlushes.incrementAndGet() > 1) {
+                overlappingFlushes.incrementAndGet();
+            }
+            try {
+                Thread.sleep(1);
+                Collection<Long> cartIds = invocation.getArgument(0);
+                synchronized (table) {
+                    return table.values().stream().filter(item -> cartIds.contains(item.getCart().getId())).map(this::copy).toList();
+                }
+            } finally {
+                activeFlushes.decrementAndGet();
+            }
+        });
+        when(cartItemRepository.upsertLine(anyLong(), anyLong(), anyInt(), any(), any(), anyLong(), anyDouble(), any()))
+                .thenAnswer(invocation -> {
+                    if (invocation.<Long>getArgument(0) == failingCartId) {
+                        throw new IllegalStateException("cart_items unavailable");
+                    }
+                    CartItem item = new CartItem();
+                    item.setId(nextId.incrementAndGet());
+                    item.setCart(cart(invocation.getArgument(0)));
+                    item.setProduct(product(invocation.getArgument(1)));
+                    item.setQuantity(invocation.getArgument(2));
+                    item.setUnitPrice(invocation.getArgument(3));
+                    item.setSubtotal(invocation.getArgument(4));
+                    item.setPriceVersion(invocation.getArgument(5));
+                    item.setUnitWeightKg(invocation.getArgument(6));
+                    synchronized (table) {
+                        CartItem existing = table.putIfAbsent(keyOf(item), item);
+                        if (existing != null) {
+                            existing.setQuantity(item.getQuantity());
+                        }
+                    }
+                    return 1;
+                });
+        when(cartItemRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<CartItem> items = invocation.getArgument(0);
+            synchronized (table) {
+                items.forEach(item -> table.get(keyOf(item)).setQuantity(item.getQuantity()));
+            }
+            return List.of();
+        });
+        doAnswer(invocation -> {
+            Iterable<CartItem> items = invocation.getArgument(0);
+            synchronized (table) {
+                items.forEach(item -> table.remove(keyOf(item)));
+            }
+            return null;
+        }).when(cartItemRepository).deleteAllInBatch(any());
+    }
+
+    @Test
+    void concurrentAddsAndFlushesKeepOneRowPerLine() throws Exception {
+        WriteBackCartStore store = store(100);
+        long userId = 1L;
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                store.addItem(userId, 10L + (i % 3), 1, PRICE);
+                if (i % 50 == 0) {
+                    store.flush(userId);
+                }
+            }
+        }, store::flushDirtyCarts);
+        store.flush(userId);
+
+        assertThat(overlappingFlushes.get()).isZero();
+        assertThat(rowsOf(cartIdOf(userId))).hasSize(3);
+        assertThat(totalQuantity(cartIdOf(userId))).isEqualTo(THREADS * ADDS_PER_THREAD);
+    }
+
+    @Test
+    void changesSurviveEvictionOfTheCartBeingChanged() throws Exception {
+        // A single slot, so every switch between users evicts the other one's cart
+        WriteBackCartStore store = store(1);
+
+        runConcurrently(thread -> {
+            long userId = 1L + thread % 2;
+            for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                store.addItem(userId, 20L, 1, PRICE);
+            }
+        }, store::flushDirtyCarts);
+        store.flush(1L);
+        store.flush(2L);
+
+        assertThat(totalQuantity(cartIdOf(1L)) + totalQuantity(cartIdOf(2L))).isEqualTo(THREADS * ADDS_PER_THREAD);
+    }
+
+    @Test
+    void clearedCartIsNotWrittenBackByAnInFlightFlush() throws Exception {
+        WriteBackCartStore store = store(100);
+        long userId = 3L;
+        long cartId = cartIdOf(userId);
+
+        for (int round = 0; round < 50; round++) {
+            store.addItem(userId, 30L, 1, PRICE);
+            CountDownLatch started = new CountDownLatch(1);
+            ExecutorService flusher = Executors.newSingleThreadExecutor();
+            Future<?> flush = flusher.submit(() -> {
+                started.countDown();
+                store.flushDirtyCarts();
+            });
+            started.await();
+            store.clear(userId, () -> {
+                synchronized (table) {
+                    table.keySet().removeIf(key -> key.get(0) == cartId);
+                }
+            });
+            flush.get(5, TimeUnit.SECONDS);
+            flusher.shutdown();
+            store.flushDirtyCarts();
+
+            assertThat(rowsOf(cartId)).isEmpty();
+        }
+    }
+
+    @Test
+    void failedBatchDoesNotStopTheScheduledPass() {
+        // One cart per batch, so the failing cart's batch is separate from the healthy one's
+        WriteBackCartStore store = store(100, 1);
+        store.addItem(4L, 40L, 1, PRICE);
+        store.addItem(5L, 40L, 1, PRICE);
+        failingCartId = cartIdOf(4L);
+
+        store.flushDirtyCarts();
+
+        assertThat(rowsOf(cartIdOf(4L))).isEmpty();
+        assertThat(totalQuantity(cartIdOf(5L))).isEqualTo(1);
+
+        // The failed cart stayed dirty and is written once the table accepts it again
+        failingCartId = -1;
+        store.flushDirtyCarts();
+        assertThat(totalQuantity(cartIdOf(4L))).isEqualTo(1);
+    }
+
+    private WriteBackCartStore store(int maxCarts) {
+        return store(maxCarts, 200);
+    }
+
+    private WriteBackCartStore store(int maxCarts, int flushBatchSize) {
+        return new WriteBackCartStore(cartRepository, cartItemRepository, productRepository,
+                mock(UserRepository.class), mock(ProductPriceTable.class), mock(PlatformTransactionManager.class),
+                "write-back", maxCarts, flushBatchSize, 1_800_000);
+    }
+
+    private void runConcurrently(ThreadBody body, Runnable background) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger done = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    body.run(thread);
+                } finally {
+                    done.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            start.await();
+            while (done.get() < THREADS) {
+                background.run();
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private List<CartItem> rowsOf(long cartId) {
+        synchronized (table) {
+            return table.values().stream().filter(item -> item.getCart().getId() == cartId).toList();
+        }
+    }
+
+    private int totalQuantity(long cartId) {
+        return rowsOf(cartId).stream().mapToInt(CartItem::getQuantity).sum();
+    }
+
+    private CartItem copy(CartItem item) {
+        CartItem copy = new CartItem();
+        copy.setId(item.getId());
+        copy.setCart(item.getCart());
+        copy.setProduct(item.getProduct());
+        copy.setQuantity(item.getQuantity());
+        copy.setUnitPrice(item.getUnitPrice());
+        copy.setSubtotal(item.getSubtotal());
+        copy.setPriceVersion(item.getPriceVersion());
+        copy.setUnitWeightKg(item.getUnitWeightKg());
+        return copy;
+    }
+
+    private static List<Long> keyOf(CartItem item) {
+        return List.of(item.getCart().getId(), item.getProduct().getId());
+    }
+
+    private static long cartIdOf(long userId) {
+        return 100 + userId;
+    }
+
+    private static Cart cart(long cartId) {
+        Cart cart = new Cart();
+        cart.setId(cartId);
+        return cart;
+    }
+
+    private static Product product(long productId) {
+        Product product = new Product();
+        product.setId(productId);
+        return product;
+    }
+
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}